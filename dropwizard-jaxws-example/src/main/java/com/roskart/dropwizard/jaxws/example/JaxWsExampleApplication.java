@@ -93,7 +93,7 @@ public class JaxWsExampleApplication extends Application<JaxWsExampleApplication
 
         // RESTful resource that invokes WsdlFirstService on localhost and uses client side JAX-WS handler.
         environment.jersey().register(new AccessWsdlFirstServiceResource(
-                jaxWsBundle.getClient(
+                jaxWsBundle.getClientPool(
                         new ClientBuilder<>(
                                 WsdlFirstService.class,
                                 "http://localhost:8080/soap/wsdlfirst")
@@ -1,6 +1,7 @@
 package com.roskart.dropwizard.jaxws.example.resources;
 
 import com.codahale.metrics.annotation.Timed;
+import com.roskart.dropwizard.jaxws.ClientPool;
 import ws.example.jaxws.dropwizard.roskart.com.wsdlfirstservice.Echo;
 import ws.example.jaxws.dropwizard.roskart.com.wsdlfirstservice.EchoResponse;
 import ws.example.jaxws.dropwizard.roskart.com.wsdlfirstservice.ObjectFactory;
@@ -19,10 +20,10 @@ import javax.ws.rs.core.MediaType;
 @Produces(MediaType.APPLICATION_JSON)
 public class AccessWsdlFirstServiceResource {
 
-    WsdlFirstService wsdlFirstServiceClient;
+    ClientPool<WsdlFirstService> wsdlFirstServiceClients;
 
-    public AccessWsdlFirstServiceResource(WsdlFirstService wsdlFirstServiceClient) {
-        this.wsdlFirstServiceClient = wsdlFirstServiceClient;
+    public AccessWsdlFirstServiceResource(ClientPool<WsdlFirstService> wsdlFirstServiceClients) {
+        this.wsdlFirstServiceClients = wsdlFirstServiceClients;
     }
 
     @GET
@@ -33,7 +34,7 @@ public class AccessWsdlFirstServiceResource {
         Echo e = of.createEcho();
         e.setValue("echo value");
 
-        EchoResponse er = wsdlFirstServiceClient.echo(e);
+        EchoResponse er = wsdlFirstServiceClients.execute(client -> client.echo(e));
 
         return "Echo response: " + er.getValue();
     }
@@ -1,9 +1,21 @@
 package com.roskart.dropwizard.jaxws;
 
+import org.apache.cxf.continuations.Continuation;
+import org.apache.cxf.continuations.ContinuationProvider;
 import org.apache.cxf.message.Exchange;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.message.MessageContentsList;
+import org.apache.cxf.security.SecurityContext;
 import org.apache.cxf.service.invoker.Invoker;
+import org.apache.cxf.transport.http.AbstractHTTPDestination;
 
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.http.HttpServletRequest;
 import java.lang.reflect.Method;
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Abstract CXF invoker for wrapping underlying CXF invoker.
@@ -32,6 +44,114 @@ public abstract class AbstractInvoker implements Invoker {
 
     }
 
+    /**
+     * Utility method for getting the invocation plan of the operation which is going to be invoked. Invocation plans
+     * are attached to OperationInfo when endpoint is published.
+     */
+    public InvocationPlan getInvocationPlan(Exchange exchange) {
+
+        Object o = exchange.getBindingOperationInfo().getOperationInfo().getProperty(InvocationPlan.class.getName());
+
+        if (o instanceof InvocationPlan) {
+            return (InvocationPlan)o;
+        }
+        else {
+            throw new RuntimeException("Invocation plan not found on OperationInfo");
+        }
+
+    }
+
+    /**
+     * Utility method for getting CXF continuation of the current request.
+     * @return Continuation or null when transport does not support continuations.
+     */
+    protected Continuation getContinuation(Exchange exchange) {
+        if (exchange.getInMessage() == null) {
+            return null;
+        }
+        ContinuationProvider provider =
+                (ContinuationProvider)exchange.getInMessage().get(ContinuationProvider.class.getName());
+        return provider != null ? provider.getContinuation() : null;
+    }
+
+    /**
+     * Utility method for checking if the invocation of an operation using @UseAsyncMethod was suspended. CXF invokes
+     * the invoker chain again when the asynchronous response is ready.
+     */
+    protected boolean isSuspended(Exchange exchange) {
+        Continuation continuation = this.getContinuation(exchange);
+        return continuation != null && continuation.isPending();
+    }
+
+    /**
+     * Utility method for running an action when the suspended servlet request completes, times out or fails. Used
+     * to release state of the suspended invocation which is not resumed, i.e. because the asynchronous response was
+     * never produced or the connection was closed. Action also runs when the resumed request completes, therefore it
+     * has to remove the suspended state from the exchange and do nothing when it was already removed.
+     */
+    protected void whenAbandoned(Exchange exchange, Runnable action) {
+        HttpServletRequest request = exchange.getInMessage() != null ?
+                (HttpServletRequest)exchange.getInMessage().get(AbstractHTTPDestination.HTTP_REQUEST) : null;
+        if (request == null || !request.isAsyncStarted()) {
+            return;
+        }
+        request.getAsyncContext().addListener(new AsyncListener() {
+            @Override
+            public void onComplete(AsyncEvent event) {
+                action.run();
+            }
+            @Override
+            public void onTimeout(AsyncEvent event) {
+                action.run();
+            }
+            @Override
+            public void onError(AsyncEvent event) {
+                action.run();
+            }
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+        });
+    }
+
+    /**
+     * Utility method for getting the scope of results which are shared between invocations, i.e. cached or coalesced
+     * results. Results are shared only between invocations of the same caller, which is identified by the principal
+     * authenticated by BasicAuthenticationInterceptor or by CXF security context. Override to scope results by other
+     * per-caller state, such as request headers.
+     * @return Name of the authenticated principal or null when request is not authenticated.
+     */
+    protected Object getResultScope(Exchange exchange) {
+        Message inMessage = exchange.getInMessage();
+        if (inMessage == null) {
+            return null;
+        }
+        Object principal = inMessage.get(BasicAuthenticationInterceptor.PRINCIPAL_KEY);
+        if (principal == null) {
+            SecurityContext securityContext = inMessage.get(SecurityContext.class);
+            principal = securityContext != null ? securityContext.getUserPrincipal() : null;
+        }
+        if (principal instanceof Principal) {
+            return ((Principal)principal).getName();
+        }
+        return principal;
+    }
+
+    /**
+     * Utility method for copying result of the underlying invoker when it is returned more than once. Result list is
+     * copied, because CXF modifies it while building response message. Result objects are not copied, they are
+     * shared by reference and must not be modified by service, JAX-WS handlers or CXF interceptors.
+     */
+    protected Object copyOf(Object result) {
+        if (result instanceof MessageContentsList) {
+            return new MessageContentsList((List<?>)result);
+        }
+        else if (result instanceof List) {
+            return new ArrayList<>((List<?>)result);
+        }
+        return result;
+    }
+
     @Override
     public abstract Object invoke(Exchange exchange, Object o);
 
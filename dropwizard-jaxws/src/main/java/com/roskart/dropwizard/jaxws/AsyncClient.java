@@ -0,0 +1,213 @@
+package com.roskart.dropwizard.jaxws;
+
+import com.google.common.collect.ImmutableList;
+import org.apache.cxf.endpoint.Client;
+import org.apache.cxf.endpoint.ClientCallback;
+import org.apache.cxf.frontend.ClientProxy;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Asynchronous facade of a JAX-WS client. Operations are invoked by name with the parameters of the service interface
+ * method and return CompletableFuture of the operation result, so that single thread can issue many concurrent
+ * calls.
+ * <p>
+ * Calls are sent by CXF non-blocking HTTP conduit (cxf-rt-transports-http-hc), which completes the future on its I/O
+ * thread when the response is received or client receive timeout expires. Dependent stages which block or take long
+ * should use async variants of CompletableFuture methods. Cancelled future completes immediately, response which
+ * is received afterwards is discarded.
+ * <p>
+ * Future fails with the declared service exception, CXF Fault for undeclared SOAP faults or with the transport
+ * exception.
+ * <p>
+ * When hedging policy is set, idempotent operations which do not respond within the hedging delay are sent again,
+ * to hedge addresses in turn or to the same address. The first successful response completes the future and the
+ * other request is cancelled. Future fails when all sent requests fail.
+ * @see com.roskart.dropwizard.jaxws.JAXWSEnvironment#getAsyncClient(ClientBuilder)
+ */
+public class AsyncClient<T> {
+
+    private final T proxy;
+    private final Client client;
+    private final HedgingPolicy hedgingPolicy;
+    private final List<Client> hedgeClients;
+    private final AtomicInteger nextHedgeClient = new AtomicInteger();
+
+    public AsyncClient(T proxy) {
+        this(proxy, ClientProxy.getClient(proxy), null, ImmutableList.of());
+    }
+
+    /**
+     * @param proxy Client proxy.
+     * @param hedgingPolicy Hedging policy.
+     * @param hedgeProxies Client proxies used for hedged requests. When empty, hedged requests are sent by proxy.
+     */
+    public AsyncClient(T proxy, HedgingPolicy hedgingPolicy, List<T> hedgeProxies) {
+        this(proxy, ClientProxy.getClient(proxy), hedgingPolicy,
+                hedgeProxies.stream().map(ClientProxy::getClient).collect(ImmutableList.toImmutableList()));
+    }
+
+    AsyncClient(T proxy, Client client, HedgingPolicy hedgingPolicy, List<Client> hedgeClients) {
+        this.proxy = proxy;
+        this.client = client;
+        this.hedgingPolicy = hedgingPolicy;
+        this.hedgeClients = hedgeClients;
+    }
+
+    /**
+     * Returns hedging policy or null when hedging is not enabled.
+     */
+    public HedgingPolicy getHedgingPolicy() {
+        return hedgingPolicy;
+    }
+
+    /**
+     * Returns synchronous client proxy, which shares configuration with this client.
+     */
+    public T getProxy() {
+        return proxy;
+    }
+
+    /**
+     * Invokes service operation without waiting for the response.
+     * @param operationName Operation name.
+     * @param params Operation parameters.
+     * @param <R> Operation result type.
+     * @return Future of the operation result, null result for void operations.
+     */
+    public <R> CompletableFuture<R> invoke(String operationName, Object... params) {
+        if (hedgingPolicy != null && hedgingPolicy.isHedged(operationName)) {
+            return new HedgedCall<R>(operationName, params).start();
+        }
+        return this.invoke(client, operationName, params);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <R> CompletableFuture<R> invoke(Client target, String operationName, Object... params) {
+
+        final CompletableFuture<R> future = new CompletableFuture<>();
+
+        final ClientCallback callback = new ClientCallback() {
+            @Override
+            public void handleResponse(Map<String, Object> ctx, Object[] res) {
+                super.handleResponse(ctx, res);
+                future.complete(res != null && res.length > 0 ? (R)res[0] : null);
+            }
+            @Override
+            public void handleException(Map<String, Object> ctx, Throwable ex) {
+                super.handleException(ctx, ex);
+                future.completeExceptionally(ex);
+            }
+        };
+
+        future.whenComplete((result, failure) -> {
+            if (future.isCancelled()) {
+                callback.cancel(true);
+            }
+        });
+
+        try {
+            target.invoke(callback, operationName, params);
+        }
+        catch (Exception e) {
+            future.completeExceptionally(e);
+        }
+
+        return future;
+    }
+
+    private Client nextHedgeClient() {
+        if (hedgeClients.isEmpty()) {
+            return client;
+        }
+        return hedgeClients.get(Math.floorMod(nextHedgeClient.getAndIncrement(), hedgeClients.size()));
+    }
+
+    /**
+     * Call which sends hedged request when the original request does not respond within the hedging delay.
+     */
+    private class HedgedCall<R> {
+
+        private final String operationName;
+        private final Object[] params;
+        private final CompletableFuture<R> result = new CompletableFuture<>();
+        private final AtomicInteger pending = new AtomicInteger(1);
+        private final Deadline deadline = Deadline.current();
+        private volatile CompletableFuture<R> original;
+        private volatile CompletableFuture<R> hedge;
+        private volatile ScheduledFuture<?> hedgeTimer;
+
+        HedgedCall(String operationName, Object[] params) {
+            this.operationName = operationName;
+            this.params = params;
+        }
+
+        CompletableFuture<R> start() {
+            hedgingPolicy.requestSent();
+            original = AsyncClient.this.invoke(client, operationName, params);
+            original.whenComplete((r, t) -> completed(r, t, false));
+            if (!result.isDone()) {
+                try {
+                    hedgeTimer = hedgingPolicy.getScheduler().schedule(
+                            this::sendHedge, hedgingPolicy.getDelay(), TimeUnit.MILLISECONDS);
+                }
+                catch (RejectedExecutionException e) {
+                    // scheduler was shut down together with the environment, request is not hedged
+                }
+            }
+            result.whenComplete((r, t) -> {
+                cancel(hedgeTimer);
+                if (result.isCancelled()) {
+                    cancel(original);
+                    cancel(hedge);
+                }
+            });
+            return result;
+        }
+
+        private void sendHedge() {
+            if (result.isDone() || !hedgingPolicy.tryHedge(operationName)) {
+                return;
+            }
+            pending.incrementAndGet();
+            // hedged request is sent by the scheduler thread, within the deadline of the original request
+            Deadline previous = Deadline.bind(deadline);
+            try {
+                hedge = AsyncClient.this.invoke(nextHedgeClient(), operationName, params);
+            }
+            finally {
+                Deadline.bind(previous);
+            }
+            hedge.whenComplete((r, t) -> completed(r, t, true));
+        }
+
+        private void completed(R r, Throwable t, boolean fromHedge) {
+            boolean last = pending.decrementAndGet() == 0;
+            if (t == null) {
+                if (result.complete(r)) {
+                    if (fromHedge) {
+                        hedgingPolicy.hedgeWon(operationName);
+                    }
+                    // loser is cancelled, its response is discarded
+                    cancel(fromHedge ? original : hedge);
+                }
+            }
+            else if (last) {
+                result.completeExceptionally(t);
+            }
+        }
+
+        private void cancel(Future<?> future) {
+            if (future != null) {
+                future.cancel(true);
+            }
+        }
+    }
+}
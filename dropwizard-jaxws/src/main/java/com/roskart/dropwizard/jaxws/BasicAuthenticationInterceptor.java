@@ -6,18 +6,12 @@ import org.apache.cxf.common.security.SecurityToken;
 import org.apache.cxf.common.security.TokenType;
 import org.apache.cxf.common.security.UsernameToken;
 import org.apache.cxf.configuration.security.AuthorizationPolicy;
-import org.apache.cxf.endpoint.Endpoint;
 import org.apache.cxf.interceptor.Fault;
 import org.apache.cxf.message.Exchange;
 import org.apache.cxf.message.Message;
 import org.apache.cxf.phase.AbstractPhaseInterceptor;
 import org.apache.cxf.phase.Phase;
-import org.apache.cxf.transport.Conduit;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
-import java.io.IOException;
-import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.util.*;
 
@@ -29,7 +23,6 @@ import java.util.*;
  */
 public class BasicAuthenticationInterceptor extends AbstractPhaseInterceptor<Message> {
 
-    private static final Logger log = LoggerFactory.getLogger(BasicAuthenticationInterceptor.class);
     public static final String PRINCIPAL_KEY = "dropwizard.jaxws.principal";
     private BasicAuthentication authentication;
 
@@ -85,46 +78,7 @@ public class BasicAuthenticationInterceptor extends AbstractPhaseInterceptor<Mes
     }
 
     private void sendErrorResponse(Message message, int responseCode) {
-        Message outMessage = getOutMessage(message);
-        outMessage.put(Message.RESPONSE_CODE, responseCode);
-        // Set the response headers
-        @SuppressWarnings("unchecked")
-        Map<String, List<String>> responseHeaders = (Map)message.get(Message.PROTOCOL_HEADERS);
-        if (responseHeaders != null) {
-            responseHeaders.put("WWW-Authenticate", Collections.singletonList("Basic realm=" + authentication.getRealm()));
-            responseHeaders.put("Content-length", Collections.singletonList("0"));
-        }
-        message.getInterceptorChain().abort();
-        try {
-            getConduit(message).prepare(outMessage);
-            close(outMessage);
-        } catch (IOException e) {
-            log.warn(e.getMessage(), e);
-        }
-    }
-
-    private Message getOutMessage(Message inMessage) {
-        Exchange exchange = inMessage.getExchange();
-        Message outMessage = exchange.getOutMessage();
-        if (outMessage == null) {
-            Endpoint endpoint = exchange.get(Endpoint.class);
-            outMessage = endpoint.getBinding().createMessage();
-            exchange.setOutMessage(outMessage);
-        }
-        outMessage.putAll(inMessage);
-        return outMessage;
-    }
-
-    private Conduit getConduit(Message inMessage) throws IOException {
-        Exchange exchange = inMessage.getExchange();
-        Conduit conduit = exchange.getDestination().getBackChannel(inMessage);
-        exchange.setConduit(conduit);
-        return conduit;
-    }
-
-    private void close(Message outMessage) throws IOException {
-        OutputStream os = outMessage.getContent(OutputStream.class);
-        os.flush();
-        os.close();
+        ErrorResponses.send(message, responseCode, Collections.singletonMap("WWW-Authenticate",
+                Collections.singletonList("Basic realm=" + authentication.getRealm())));
     }
 }
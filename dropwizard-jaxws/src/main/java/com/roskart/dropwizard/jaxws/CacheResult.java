@@ -0,0 +1,41 @@
+package com.roskart.dropwizard.jaxws;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * When annotating a service operation method, results of the operation are cached and reused for subsequent
+ * invocations with equal parameters. Parameters are compared by value, therefore JAXB generated parameter classes
+ * do not need to implement equals and hashCode. Faults and null results are never cached.
+ * Operations with Holder or AsyncHandler parameters are not cached.
+ * <p>
+ * Results are cached per authenticated principal, so that results of one caller are not returned to another caller.
+ * Cached result objects are shared by reference between invocations, therefore they must not be modified by service,
+ * JAX-WS handlers or CXF interceptors.
+ * @see com.roskart.dropwizard.jaxws.CachingInvoker
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface CacheResult {
+
+    /**
+     * Time after which cached result expires. Expiration is measured from the moment result is cached.
+     */
+    long ttl() default 60;
+
+    /**
+     * Time unit of ttl.
+     */
+    TimeUnit ttlUnit() default TimeUnit.SECONDS;
+
+    /**
+     * Maximum number of cached results. When the limit is reached, results are evicted using the
+     * Window TinyLFU policy.
+     */
+    long maxEntries() default 1000;
+}
@@ -0,0 +1,82 @@
+package com.roskart.dropwizard.jaxws;
+
+import com.codahale.metrics.Meter;
+import com.github.benmanes.caffeine.cache.Cache;
+import org.apache.cxf.message.Exchange;
+import org.apache.cxf.service.invoker.Invoker;
+
+/**
+ * Wraps underlying invoker and caches results of service methods annotated with @CacheResult. Cached results are
+ * returned without invoking the underlying invoker, i.e. without opening unit of work and validating parameters.
+ * Results are cached per authenticated principal, see AbstractInvoker.getResultScope.
+ */
+public class CachingInvoker extends AbstractInvoker {
+
+    private static final String SUSPENDED_MISS = CachingInvoker.class.getName() + ".suspended";
+
+    /**
+     * Result cache of a single service operation.
+     */
+    public static class ResultCache {
+        private final Cache<ParameterKey, Object> cache;
+        private final Meter hits;
+        private final Meter misses;
+        public ResultCache(Cache<ParameterKey, Object> cache, Meter hits, Meter misses) {
+            this.cache = cache;
+            this.hits = hits;
+            this.misses = misses;
+        }
+        public Cache<ParameterKey, Object> getCache() {
+            return cache;
+        }
+        public Meter getHits() {
+            return hits;
+        }
+        public Meter getMisses() {
+            return misses;
+        }
+    }
+
+    public CachingInvoker(Invoker underlying) {
+        super(underlying);
+    }
+
+    @Override
+    public Object invoke(Exchange exchange, Object o) {
+
+        InvocationPlan plan = this.getInvocationPlan(exchange);
+        ResultCache resultCache = plan.getResultCache();
+
+        if (resultCache == null) {
+            return underlying.invoke(exchange, o);
+        }
+
+        // miss of the @UseAsyncMethod invocation was already counted before the invocation was suspended
+        ParameterKey key = plan.isAsync() ? (ParameterKey)exchange.remove(SUSPENDED_MISS) : null;
+
+        if (key == null) {
+            key = ParameterKey.of(o, this.getResultScope(exchange));
+            if (key == null) {
+                // parameters can not be compared by value
+                return underlying.invoke(exchange, o);
+            }
+
+            Object result = resultCache.getCache().getIfPresent(key);
+            if (result != null) {
+                resultCache.getHits().mark();
+                return copyOf(result);
+            }
+
+            resultCache.getMisses().mark();
+        }
+
+        Object result = underlying.invoke(exchange, o);
+        if (plan.isAsync() && this.isSuspended(exchange)) {
+            exchange.put(SUSPENDED_MISS, key);
+        }
+        else if (result != null) {
+            resultCache.getCache().put(key, copyOf(result));
+        }
+        return result;
+    }
+}
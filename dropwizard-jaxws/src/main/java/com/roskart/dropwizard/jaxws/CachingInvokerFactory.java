@@ -0,0 +1,83 @@
+package com.roskart.dropwizard.jaxws;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.apache.cxf.service.invoker.Invoker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+
+/**
+ * Provides factory method for creating CachingInvoker and result caches of service methods annotated
+ * with @CacheResult.
+ */
+public class CachingInvokerFactory {
+
+    private static Logger log = LoggerFactory.getLogger(CachingInvokerFactory.class);
+
+    private final MetricRegistry metricRegistry;
+
+    /**
+     *
+     * @param metricRegistry Metric registry for cache hit, miss and eviction meters.
+     */
+    public CachingInvokerFactory(MetricRegistry metricRegistry) {
+        this.metricRegistry = metricRegistry;
+    }
+
+    /**
+     * Creates result cache for service method annotated with @CacheResult. Returned cache is stored in the operation's
+     * invocation plan. Results are evicted using Caffeine's Window TinyLFU policy when maxEntries is reached and
+     * expire ttl after they are cached.
+     * @return Result cache or null when method results are not cached.
+     */
+    public CachingInvoker.ResultCache createResultCache(Method m) {
+
+        CacheResult annotation = m.getAnnotation(CacheResult.class);
+        if (annotation == null) {
+            return null;
+        }
+
+        if (!ParameterKey.isSupported(m)) {
+            log.warn("Results of " + m.getDeclaringClass().getName() + "." + m.getName() +
+                    " are not cached, because method has Holder or AsyncHandler parameter.");
+            return null;
+        }
+
+        final Meter evictions = metricRegistry.meter(MetricRegistry.name(m.getDeclaringClass(), m.getName(),
+                "cache-evictions"));
+
+        Cache<ParameterKey, Object> cache = Caffeine.newBuilder()
+                .maximumSize(annotation.maxEntries())
+                .expireAfterWrite(annotation.ttl(), annotation.ttlUnit())
+                .executor(Runnable::run)
+                .<ParameterKey, Object>removalListener((key, value, cause) -> {
+                    if (cause.wasEvicted()) {
+                        evictions.mark();
+                    }
+                })
+                .build();
+
+        return new CachingInvoker.ResultCache(cache,
+                metricRegistry.meter(MetricRegistry.name(m.getDeclaringClass(), m.getName(), "cache-hits")),
+                metricRegistry.meter(MetricRegistry.name(m.getDeclaringClass(), m.getName(), "cache-misses")));
+    }
+
+    /**
+     * Factory method for creating CachingInvoker. Result caches are read from the operations' invocation plans,
+     * service is only scanned to find out whether any of its methods is annotated with @CacheResult.
+     */
+    public Invoker create(Object service, Invoker rootInvoker) {
+
+        for (Method m : service.getClass().getMethods()) {
+            if (m.isAnnotationPresent(CacheResult.class)) {
+                return new CachingInvoker(rootInvoker);
+            }
+        }
+
+        return rootInvoker;
+    }
+}
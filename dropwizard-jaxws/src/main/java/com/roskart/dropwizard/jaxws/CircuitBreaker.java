@@ -0,0 +1,165 @@
+package com.roskart.dropwizard.jaxws;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Client circuit breaker. Outcomes of the last calls are recorded in a sliding window. When the window is full and the
+ * failure rate reaches the threshold, circuit opens and calls fail fast with CircuitBreakerOpenException, without
+ * waiting for the client timeouts. After the open duration, circuit is half-open and lets a single probe call through:
+ * circuit closes when the probe succeeds and opens again when it fails. Outcomes of calls which were acquired before
+ * the last state change (i.e. calls which were in flight when the circuit opened) are ignored.
+ * @see com.roskart.dropwizard.jaxws.ClientBuilder#circuitBreaker(int, int, int)
+ */
+public class CircuitBreaker {
+
+    /**
+     * Circuit breaker state.
+     */
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    /**
+     * Permission to make a call, acquired in the given generation of the circuit breaker state.
+     */
+    public static final class Permit {
+        private final long generation;
+        private final boolean probe;
+        private Permit(long generation, boolean probe) {
+            this.generation = generation;
+            this.probe = probe;
+        }
+        public boolean isProbe() {
+            return probe;
+        }
+    }
+
+    private final int failureRateThreshold;
+    private final long openDurationNanos;
+    private final LongSupplier nanoTime;
+    private final boolean[] window;
+    private int windowIndex;
+    private int windowCount;
+    private int windowFailures;
+    private State state = State.CLOSED;
+    private long openedAt;
+    private long generation;
+    private boolean probeInFlight;
+
+    /**
+     * @param failureRateThreshold Failure rate in percent which opens the circuit.
+     * @param windowSize Number of calls in the sliding window.
+     * @param openDuration Time in milliseconds before open circuit becomes half-open.
+     */
+    public CircuitBreaker(int failureRateThreshold, int windowSize, long openDuration) {
+        this(failureRateThreshold, windowSize, openDuration, System::nanoTime);
+    }
+
+    CircuitBreaker(int failureRateThreshold, int windowSize, long openDuration, LongSupplier nanoTime) {
+        checkArgument(failureRateThreshold > 0 && failureRateThreshold <= 100,
+                "Failure rate threshold is not between 1 and 100");
+        checkArgument(windowSize > 0, "Window size is not positive");
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDurationNanos = TimeUnit.MILLISECONDS.toNanos(openDuration);
+        this.nanoTime = nanoTime;
+        this.window = new boolean[windowSize];
+    }
+
+    public synchronized State getState() {
+        if (state == State.OPEN && nanoTime.getAsLong() - openedAt >= openDurationNanos) {
+            state = State.HALF_OPEN;
+            generation++;
+        }
+        return state;
+    }
+
+    /**
+     * Returns failure rate of the calls in the sliding window in percent.
+     */
+    public synchronized int getFailureRate() {
+        return windowCount > 0 ? windowFailures * 100 / windowCount : 0;
+    }
+
+    /**
+     * Acquires permission to make a call. Every acquired call has to be completed with onSuccess or onFailure.
+     * @return Permit of the call, or null when circuit is open or half-open probe is in flight.
+     */
+    public synchronized Permit tryAcquire() {
+        switch (this.getState()) {
+            case CLOSED:
+                return new Permit(generation, false);
+            case HALF_OPEN:
+                if (probeInFlight) {
+                    return null;
+                }
+                probeInFlight = true;
+                return new Permit(generation, true);
+            default:
+                return null;
+        }
+    }
+
+    public synchronized void onSuccess(Permit permit) {
+        if (permit.generation != generation) {
+            return;
+        }
+        if (state == State.HALF_OPEN && permit.probe) {
+            this.close();
+        }
+        else if (state == State.CLOSED) {
+            this.record(false);
+        }
+    }
+
+    public synchronized void onFailure(Permit permit) {
+        if (permit.generation != generation) {
+            return;
+        }
+        if (state == State.HALF_OPEN && permit.probe) {
+            this.open();
+        }
+        else if (state == State.CLOSED) {
+            this.record(true);
+            if (windowCount == window.length && windowFailures * 100 >= failureRateThreshold * windowCount) {
+                this.open();
+            }
+        }
+    }
+
+    private void record(boolean failure) {
+        if (windowCount == window.length) {
+            if (window[windowIndex]) {
+                windowFailures--;
+            }
+        }
+        else {
+            windowCount++;
+        }
+        window[windowIndex] = failure;
+        if (failure) {
+            windowFailures++;
+        }
+        windowIndex = (windowIndex + 1) % window.length;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        generation++;
+        openedAt = nanoTime.getAsLong();
+        probeInFlight = false;
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        generation++;
+        probeInFlight = false;
+        windowIndex = 0;
+        windowCount = 0;
+        windowFailures = 0;
+    }
+}
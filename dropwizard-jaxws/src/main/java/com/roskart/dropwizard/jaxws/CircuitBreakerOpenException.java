@@ -0,0 +1,14 @@
+package com.roskart.dropwizard.jaxws;
+
+import javax.xml.ws.WebServiceException;
+
+/**
+ * Thrown by client proxy when the call is not made, because client circuit breaker is open.
+ * @see com.roskart.dropwizard.jaxws.CircuitBreaker
+ */
+public class CircuitBreakerOpenException extends WebServiceException {
+
+    public CircuitBreakerOpenException(String message) {
+        super(message);
+    }
+}
@@ -1,10 +1,13 @@
 package com.roskart.dropwizard.jaxws;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import org.apache.cxf.interceptor.Interceptor;
 import org.apache.cxf.message.Message;
 
 import javax.xml.ws.handler.Handler;
+import java.util.List;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
@@ -19,6 +22,29 @@ public class ClientBuilder<T> extends AbstractBuilder {
     private int receiveTimeout = 2000;
     ImmutableList<Handler> handlers;
     String bindingId;
+    private boolean deadlinePropagationEnabled;
+    private int maxConnections;
+    private int maxConnectionsPerHost;
+    private int connectionKeepAlive = 60000;
+    private int connectionMaxIdle = 60000;
+    private int clientPoolSize = 10;
+    private int clientPoolMaxWait = 1000;
+    private boolean instrumented;
+    private MetricRegistry metricRegistry;
+    private String name;
+    private int hedgingDelay;
+    private int hedgingBudget;
+    private ImmutableList<String> hedgingAddresses = ImmutableList.of();
+    private ImmutableSet<String> idempotentOperations = ImmutableSet.of();
+    private int circuitBreakerFailureRate;
+    private int circuitBreakerWindowSize;
+    private int circuitBreakerOpenDuration;
+    private int retryMaxAttempts;
+    private int retryBackoff;
+    private ImmutableList<String> addresses = ImmutableList.of();
+    private LoadBalancer.Strategy loadBalancingStrategy = LoadBalancer.Strategy.ROUND_ROBIN;
+    private int outlierEjectionFailures = 5;
+    private int outlierEjectionTime = 30000;
 
     public Class<T> getServiceClass() {
         return serviceClass;
@@ -44,6 +70,118 @@ public class ClientBuilder<T> extends AbstractBuilder {
         return bindingId;
     }
 
+    public boolean isDeadlinePropagationEnabled() {
+        return deadlinePropagationEnabled;
+    }
+
+    public boolean isConnectionPoolEnabled() {
+        return maxConnections > 0;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public int getMaxConnectionsPerHost() {
+        return maxConnectionsPerHost;
+    }
+
+    public int getConnectionKeepAlive() {
+        return connectionKeepAlive;
+    }
+
+    public int getConnectionMaxIdle() {
+        return connectionMaxIdle;
+    }
+
+    public int getClientPoolSize() {
+        return clientPoolSize;
+    }
+
+    public int getClientPoolMaxWait() {
+        return clientPoolMaxWait;
+    }
+
+    public boolean isInstrumented() {
+        return instrumented;
+    }
+
+    public MetricRegistry getMetricRegistry() {
+        return metricRegistry;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isHedgingEnabled() {
+        return hedgingDelay > 0;
+    }
+
+    public int getHedgingDelay() {
+        return hedgingDelay;
+    }
+
+    public int getHedgingBudget() {
+        return hedgingBudget;
+    }
+
+    public ImmutableList<String> getHedgingAddresses() {
+        return hedgingAddresses;
+    }
+
+    public ImmutableSet<String> getIdempotentOperations() {
+        return idempotentOperations;
+    }
+
+    public boolean isCircuitBreakerEnabled() {
+        return circuitBreakerFailureRate > 0;
+    }
+
+    public int getCircuitBreakerFailureRate() {
+        return circuitBreakerFailureRate;
+    }
+
+    public int getCircuitBreakerWindowSize() {
+        return circuitBreakerWindowSize;
+    }
+
+    public int getCircuitBreakerOpenDuration() {
+        return circuitBreakerOpenDuration;
+    }
+
+    public boolean isRetryEnabled() {
+        return retryMaxAttempts > 1;
+    }
+
+    public int getRetryMaxAttempts() {
+        return retryMaxAttempts;
+    }
+
+    public int getRetryBackoff() {
+        return retryBackoff;
+    }
+
+    public boolean isLoadBalancingEnabled() {
+        return !addresses.isEmpty();
+    }
+
+    public ImmutableList<String> getAddresses() {
+        return addresses;
+    }
+
+    public LoadBalancer.Strategy getLoadBalancingStrategy() {
+        return loadBalancingStrategy;
+    }
+
+    public int getOutlierEjectionFailures() {
+        return outlierEjectionFailures;
+    }
+
+    public int getOutlierEjectionTime() {
+        return outlierEjectionTime;
+    }
+
     /**
      * Create new ClientBuilder. Endpoint will be published relative to the CXF servlet path.
      * @param serviceClass Service interface class..
@@ -77,6 +215,228 @@ public class ClientBuilder<T> extends AbstractBuilder {
         return this;
     }
 
+    /**
+     * Enable or disable deadline propagation. When enabled, client sends its receive timeout or remaining time of the
+     * current service operation's deadline, whichever is shorter, in the X-Request-Timeout HTTP header and shortens
+     * its receive timeout to the remaining time. Deadline propagation is disabled by default.
+     * @see com.roskart.dropwizard.jaxws.EndpointBuilder#honorRequestTimeout()
+     * @param enabled Enable deadline propagation.
+     * @return ClientBuilder instance.
+     */
+    public ClientBuilder<T> deadlinePropagation(boolean enabled) {
+        this.deadlinePropagationEnabled = enabled;
+        return this;
+    }
+
+    /**
+     * Use pooled persistent HTTP connections (CXF async HTTP transport) for all client requests instead of the
+     * default URLConnection based transport. Each client has its own connection pool.
+     * @param maxConnections Maximum number of connections in total.
+     * @param maxConnectionsPerHost Maximum number of connections per host.
+     * @return ClientBuilder instance.
+     */
+    public ClientBuilder<T> connectionPool(int maxConnections, int maxConnectionsPerHost) {
+        checkArgument(maxConnections > 0, "Max connections is not positive");
+        checkArgument(maxConnectionsPerHost > 0 && maxConnectionsPerHost <= maxConnections,
+                "Max connections per host is not positive or exceeds max connections");
+        this.maxConnections = maxConnections;
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+        return this;
+    }
+
+    /**
+     * Change default keep-alive duration of pooled connections. Connections are closed when they were open for
+     * longer, even when in use by a request. When set to 0, connections are kept alive until they are idle for
+     * longer than the max idle time.
+     * @param value Keep-alive duration in milliseconds, default is 60000.
+     * @return ClientBuilder instance.
+     */
+    public ClientBuilder<T> connectionKeepAlive(int value) {
+        this.connectionKeepAlive = value;
+        return this;
+    }
+
+    /**
+     * Change default max idle time of pooled connections. Idle connections are evicted from the pool when keep-alive
+     * duration is set to 0.
+     * @param value Max idle time in milliseconds, default is 60000.
+     * @return ClientBuilder instance.
+     */
+    public ClientBuilder<T> connectionMaxIdle(int value) {
+        this.connectionMaxIdle = value;
+        return this;
+    }
+
+    /**
+     * Change default size of the client pool, i.e. maximum number of client proxies used concurrently.
+     * @param value Client pool size, default is 10.
+     * @return ClientBuilder instance.
+     * @see com.roskart.dropwizard.jaxws.ClientPool
+     */
+    public ClientBuilder<T> clientPoolSize(int value) {
+        checkArgument(value > 0, "Client pool size is not positive");
+        this.clientPoolSize = value;
+        return this;
+    }
+
+    /**
+     * Change default time to wait for a client proxy when all proxies of the client pool are in use.
+     * @param value Max wait time in milliseconds, default is 1000.
+     * @return ClientBuilder instance.
+     */
+    public ClientBuilder<T> clientPoolMaxWait(int value) {
+        this.clientPoolMaxWait = value;
+        return this;
+    }
+
+    /**
+     * Record per-operation client metrics (latency, in-flight calls, message sizes and errors) in the metric
+     * registry of the application.
+     * @return ClientBuilder instance.
+     * @see com.roskart.dropwizard.jaxws.ClientMetrics
+     */
+    public ClientBuilder<T> instrumented() {
+        this.instrumented = true;
+        return this;
+    }
+
+    /**
+     * Record per-operation client metrics in the provided metric registry.
+     * @param metricRegistry Metric registry.
+     * @return ClientBuilder instance.
+     * @see com.roskart.dropwizard.jaxws.ClientMetrics
+     */
+    public ClientBuilder<T> metricRegistry(MetricRegistry metricRegistry) {
+        checkArgument(metricRegistry != null, "MetricRegistry is null");
+        this.metricRegistry = metricRegistry;
+        this.instrumented = true;
+        return this;
+    }
+
+    /**
+     * Name the client, so that its metrics are distinguished from metrics of other clients of the same service
+     * interface. Client wide metrics, i.e. connection pool, client pool, circuit breaker and load balanced endpoint
+     * metrics, are prefixed with ServiceInterface.name instead of ServiceInterface. Per-operation metrics are shared
+     * by all clients of the service interface. Creating second unnamed client of the same service interface with
+     * client wide gauges fails, because gauges of the first client can not be replaced.
+     * @param name Client name.
+     * @return ClientBuilder instance.
+     */
+    public ClientBuilder<T> name(String name) {
+        checkArgument(name != null && name.trim().length() > 0, "Name is empty");
+        this.name = name;
+        return this;
+    }
+
+    /**
+     * Send hedged requests for idempotent operations. When idempotent operation does not respond within the delay,
+     * the request is sent again and the first successful response is used.
+     * @param delay Hedging delay in milliseconds, i.e. p95 latency of the operations.
+     * @param budgetPercent Maximum number of hedged requests, as a percentage of requests.
+     * @param hedgeAddresses Endpoint URL addresses for hedged requests, used in turn. When empty, hedged requests
+     *                       are sent to the client address. Ignored when client addresses are load balanced.
+     * @return ClientBuilder instance.
+     * @see com.roskart.dropwizard.jaxws.HedgingPolicy
+     */
+    public ClientBuilder<T> hedging(int delay, int budgetPercent, String... hedgeAddresses) {
+        checkArgument(delay > 0, "Hedging delay is not positive");
+        checkArgument(budgetPercent > 0 && budgetPercent <= 100, "Hedging budget is not between 1 and 100");
+        this.hedgingDelay = delay;
+        this.hedgingBudget = budgetPercent;
+        this.hedgingAddresses = ImmutableList.copyOf(hedgeAddresses);
+        return this;
+    }
+
+    /**
+     * Mark operations idempotent, in addition to service interface methods annotated with @Idempotent. Only
+     * idempotent operations are hedged and retried.
+     * @param operationNames Operation names.
+     * @return ClientBuilder instance.
+     */
+    public ClientBuilder<T> idempotentOperations(String... operationNames) {
+        this.idempotentOperations = ImmutableSet.copyOf(operationNames);
+        return this;
+    }
+
+    /**
+     * Enable client circuit breaker. When the failure rate of the last calls reaches the threshold, calls fail fast
+     * with CircuitBreakerOpenException during the open duration. Afterwards, a single probe call is let through.
+     * @param failureRateThreshold Failure rate in percent which opens the circuit.
+     * @param windowSize Number of last calls used for the failure rate.
+     * @param openDuration Open duration in milliseconds.
+     * @return ClientBuilder instance.
+     * @see com.roskart.dropwizard.jaxws.CircuitBreaker
+     */
+    public ClientBuilder<T> circuitBreaker(int failureRateThreshold, int windowSize, int openDuration) {
+        checkArgument(failureRateThreshold > 0 && failureRateThreshold <= 100,
+                "Failure rate threshold is not between 1 and 100");
+        checkArgument(windowSize > 0, "Window size is not positive");
+        checkArgument(openDuration > 0, "Open duration is not positive");
+        this.circuitBreakerFailureRate = failureRateThreshold;
+        this.circuitBreakerWindowSize = windowSize;
+        this.circuitBreakerOpenDuration = openDuration;
+        return this;
+    }
+
+    /**
+     * Retry idempotent operations which fail with transport failure, i.e. connection failure or receive timeout.
+     * @param maxAttempts Maximum number of attempts, including the first one.
+     * @param backoff Backoff before the first retry in milliseconds. Backoff is doubled for each following retry and
+     *                randomized between half and full backoff.
+     * @return ClientBuilder instance.
+     * @see com.roskart.dropwizard.jaxws.ClientRetryPolicy
+     */
+    public ClientBuilder<T> retry(int maxAttempts, int backoff) {
+        checkArgument(maxAttempts > 1, "Max attempts is less than 2");
+        checkArgument(backoff >= 0, "Backoff is negative");
+        this.retryMaxAttempts = maxAttempts;
+        this.retryBackoff = backoff;
+        return this;
+    }
+
+    /**
+     * Balance calls across endpoint addresses on the client side. When set, calls are sent to these addresses
+     * instead of the client address. Request context endpoint address property is overridden.
+     * @param addresses Endpoint URL addresses.
+     * @return ClientBuilder instance.
+     * @see com.roskart.dropwizard.jaxws.LoadBalancer
+     */
+    public ClientBuilder<T> addresses(List<String> addresses) {
+        checkArgument(addresses != null && !addresses.isEmpty(), "Addresses are empty");
+        for (String a : addresses) {
+            checkArgument(a != null && a.trim().length() > 0, "Address is empty");
+        }
+        this.addresses = ImmutableList.copyOf(addresses);
+        return this;
+    }
+
+    /**
+     * Change default round-robin endpoint selection strategy of the load balanced addresses.
+     * @param strategy Endpoint selection strategy.
+     * @return ClientBuilder instance.
+     */
+    public ClientBuilder<T> loadBalancingStrategy(LoadBalancer.Strategy strategy) {
+        checkArgument(strategy != null, "Strategy is null");
+        this.loadBalancingStrategy = strategy;
+        return this;
+    }
+
+    /**
+     * Change default outlier ejection of the load balanced addresses. Address which fails with 5 consecutive
+     * transport failures is ejected for 30 seconds by default.
+     * @param consecutiveFailures Number of consecutive transport failures which ejects the address, 0 disables
+     *                            ejection.
+     * @param ejectionTime Base ejection time in milliseconds.
+     * @return ClientBuilder instance.
+     */
+    public ClientBuilder<T> outlierEjection(int consecutiveFailures, int ejectionTime) {
+        checkArgument(consecutiveFailures >= 0, "Consecutive failures is negative");
+        checkArgument(ejectionTime > 0, "Ejection time is not positive");
+        this.outlierEjectionFailures = consecutiveFailures;
+        this.outlierEjectionTime = ejectionTime;
+        return this;
+    }
+
     /**
      * Add client side JAX-WS handlers.
      * @param handlers JAX-WS handlers.
@@ -0,0 +1,252 @@
+package com.roskart.dropwizard.jaxws;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.io.CountingInputStream;
+import com.google.common.io.CountingOutputStream;
+import org.apache.cxf.interceptor.Fault;
+import org.apache.cxf.interceptor.Interceptor;
+import org.apache.cxf.interceptor.MessageSenderInterceptor;
+import org.apache.cxf.message.Exchange;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.phase.AbstractPhaseInterceptor;
+import org.apache.cxf.phase.Phase;
+import org.apache.cxf.service.model.BindingOperationInfo;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Per-operation metrics of a JAX-WS client, recorded by client side CXF interceptors. For each operation of the
+ * service interface, following metrics are registered under ServiceInterface.operation.client:
+ * <ul>
+ *     <li>latency timer, which measures the complete call, including marshalling and unmarshalling,</li>
+ *     <li>in-flight counter of calls waiting for the response,</li>
+ *     <li>request-bytes and response-bytes histograms of message sizes on the wire,</li>
+ *     <li>errors.ExceptionType meters for SOAP faults and transport failures.</li>
+ * </ul>
+ * Calls made with asynchronous client methods are measured until the response is processed. Transport failures of
+ * asynchronous calls are not reported to interceptors, so they are not recorded.
+ * @see com.roskart.dropwizard.jaxws.ClientBuilder#instrumented()
+ */
+public class ClientMetrics {
+
+    /**
+     * Metrics of a single client operation.
+     */
+    public static class OperationMetrics {
+        private final MetricRegistry metricRegistry;
+        private final String baseName;
+        private final Timer latency;
+        private final Counter inFlight;
+        private final Histogram requestBytes;
+        private final Histogram responseBytes;
+        OperationMetrics(MetricRegistry metricRegistry, String baseName) {
+            this.metricRegistry = metricRegistry;
+            this.baseName = baseName;
+            this.latency = metricRegistry.timer(MetricRegistry.name(baseName, "latency"));
+            this.inFlight = metricRegistry.counter(MetricRegistry.name(baseName, "in-flight"));
+            this.requestBytes = metricRegistry.histogram(MetricRegistry.name(baseName, "request-bytes"));
+            this.responseBytes = metricRegistry.histogram(MetricRegistry.name(baseName, "response-bytes"));
+        }
+        public Timer getLatency() {
+            return latency;
+        }
+        public Counter getInFlight() {
+            return inFlight;
+        }
+        public Histogram getRequestBytes() {
+            return requestBytes;
+        }
+        public Histogram getResponseBytes() {
+            return responseBytes;
+        }
+        void markError(Throwable t) {
+            if (t instanceof Fault && t.getCause() != null) {
+                t = t.getCause();
+            }
+            metricRegistry.meter(MetricRegistry.name(baseName, "errors", t.getClass().getSimpleName())).mark();
+        }
+    }
+
+    /**
+     * Measured call, stored in the exchange while the call is in progress.
+     */
+    private static class Call {
+        private final OperationMetrics metrics;
+        private final Timer.Context context;
+        private final AtomicBoolean completed = new AtomicBoolean();
+        private CountingOutputStream request;
+        private CountingInputStream response;
+        Call(OperationMetrics metrics) {
+            this.metrics = metrics;
+            this.context = metrics.getLatency().time();
+            metrics.getInFlight().inc();
+        }
+        void complete(Throwable failure) {
+            if (!completed.compareAndSet(false, true)) {
+                return;
+            }
+            context.stop();
+            metrics.getInFlight().dec();
+            if (request != null) {
+                metrics.getRequestBytes().update(request.getCount());
+            }
+            if (response != null) {
+                metrics.getResponseBytes().update(response.getCount());
+            }
+            if (failure != null) {
+                metrics.markError(failure);
+            }
+        }
+    }
+
+    private final MetricRegistry metricRegistry;
+    private final Class<?> serviceClass;
+    private final ConcurrentMap<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+
+    public ClientMetrics(MetricRegistry metricRegistry, Class<?> serviceClass) {
+        this.metricRegistry = metricRegistry;
+        this.serviceClass = serviceClass;
+    }
+
+    public OperationMetrics getOperationMetrics(String operationName) {
+        return operations.computeIfAbsent(operationName, name ->
+                new OperationMetrics(metricRegistry, MetricRegistry.name(serviceClass, name, "client")));
+    }
+
+    public Interceptor<Message> getOutInterceptor() {
+        return new StartInterceptor();
+    }
+
+    public Interceptor<Message> getOutStreamInterceptor() {
+        return new RequestStreamInterceptor();
+    }
+
+    public Interceptor<Message> getOutEndingInterceptor() {
+        return new OneWayEndingInterceptor();
+    }
+
+    public Interceptor<Message> getInStreamInterceptor() {
+        return new ResponseStreamInterceptor();
+    }
+
+    public Interceptor<Message> getInInterceptor() {
+        return new ResponseInterceptor(false);
+    }
+
+    public Interceptor<Message> getInFaultInterceptor() {
+        return new ResponseInterceptor(true);
+    }
+
+    private static Call getCall(Message message) {
+        Exchange exchange = message.getExchange();
+        return exchange != null ? exchange.get(Call.class) : null;
+    }
+
+    /**
+     * Starts measuring the call. Records the failure when out chain is unwound, i.e. on connection failure or
+     * receive timeout.
+     */
+    private class StartInterceptor extends AbstractPhaseInterceptor<Message> {
+        StartInterceptor() {
+            super(Phase.SETUP);
+        }
+        @Override
+        public void handleMessage(Message message) throws Fault {
+            Exchange exchange = message.getExchange();
+            BindingOperationInfo boi = exchange.getBindingOperationInfo();
+            String operationName = boi != null ? boi.getName().getLocalPart() : "unknown";
+            exchange.put(Call.class, new Call(getOperationMetrics(operationName)));
+        }
+        @Override
+        public void handleFault(Message message) {
+            Call call = getCall(message);
+            if (call != null) {
+                Exception e = message.getContent(Exception.class);
+                call.complete(e != null ? e : new Fault(new IllegalStateException("Client call failed")));
+            }
+        }
+    }
+
+    /**
+     * Counts request bytes. Conduit output stream is set up by MessageSenderInterceptor.
+     */
+    private static class RequestStreamInterceptor extends AbstractPhaseInterceptor<Message> {
+        RequestStreamInterceptor() {
+            super(Phase.PREPARE_SEND);
+            addAfter(MessageSenderInterceptor.class.getName());
+        }
+        @Override
+        public void handleMessage(Message message) throws Fault {
+            Call call = getCall(message);
+            OutputStream os = message.getContent(OutputStream.class);
+            if (call != null && os != null) {
+                call.request = new CountingOutputStream(os);
+                message.setContent(OutputStream.class, call.request);
+            }
+        }
+    }
+
+    /**
+     * Completes one-way calls, which do not receive a response.
+     */
+    private static class OneWayEndingInterceptor extends AbstractPhaseInterceptor<Message> {
+        OneWayEndingInterceptor() {
+            super(Phase.SETUP_ENDING);
+        }
+        @Override
+        public void handleMessage(Message message) throws Fault {
+            Call call = getCall(message);
+            if (call != null && message.getExchange().isOneWay()) {
+                call.complete(null);
+            }
+        }
+    }
+
+    /**
+     * Counts response bytes.
+     */
+    private static class ResponseStreamInterceptor extends AbstractPhaseInterceptor<Message> {
+        ResponseStreamInterceptor() {
+            super(Phase.RECEIVE);
+        }
+        @Override
+        public void handleMessage(Message message) throws Fault {
+            Call call = getCall(message);
+            InputStream is = message.getContent(InputStream.class);
+            if (call != null && is != null && call.response == null) {
+                call.response = new CountingInputStream(is);
+                message.setContent(InputStream.class, call.response);
+            }
+        }
+    }
+
+    /**
+     * Completes the call when response or fault response was processed.
+     */
+    private static class ResponseInterceptor extends AbstractPhaseInterceptor<Message> {
+        private final boolean fault;
+        ResponseInterceptor(boolean fault) {
+            super(Phase.POST_INVOKE);
+            this.fault = fault;
+        }
+        @Override
+        public void handleMessage(Message message) throws Fault {
+            Call call = getCall(message);
+            if (call == null) {
+                return;
+            }
+            Exception e = message.getContent(Exception.class);
+            if (e == null && fault) {
+                e = new Fault(new IllegalStateException("Fault response"));
+            }
+            call.complete(e);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.roskart.dropwizard.jaxws;
+
+import com.codahale.metrics.Timer;
+
+import javax.xml.ws.BindingProvider;
+import javax.xml.ws.WebServiceException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Bounded pool of JAX-WS client proxies. CXF client proxy shares its request context between threads, so a proxy
+ * which is configured per request (i.e. request context properties or headers) can not be used concurrently. Pool
+ * hands out each proxy to a single thread at a time. Proxies are created on demand, up to the pool size, and are
+ * reused afterwards, so that proxy construction is not paid on every call. Request context of the proxy is restored
+ * to its initial properties when the proxy is returned to the pool, so that properties set by one call do not leak
+ * into the following calls.
+ * <p>
+ * Time spent waiting for a proxy is measured. When no proxy becomes available within the max wait time,
+ * WebServiceException is thrown.
+ * @see com.roskart.dropwizard.jaxws.JAXWSEnvironment#getClientPool(ClientBuilder)
+ */
+public class ClientPool<T> {
+
+    /**
+     * Call performed with a pooled client proxy.
+     */
+    public interface Call<T, R, E extends Exception> {
+        R call(T client) throws E;
+    }
+
+    private final Supplier<T> proxyFactory;
+    private final int size;
+    private final long maxWait;
+    private final Timer waitTimer;
+    private final Semaphore permits;
+    private final ConcurrentLinkedQueue<T> idle = new ConcurrentLinkedQueue<>();
+    private final Map<T, Map<String, Object>> initialRequestContexts =
+            Collections.synchronizedMap(new IdentityHashMap<>());
+
+    /**
+     * @param proxyFactory Creates client proxies.
+     * @param size Maximum number of client proxies.
+     * @param maxWait Maximum time to wait for a client proxy in milliseconds.
+     * @param waitTimer Measures time spent waiting for a client proxy.
+     */
+    public ClientPool(Supplier<T> proxyFactory, int size, long maxWait, Timer waitTimer) {
+        this.proxyFactory = proxyFactory;
+        this.size = size;
+        this.maxWait = maxWait;
+        this.waitTimer = waitTimer;
+        this.permits = new Semaphore(size, true);
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the number of client proxies which are currently not in use.
+     */
+    public int getAvailable() {
+        return permits.availablePermits();
+    }
+
+    /**
+     * Performs the call with a client proxy borrowed from the pool and returns the proxy to the pool afterwards.
+     * @param call Call to perform.
+     * @return Call result.
+     */
+    public <R, E extends Exception> R execute(Call<T, R, E> call) throws E {
+        T client = this.borrow();
+        try {
+            return call.call(client);
+        }
+        finally {
+            this.release(client);
+        }
+    }
+
+    /**
+     * Borrows client proxy from the pool. Borrowed proxy has to be returned to the pool with release.
+     * @return Client proxy.
+     */
+    public T borrow() {
+        Timer.Context context = waitTimer.time();
+        try {
+            if (!permits.tryAcquire(maxWait, TimeUnit.MILLISECONDS)) {
+                throw new WebServiceException("No client available within " + maxWait + " ms");
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WebServiceException("Interrupted while waiting for client", e);
+        }
+        finally {
+            context.stop();
+        }
+        T client = idle.poll();
+        if (client == null) {
+            try {
+                client = proxyFactory.get();
+            }
+            catch (RuntimeException e) {
+                permits.release();
+                throw e;
+            }
+            if (client instanceof BindingProvider) {
+                initialRequestContexts.put(client, new HashMap<>(((BindingProvider)client).getRequestContext()));
+            }
+        }
+        return client;
+    }
+
+    /**
+     * Returns borrowed client proxy to the pool. Request context of the proxy is restored to its initial properties.
+     * @param client Client proxy.
+     */
+    public void release(T client) {
+        try {
+            this.restoreRequestContext(client);
+        }
+        finally {
+            idle.offer(client);
+            permits.release();
+        }
+    }
+
+    private void restoreRequestContext(T client) {
+        Map<String, Object> initial = initialRequestContexts.get(client);
+        if (initial == null) {
+            return;
+        }
+        Map<String, Object> requestContext = ((BindingProvider)client).getRequestContext();
+        for (String key : new ArrayList<>(requestContext.keySet())) {
+            if (!initial.containsKey(key)) {
+                requestContext.remove(key);
+            }
+        }
+        requestContext.putAll(initial);
+    }
+}
@@ -0,0 +1,65 @@
+package com.roskart.dropwizard.jaxws;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableSet;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Client retry settings. Idempotent operations which fail with transport failure (i.e. connection failure or receive
+ * timeout) are retried with jittered exponential backoff. SOAP faults are not retried, because the service responded.
+ * Following meters are registered for each operation under ServiceInterface.operation.client: retries and
+ * retries-exhausted.
+ * @see com.roskart.dropwizard.jaxws.ClientBuilder#retry(int, int)
+ */
+public class ClientRetryPolicy {
+
+    private final int maxAttempts;
+    private final long backoff;
+    private final Set<String> idempotentOperations;
+    private final MetricRegistry metricRegistry;
+    private final Class<?> serviceClass;
+    private final ConcurrentMap<String, Meter> meters = new ConcurrentHashMap<>();
+
+    /**
+     * @param maxAttempts Maximum number of attempts, including the first one.
+     * @param backoff Backoff before the first retry in milliseconds.
+     * @param idempotentOperations Names of operations which can be retried.
+     * @param metricRegistry Metric registry or null.
+     * @param serviceClass Service interface class.
+     */
+    public ClientRetryPolicy(int maxAttempts, long backoff, Set<String> idempotentOperations,
+                             MetricRegistry metricRegistry, Class<?> serviceClass) {
+        this.maxAttempts = maxAttempts;
+        this.backoff = backoff;
+        this.idempotentOperations = ImmutableSet.copyOf(idempotentOperations);
+        this.metricRegistry = metricRegistry;
+        this.serviceClass = serviceClass;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public boolean isRetried(String operationName) {
+        return idempotentOperations.contains(operationName);
+    }
+
+    /**
+     * Jittered exponential backoff in milliseconds before the retry of the failed attempt. Backoff is doubled for
+     * each following retry and randomized between half and full backoff.
+     */
+    public long backoff(int attempt) {
+        long exponential = backoff << Math.min(attempt - 1, 20);
+        return exponential / 2 + ThreadLocalRandom.current().nextLong(exponential / 2 + 1);
+    }
+
+    public Meter meter(String operationName, String name) {
+        String metricName = MetricRegistry.name(serviceClass, operationName, "client", name);
+        return meters.computeIfAbsent(metricName, n -> metricRegistry != null ? metricRegistry.meter(n) : new Meter());
+    }
+}
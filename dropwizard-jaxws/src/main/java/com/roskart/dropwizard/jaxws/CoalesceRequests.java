@@ -0,0 +1,35 @@
+package com.roskart.dropwizard.jaxws;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * When annotating a service operation method, concurrent invocations of the operation with equal parameters are
+ * coalesced: the first invocation executes the service method and all others wait for and receive its result or
+ * fault. Parameters are compared by value, the same way as for @CacheResult.
+ * Operations with Holder or AsyncHandler parameters and operations using @UseAsyncMethod are not coalesced.
+ * <p>
+ * Invocations are coalesced only with invocations of the same authenticated principal. Shared result objects must not
+ * be modified by service, JAX-WS handlers or CXF interceptors.
+ * @see com.roskart.dropwizard.jaxws.CoalescingInvoker
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface CoalesceRequests {
+
+    /**
+     * Maximum time coalesced invocation waits for the result of the executing invocation. When exceeded, coalesced
+     * invocation fails. Timeout must be positive. Wait is further limited by the deadline sent by the caller.
+     */
+    long timeout() default 30000;
+
+    /**
+     * Time unit of timeout.
+     */
+    TimeUnit timeoutUnit() default TimeUnit.MILLISECONDS;
+}
@@ -0,0 +1,107 @@
+package com.roskart.dropwizard.jaxws;
+
+import com.codahale.metrics.Meter;
+import org.apache.cxf.message.Exchange;
+import org.apache.cxf.service.invoker.Invoker;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Wraps underlying invoker and coalesces concurrent invocations of service methods annotated with @CoalesceRequests.
+ * Only the first of the concurrent invocations with equal parameters invokes the underlying invoker, others share
+ * its result. Invocations are coalesced per authenticated principal, see AbstractInvoker.getResultScope. Waiting
+ * invocations fail when the result is not available within the coalescing timeout or the deadline sent by the caller.
+ */
+public class CoalescingInvoker extends AbstractInvoker {
+
+    /**
+     * In-flight invocations of a single service operation.
+     */
+    public static class RequestCoalescer {
+        private final ConcurrentHashMap<ParameterKey, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+        private final long timeoutNanos;
+        private final Meter coalesced;
+        public RequestCoalescer(long timeout, TimeUnit timeoutUnit, Meter coalesced) {
+            this.timeoutNanos = timeoutUnit.toNanos(timeout);
+            this.coalesced = coalesced;
+        }
+        public long getTimeoutNanos() {
+            return timeoutNanos;
+        }
+        public Meter getCoalesced() {
+            return coalesced;
+        }
+        public int getInFlight() {
+            return inFlight.size();
+        }
+    }
+
+    public CoalescingInvoker(Invoker underlying) {
+        super(underlying);
+    }
+
+    @Override
+    public Object invoke(Exchange exchange, Object o) {
+
+        InvocationPlan plan = this.getInvocationPlan(exchange);
+        RequestCoalescer coalescer = plan.getRequestCoalescer();
+
+        if (coalescer == null || plan.isAsync()) {
+            return underlying.invoke(exchange, o);
+        }
+
+        ParameterKey key = ParameterKey.of(o, this.getResultScope(exchange));
+        if (key == null) {
+            // parameters can not be compared by value
+            return underlying.invoke(exchange, o);
+        }
+
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> executing = coalescer.inFlight.putIfAbsent(key, future);
+
+        if (executing != null) {
+            coalescer.getCoalesced().mark();
+            return copyOf(await(executing, coalescer.getTimeoutNanos()));
+        }
+
+        try {
+            Object result = underlying.invoke(exchange, o);
+            coalescer.inFlight.remove(key, future);
+            future.complete(copyOf(result));
+            return result;
+        }
+        catch (Throwable e) {
+            coalescer.inFlight.remove(key, future);
+            future.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private Object await(CompletableFuture<Object> executing, long timeoutNanos) {
+        Deadline deadline = Deadline.current();
+        if (deadline != null) {
+            timeoutNanos = Math.min(timeoutNanos, TimeUnit.MILLISECONDS.toNanos(deadline.remainingMillis()));
+        }
+        try {
+            return executing.get(timeoutNanos, TimeUnit.NANOSECONDS);
+        }
+        catch (ExecutionException e) {
+            // fault of the executing invocation
+            if (e.getCause() instanceof Exception) {
+                this.<RuntimeException>rethrow((Exception)e.getCause()); // unchecked rethrow
+            }
+            throw (Error)e.getCause();
+        }
+        catch (TimeoutException e) {
+            throw new RuntimeException("Timed out waiting for result of coalesced invocation", e);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for result of coalesced invocation", e);
+        }
+    }
+}
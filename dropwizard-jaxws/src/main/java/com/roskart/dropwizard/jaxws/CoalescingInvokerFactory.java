@@ -0,0 +1,86 @@
+package com.roskart.dropwizard.jaxws;
+
+import com.codahale.metrics.MetricRegistry;
+import org.apache.cxf.annotations.UseAsyncMethod;
+import org.apache.cxf.service.invoker.Invoker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Provides factory method for creating CoalescingInvoker and request coalescers of service methods annotated
+ * with @CoalesceRequests.
+ */
+public class CoalescingInvokerFactory {
+
+    private static Logger log = LoggerFactory.getLogger(CoalescingInvokerFactory.class);
+
+    private final MetricRegistry metricRegistry;
+
+    /**
+     *
+     * @param metricRegistry Metric registry for coalesced invocations meters.
+     */
+    public CoalescingInvokerFactory(MetricRegistry metricRegistry) {
+        this.metricRegistry = metricRegistry;
+    }
+
+    /**
+     * Creates request coalescer for service method annotated with @CoalesceRequests. Returned coalescer is stored in
+     * the operation's invocation plan.
+     * @throws IllegalArgumentException when coalescing timeout is not positive.
+     * @throws IllegalStateException when in-flight gauge of the method is already registered by another endpoint.
+     * @return Request coalescer or null when method invocations are not coalesced.
+     */
+    public CoalescingInvoker.RequestCoalescer createRequestCoalescer(Method m) {
+
+        CoalesceRequests annotation = m.getAnnotation(CoalesceRequests.class);
+        if (annotation == null) {
+            return null;
+        }
+
+        if (!ParameterKey.isSupported(m)) {
+            log.warn("Invocations of " + m.getDeclaringClass().getName() + "." + m.getName() +
+                    " are not coalesced, because method has Holder or AsyncHandler parameter.");
+            return null;
+        }
+
+        if (m.isAnnotationPresent(UseAsyncMethod.class)) {
+            // suspended invocation returns no result, which could be shared
+            log.warn("Invocations of " + m.getDeclaringClass().getName() + "." + m.getName() +
+                    " are not coalesced, because method is annotated with @UseAsyncMethod.");
+            return null;
+        }
+
+        checkArgument(annotation.timeout() > 0, "Coalescing timeout of %s.%s is not positive",
+                m.getDeclaringClass().getName(), m.getName());
+
+        final CoalescingInvoker.RequestCoalescer coalescer = new CoalescingInvoker.RequestCoalescer(
+                annotation.timeout(), annotation.timeoutUnit(),
+                metricRegistry.meter(MetricRegistry.name(m.getDeclaringClass(), m.getName(), "coalesced")));
+
+        EndpointGauges.register(metricRegistry, m.getDeclaringClass(),
+                MetricRegistry.name(m.getDeclaringClass(), m.getName(), "coalescing-in-flight"),
+                coalescer::getInFlight);
+
+        return coalescer;
+    }
+
+    /**
+     * Factory method for creating CoalescingInvoker. Request coalescers are read from the operations' invocation
+     * plans, service is only scanned to find out whether any of its methods is annotated with @CoalesceRequests.
+     */
+    public Invoker create(Object service, Invoker rootInvoker) {
+
+        for (Method m : service.getClass().getMethods()) {
+            if (m.isAnnotationPresent(CoalesceRequests.class)) {
+                return new CoalescingInvoker(rootInvoker);
+            }
+        }
+
+        return rootInvoker;
+    }
+}
@@ -0,0 +1,41 @@
+package com.roskart.dropwizard.jaxws;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * When annotating a service operation method, number of concurrent invocations of the operation is limited.
+ * Invocations over the limit are rejected with SOAP fault. Annotation takes precedence over the endpoint wide limit
+ * set with EndpointBuilder.
+ * @see com.roskart.dropwizard.jaxws.ConcurrencyLimitingInvoker
+ * @see com.roskart.dropwizard.jaxws.EndpointBuilder#concurrencyLimit(int)
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface ConcurrencyLimit {
+
+    /**
+     * Maximum number of concurrent invocations. When limit is adaptive, this is the initial limit.
+     */
+    int value();
+
+    /**
+     * When true, limit is adjusted between minLimit and maxLimit based on observed operation latency.
+     * Limit is decreased when latency grows over its long term average and increased otherwise.
+     */
+    boolean adaptive() default false;
+
+    /**
+     * Lower bound of adaptive limit.
+     */
+    int minLimit() default 1;
+
+    /**
+     * Upper bound of adaptive limit.
+     */
+    int maxLimit() default 1000;
+}
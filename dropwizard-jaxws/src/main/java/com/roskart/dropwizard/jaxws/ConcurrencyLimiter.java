@@ -0,0 +1,68 @@
+package com.roskart.dropwizard.jaxws;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Limits number of concurrent invocations to a static limit. Subclasses may adjust the limit based on the latency
+ * samples of completed invocations.
+ */
+public class ConcurrencyLimiter {
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile int limit;
+
+    /**
+     * @param limit Maximum number of concurrent invocations.
+     */
+    public ConcurrencyLimiter(int limit) {
+        checkArgument(limit > 0, "Concurrency limit must be positive");
+        this.limit = limit;
+    }
+
+    /**
+     * Acquires permit for a single invocation.
+     * @return false when limit is reached and invocation must be rejected.
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Releases permit acquired by tryAcquire.
+     * @param latencyNanos Invocation latency.
+     */
+    public void release(long latencyNanos) {
+        int current = inFlight.getAndDecrement();
+        onSample(latencyNanos, current);
+    }
+
+    /**
+     * Invoked for each completed invocation.
+     * @param latencyNanos Invocation latency.
+     * @param inFlight Number of invocations in flight when invocation completed, including the invocation itself.
+     */
+    protected void onSample(long latencyNanos, int inFlight) {
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    protected void setLimit(int limit) {
+        this.limit = limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+}
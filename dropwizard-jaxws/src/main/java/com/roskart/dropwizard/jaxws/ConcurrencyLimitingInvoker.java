@@ -0,0 +1,115 @@
+package com.roskart.dropwizard.jaxws;
+
+import com.codahale.metrics.Meter;
+import org.apache.cxf.interceptor.Fault;
+import org.apache.cxf.message.Exchange;
+import org.apache.cxf.message.FaultMode;
+import org.apache.cxf.service.invoker.Invoker;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Wraps underlying invoker and limits number of concurrent invocations of service operations. Invocations over the
+ * limit are rejected immediately with SOAP fault, so a slow operation can not occupy all server threads.
+ * <p>
+ * Invocation of an operation using @UseAsyncMethod is suspended until the asynchronous response is ready, after which
+ * CXF invokes the invoker chain again. Permit is kept while the invocation is suspended, so the asynchronous work is
+ * limited and its latency is sampled, and the resumed invocation is not rejected. Permit of the invocation which is
+ * not resumed is released by the listener of the suspended request.
+ */
+public class ConcurrencyLimitingInvoker extends AbstractInvoker {
+
+    private static final String SUSPENDED_PERMIT = ConcurrencyLimitingInvoker.class.getName() + ".suspended";
+
+    /**
+     * Concurrency limiter of a single service operation.
+     */
+    public static class Bulkhead {
+        private final String operationName;
+        private final ConcurrencyLimiter limiter;
+        private final Meter rejections;
+        public Bulkhead(String operationName, ConcurrencyLimiter limiter, Meter rejections) {
+            this.operationName = operationName;
+            this.limiter = limiter;
+            this.rejections = rejections;
+        }
+        public String getOperationName() {
+            return operationName;
+        }
+        public ConcurrencyLimiter getLimiter() {
+            return limiter;
+        }
+        public Meter getRejections() {
+            return rejections;
+        }
+    }
+
+    /**
+     * Permit of the suspended invocation.
+     */
+    private static class SuspendedPermit {
+        private final long start;
+        SuspendedPermit(long start) {
+            this.start = start;
+        }
+    }
+
+    public ConcurrencyLimitingInvoker(Invoker underlying) {
+        super(underlying);
+    }
+
+    @Override
+    public Object invoke(Exchange exchange, Object o) {
+
+        InvocationPlan plan = this.getInvocationPlan(exchange);
+        Bulkhead bulkhead = plan.getBulkhead();
+
+        if (bulkhead == null) {
+            return underlying.invoke(exchange, o);
+        }
+
+        SuspendedPermit suspended = plan.isAsync() ? (SuspendedPermit)exchange.remove(SUSPENDED_PERMIT) : null;
+
+        final long start;
+        if (suspended != null) {
+            // invocation was resumed, permit was acquired before it was suspended
+            start = suspended.start;
+        }
+        else {
+            if (!bulkhead.getLimiter().tryAcquire()) {
+                bulkhead.getRejections().mark();
+                // Prevent CXF PhaseInterceptorChain to log complete stack trace
+                exchange.getInMessage().put(FaultMode.class, FaultMode.CHECKED_APPLICATION_FAULT);
+                throw new Fault(new RejectedExecutionException("Concurrency limit of " +
+                        bulkhead.getOperationName() + " (" + bulkhead.getLimiter().getLimit() + ") exceeded"));
+            }
+            start = System.nanoTime();
+        }
+
+        boolean suspending = false;
+        try {
+            Object result = underlying.invoke(exchange, o);
+            if (plan.isAsync() && this.isSuspended(exchange)) {
+                exchange.put(SUSPENDED_PERMIT, new SuspendedPermit(start));
+                this.whenAbandoned(exchange, () -> releaseAbandoned(exchange, bulkhead));
+                suspending = true;
+            }
+            return result;
+        }
+        finally {
+            if (!suspending) {
+                bulkhead.getLimiter().release(System.nanoTime() - start);
+            }
+        }
+    }
+
+    /**
+     * Releases permit of the suspended invocation, unless it was already resumed.
+     */
+    private void releaseAbandoned(Exchange exchange, Bulkhead bulkhead) {
+        SuspendedPermit suspended = (SuspendedPermit)exchange.remove(SUSPENDED_PERMIT);
+        if (suspended != null) {
+            bulkhead.getLimiter().release(System.nanoTime() - suspended.start);
+        }
+    }
+}
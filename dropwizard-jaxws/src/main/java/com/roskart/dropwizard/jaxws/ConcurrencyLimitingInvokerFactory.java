@@ -0,0 +1,83 @@
+package com.roskart.dropwizard.jaxws;
+
+import com.codahale.metrics.MetricRegistry;
+import org.apache.cxf.service.invoker.Invoker;
+
+import java.lang.reflect.Method;
+
+/**
+ * Provides factory method for creating ConcurrencyLimitingInvoker and concurrency limiters of service operations.
+ * Operations are limited when annotated with @ConcurrencyLimit or when endpoint wide limit is set
+ * with EndpointBuilder.
+ */
+public class ConcurrencyLimitingInvokerFactory {
+
+    private final MetricRegistry metricRegistry;
+
+    /**
+     *
+     * @param metricRegistry Metric registry for limit and in-flight gauges and rejections meter.
+     */
+    public ConcurrencyLimitingInvokerFactory(MetricRegistry metricRegistry) {
+        this.metricRegistry = metricRegistry;
+    }
+
+    /**
+     * Creates bulkhead for service operation. Each operation gets its own limiter, also when limit is set on the
+     * endpoint. Returned bulkhead is stored in the operation's invocation plan.
+     * @return Bulkhead or null when operation is not limited.
+     * @throws IllegalStateException when gauges of the operation are already registered by another endpoint.
+     */
+    public ConcurrencyLimitingInvoker.Bulkhead createBulkhead(Method m, EndpointBuilder endpointBuilder) {
+
+        ConcurrencyLimiter limiter;
+
+        ConcurrencyLimit annotation = m.getAnnotation(ConcurrencyLimit.class);
+        if (annotation != null) {
+            limiter = annotation.adaptive() ?
+                    new GradientConcurrencyLimiter(annotation.value(), annotation.minLimit(), annotation.maxLimit()) :
+                    new ConcurrencyLimiter(annotation.value());
+        }
+        else if (endpointBuilder.getConcurrencyLimit() > 0) {
+            limiter = endpointBuilder.isAdaptiveConcurrencyLimit() ?
+                    new GradientConcurrencyLimiter(endpointBuilder.getConcurrencyLimit(),
+                            endpointBuilder.getMinConcurrencyLimit(), endpointBuilder.getMaxConcurrencyLimit()) :
+                    new ConcurrencyLimiter(endpointBuilder.getConcurrencyLimit());
+        }
+        else {
+            return null;
+        }
+
+        final ConcurrencyLimiter registeredLimiter = limiter;
+        EndpointGauges.register(metricRegistry, m.getDeclaringClass(),
+                MetricRegistry.name(m.getDeclaringClass(), m.getName(), "concurrency-limit"),
+                registeredLimiter::getLimit);
+        EndpointGauges.register(metricRegistry, m.getDeclaringClass(),
+                MetricRegistry.name(m.getDeclaringClass(), m.getName(), "concurrency-in-flight"),
+                registeredLimiter::getInFlight);
+
+        return new ConcurrencyLimitingInvoker.Bulkhead(
+                m.getDeclaringClass().getSimpleName() + "." + m.getName(),
+                limiter,
+                metricRegistry.meter(MetricRegistry.name(m.getDeclaringClass(), m.getName(),
+                        "concurrency-rejections")));
+    }
+
+    /**
+     * Factory method for creating ConcurrencyLimitingInvoker. Limiters are read from the operations' invocation plans.
+     */
+    public Invoker create(Object service, Invoker rootInvoker, EndpointBuilder endpointBuilder) {
+
+        if (endpointBuilder.getConcurrencyLimit() > 0) {
+            return new ConcurrencyLimitingInvoker(rootInvoker);
+        }
+
+        for (Method m : service.getClass().getMethods()) {
+            if (m.isAnnotationPresent(ConcurrencyLimit.class)) {
+                return new ConcurrencyLimitingInvoker(rootInvoker);
+            }
+        }
+
+        return rootInvoker;
+    }
+}
@@ -0,0 +1,73 @@
+package com.roskart.dropwizard.jaxws;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Point in time after which the caller no longer waits for the result of the service operation. Deadline is
+ * propagated between JAX-WS clients and endpoints as remaining time in milliseconds in the X-Request-Timeout HTTP
+ * header, so clock differences between hosts do not matter. Propagation is enabled by ClientBuilder.deadlinePropagation
+ * and EndpointBuilder.honorRequestTimeout.
+ * <p>
+ * On the server side, deadline of the current request is available through JAX-WS WebServiceContext message context
+ * under DEADLINE_KEY and, while service operation is invoked, through Deadline.current(). Clients created by
+ * JAXWSEnvironment use the current deadline to shorten their receive timeout and propagate it further.
+ */
+public final class Deadline {
+
+    public static final String HEADER = "X-Request-Timeout";
+    public static final String DEADLINE_KEY = "dropwizard.jaxws.deadline";
+
+    private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+    private final long deadlineNanos;
+
+    private Deadline(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * Creates deadline which expires after the provided time.
+     * @param millis Time in milliseconds.
+     */
+    public static Deadline after(long millis) {
+        return new Deadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    /**
+     * Deadline of the service operation invoked by the current thread or null when caller did not send a deadline.
+     */
+    public static Deadline current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Binds deadline to the current thread.
+     * @return Previously bound deadline, which should be restored with another bind call.
+     */
+    static Deadline bind(Deadline deadline) {
+        Deadline previous = CURRENT.get();
+        if (deadline != null) {
+            CURRENT.set(deadline);
+        }
+        else {
+            CURRENT.remove();
+        }
+        return previous;
+    }
+
+    /**
+     * @return Remaining time in milliseconds, zero when deadline is exceeded.
+     */
+    public long remainingMillis() {
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime()));
+    }
+
+    public boolean isExpired() {
+        return deadlineNanos - System.nanoTime() <= 0;
+    }
+
+    @Override
+    public String toString() {
+        return "Deadline[remaining=" + remainingMillis() + "ms]";
+    }
+}
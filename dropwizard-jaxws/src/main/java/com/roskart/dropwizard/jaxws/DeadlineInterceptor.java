@@ -0,0 +1,60 @@
+package com.roskart.dropwizard.jaxws;
+
+import org.apache.cxf.helpers.CastUtils;
+import org.apache.cxf.interceptor.Fault;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.phase.AbstractPhaseInterceptor;
+import org.apache.cxf.phase.Phase;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A CXF interceptor that reads the deadline sent by the caller in the X-Request-Timeout HTTP header. Deadline is
+ * stored in the incoming message, where it is available to the service through JAX-WS WebServiceContext, and in
+ * message exchange, where it is read by DeadlineInvoker. Invalid and negative header values are ignored.
+ * Interceptor is configured only for endpoints which honor the request timeout.
+ * @see com.roskart.dropwizard.jaxws.Deadline
+ * @see com.roskart.dropwizard.jaxws.EndpointBuilder#honorRequestTimeout()
+ */
+public class DeadlineInterceptor extends AbstractPhaseInterceptor<Message> {
+
+    private static final Logger log = LoggerFactory.getLogger(DeadlineInterceptor.class);
+
+    public DeadlineInterceptor() {
+        super(Phase.RECEIVE);
+    }
+
+    @Override
+    public void handleMessage(final Message message) throws Fault {
+
+        Map<String, List<String>> headers = CastUtils.cast((Map<?, ?>)message.get(Message.PROTOCOL_HEADERS));
+        if (headers == null) {
+            return;
+        }
+
+        List<String> values = headers.get(Deadline.HEADER);
+        if (values == null || values.isEmpty()) {
+            return;
+        }
+
+        long timeout;
+        try {
+            timeout = Long.parseLong(values.get(0).trim());
+        }
+        catch (NumberFormatException e) {
+            log.debug("Invalid {} header value: {}", Deadline.HEADER, values.get(0));
+            return;
+        }
+        if (timeout < 0) {
+            log.debug("Negative {} header value: {}", Deadline.HEADER, values.get(0));
+            return;
+        }
+
+        Deadline deadline = Deadline.after(timeout);
+        message.put(Deadline.DEADLINE_KEY, deadline);
+        message.getExchange().put(Deadline.class, deadline);
+    }
+}
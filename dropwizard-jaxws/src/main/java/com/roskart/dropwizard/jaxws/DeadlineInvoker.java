@@ -0,0 +1,46 @@
+package com.roskart.dropwizard.jaxws;
+
+import org.apache.cxf.interceptor.Fault;
+import org.apache.cxf.message.Exchange;
+import org.apache.cxf.message.FaultMode;
+import org.apache.cxf.service.invoker.Invoker;
+
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Wraps underlying invoker and enforces deadline sent by the caller. Operation is not invoked when deadline is already
+ * exceeded, i.e. because request waited in the queue. Otherwise deadline is bound to the invoking thread, where it
+ * is available through Deadline.current(): UnitOfWorkInvoker uses it as query timeout and JAX-WS clients propagate
+ * it to the called services.
+ * @see com.roskart.dropwizard.jaxws.DeadlineInterceptor
+ */
+public class DeadlineInvoker extends AbstractInvoker {
+
+    public DeadlineInvoker(Invoker underlying) {
+        super(underlying);
+    }
+
+    @Override
+    public Object invoke(Exchange exchange, Object o) {
+
+        Deadline deadline = exchange.get(Deadline.class);
+
+        if (deadline == null) {
+            return underlying.invoke(exchange, o);
+        }
+
+        if (deadline.isExpired()) {
+            // Prevent CXF PhaseInterceptorChain to log complete stack trace
+            exchange.getInMessage().put(FaultMode.class, FaultMode.CHECKED_APPLICATION_FAULT);
+            throw new Fault(new TimeoutException("Deadline exceeded before operation was invoked"));
+        }
+
+        Deadline previous = Deadline.bind(deadline);
+        try {
+            return underlying.invoke(exchange, o);
+        }
+        finally {
+            Deadline.bind(previous);
+        }
+    }
+}
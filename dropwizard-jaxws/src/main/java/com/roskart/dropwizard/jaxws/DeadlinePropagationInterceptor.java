@@ -0,0 +1,62 @@
+package com.roskart.dropwizard.jaxws;
+
+import org.apache.cxf.helpers.CastUtils;
+import org.apache.cxf.interceptor.Fault;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.phase.AbstractPhaseInterceptor;
+import org.apache.cxf.phase.Phase;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A client side CXF interceptor that sends the time caller is willing to wait for the response in the
+ * X-Request-Timeout HTTP header. When client is invoked within a service operation which has a deadline, receive
+ * timeout of the call is shortened to the remaining time and call is not made at all when deadline is already
+ * exceeded.
+ * @see com.roskart.dropwizard.jaxws.Deadline
+ */
+public class DeadlinePropagationInterceptor extends AbstractPhaseInterceptor<Message> {
+
+    private final long receiveTimeout;
+
+    /**
+     * @param receiveTimeout Client receive timeout in milliseconds. Zero means no timeout.
+     */
+    public DeadlinePropagationInterceptor(long receiveTimeout) {
+        super(Phase.SETUP);
+        this.receiveTimeout = receiveTimeout;
+    }
+
+    @Override
+    public void handleMessage(final Message message) throws Fault {
+
+        long timeout = receiveTimeout;
+
+        Deadline deadline = Deadline.current();
+        if (deadline != null) {
+            if (deadline.isExpired()) {
+                throw new Fault(new TimeoutException("Deadline exceeded before the call"));
+            }
+            long remaining = deadline.remainingMillis();
+            if (timeout == 0 || remaining < timeout) {
+                timeout = Math.max(1, remaining);
+                message.put(Message.RECEIVE_TIMEOUT, timeout);
+            }
+        }
+
+        if (timeout == 0) {
+            return;
+        }
+
+        Map<String, List<String>> headers = CastUtils.cast((Map<?, ?>)message.get(Message.PROTOCOL_HEADERS));
+        if (headers == null) {
+            headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            message.put(Message.PROTOCOL_HEADERS, headers);
+        }
+        headers.put(Deadline.HEADER, Collections.singletonList(Long.toString(timeout)));
+    }
+}
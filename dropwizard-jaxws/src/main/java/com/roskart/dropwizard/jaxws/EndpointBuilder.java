@@ -4,7 +4,9 @@ import org.apache.cxf.interceptor.Interceptor;
 import org.apache.cxf.message.Message;
 import org.hibernate.SessionFactory;
 
+import java.util.Arrays;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
@@ -17,8 +19,18 @@ public class EndpointBuilder extends AbstractBuilder {
     private Object service;
     private String publishedEndpointUrl;
     SessionFactory sessionFactory;
+    boolean lazySessionsEnabled;
+    ReplicaRouter replicaRouter;
     BasicAuthentication authentication;
     Map<String, Object> properties;
+    int concurrencyLimit;
+    boolean adaptiveConcurrencyLimit;
+    int minConcurrencyLimit;
+    int maxConcurrencyLimit;
+    long maxQueueTime;
+    boolean virtualThreadsEnabled;
+    boolean requestTimeoutHonored;
+    ExecutorService executor;
 
     public String getPath() {
         return path;
@@ -36,6 +48,14 @@ public class EndpointBuilder extends AbstractBuilder {
         return sessionFactory;
     }
 
+    public boolean isLazySessionsEnabled() {
+        return lazySessionsEnabled;
+    }
+
+    public ReplicaRouter getReplicaRouter() {
+        return replicaRouter;
+    }
+
     public BasicAuthentication getAuthentication() {
         return authentication;
     }
@@ -44,6 +64,38 @@ public class EndpointBuilder extends AbstractBuilder {
         return properties;
     }
 
+    public int getConcurrencyLimit() {
+        return concurrencyLimit;
+    }
+
+    public boolean isAdaptiveConcurrencyLimit() {
+        return adaptiveConcurrencyLimit;
+    }
+
+    public int getMinConcurrencyLimit() {
+        return minConcurrencyLimit;
+    }
+
+    public int getMaxConcurrencyLimit() {
+        return maxConcurrencyLimit;
+    }
+
+    public long getMaxQueueTime() {
+        return maxQueueTime;
+    }
+
+    public boolean isVirtualThreadsEnabled() {
+        return virtualThreadsEnabled;
+    }
+
+    public boolean isRequestTimeoutHonored() {
+        return requestTimeoutHonored;
+    }
+
+    public ExecutorService getExecutor() {
+        return executor;
+    }
+
     /**
      * Create new EndpointBuilder. Endpoint will be published relative to the CXF servlet path.
      * @param path Relative endpoint path.
@@ -70,6 +122,32 @@ public class EndpointBuilder extends AbstractBuilder {
         return this;
     }
 
+    /**
+     * Open Hibernate session and begin the transaction of a unit of work only when the operation uses the current
+     * session. Operations which don't access the database don't acquire a JDBC connection. Bound session is a proxy,
+     * therefore it can not be cast to Hibernate implementation classes.
+     * <p>
+     * Parameters are validated inside the unit of work, therefore without lazy sessions the session is opened and the
+     * transaction started also for invocations which fail validation.
+     */
+    public EndpointBuilder lazySessions() {
+        this.lazySessionsEnabled = true;
+        return this;
+    }
+
+    /**
+     * Route read-only units of work to read replicas. Replica session is bound under the primary session factory,
+     * therefore DAOs created with the primary session factory use it without changes. Other units of work use the
+     * primary session factory.
+     * @param strategy Replica selection strategy.
+     * @param replicaSessionFactories Read replica session factories.
+     */
+    public EndpointBuilder readReplicas(ReplicaRouter.Strategy strategy, SessionFactory... replicaSessionFactories) {
+        checkArgument(replicaSessionFactories != null, "Replica session factories are null");
+        this.replicaRouter = new ReplicaRouter(strategy, Arrays.asList(replicaSessionFactories));
+        return this;
+    }
+
     /**
      * Publish JAX-WS protected endpoint using Dropwizard BasicAuthentication.
      * @param authentication BasicAuthentication implementation.
@@ -79,6 +157,81 @@ public class EndpointBuilder extends AbstractBuilder {
         return this;
     }
 
+    /**
+     * Limit number of concurrent invocations of each service operation. Invocations over the limit are rejected
+     * with SOAP fault. Operations annotated with @ConcurrencyLimit use limit from the annotation.
+     * @param limit Maximum number of concurrent invocations of a single operation.
+     */
+    public EndpointBuilder concurrencyLimit(int limit) {
+        checkArgument(limit > 0, "Concurrency limit must be positive");
+        this.concurrencyLimit = limit;
+        this.adaptiveConcurrencyLimit = false;
+        return this;
+    }
+
+    /**
+     * Limit number of concurrent invocations of each service operation using adaptive limit, which is adjusted
+     * based on observed operation latency. Operations annotated with @ConcurrencyLimit use limit from the annotation.
+     * @param initialLimit Initial limit.
+     * @param minLimit Lower bound of the limit.
+     * @param maxLimit Upper bound of the limit.
+     */
+    public EndpointBuilder adaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit) {
+        checkArgument(minLimit > 0 && minLimit <= initialLimit && initialLimit <= maxLimit,
+                "Invalid adaptive concurrency limit bounds");
+        this.concurrencyLimit = initialLimit;
+        this.adaptiveConcurrencyLimit = true;
+        this.minConcurrencyLimit = minLimit;
+        this.maxConcurrencyLimit = maxLimit;
+        return this;
+    }
+
+    /**
+     * Drop requests which waited in the server queue longer than maxQueueTime before they are unmarshalled. Dropped
+     * requests get HTTP 503 response.
+     * @param maxQueueTime Maximum queue time in milliseconds.
+     */
+    public EndpointBuilder maxQueueTime(long maxQueueTime) {
+        checkArgument(maxQueueTime > 0, "Max queue time must be positive");
+        this.maxQueueTime = maxQueueTime;
+        return this;
+    }
+
+    /**
+     * Honor deadline sent by the caller in the X-Request-Timeout HTTP header. Operation is not invoked when deadline is
+     * exceeded and deadline is available through Deadline.current(), where it shortens unit of work query timeouts and
+     * receive timeouts of the JAX-WS clients. Header is sent by any caller, therefore enable it only for endpoints
+     * which are called by trusted clients.
+     */
+    public EndpointBuilder honorRequestTimeout() {
+        this.requestTimeoutHonored = true;
+        return this;
+    }
+
+    /**
+     * Invoke service operations on virtual threads, one per request. Server thread is released while the operation
+     * runs. Requires Java 21 or newer and servlet with async support, which is set up by JAXWSBundle. Virtual thread
+     * executor is shared by all endpoints and shut down by JAXWSBundle when the server stops.
+     */
+    public EndpointBuilder virtualThreads() {
+        this.virtualThreadsEnabled = true;
+        return this;
+    }
+
+    /**
+     * Invoke service operations on the provided executor. Server thread is released while the operation runs.
+     * Executor should be bounded (i.e. built with environment.lifecycle().executorService()), so that slow endpoint
+     * can not exhaust server threads. Requests rejected by the executor fail immediately, therefore executor must not
+     * run rejected tasks on the calling thread. Executor queue size, active threads and rejections are reported as
+     * metrics of the service class.
+     * @param executor Endpoint executor, managed by the application.
+     */
+    public EndpointBuilder executor(ExecutorService executor) {
+        checkArgument(executor != null, "Executor is null");
+        this.executor = executor;
+        return this;
+    }
+
     @Override
     @SafeVarargs
     @SuppressWarnings("unchecked")
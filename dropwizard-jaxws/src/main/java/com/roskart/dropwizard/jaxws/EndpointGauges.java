@@ -0,0 +1,29 @@
+package com.roskart.dropwizard.jaxws;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+
+/**
+ * Registers gauges of published endpoints.
+ */
+final class EndpointGauges {
+
+    private EndpointGauges() {
+    }
+
+    /**
+     * Registers endpoint gauge. Gauge of another endpoint with the same name is not replaced, because the other
+     * endpoint would silently lose its gauge.
+     * @param serviceClass Service class of the endpoint which owns the gauge.
+     * @throws IllegalStateException when gauge with the same name is already registered.
+     */
+    static void register(MetricRegistry metricRegistry, Class<?> serviceClass, String name, Gauge<Integer> gauge) {
+        try {
+            metricRegistry.register(name, gauge);
+        }
+        catch (IllegalArgumentException e) {
+            throw new IllegalStateException("Gauge " + name + " is already registered by another endpoint of " +
+                    serviceClass.getName(), e);
+        }
+    }
+}
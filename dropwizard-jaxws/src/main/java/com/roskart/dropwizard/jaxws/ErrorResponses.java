@@ -0,0 +1,85 @@
+package com.roskart.dropwizard.jaxws;
+
+import org.apache.cxf.endpoint.Endpoint;
+import org.apache.cxf.message.Exchange;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.transport.Conduit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sends HTTP error responses without a body from server side CXF in interceptors. Interceptor chain of the incoming
+ * message is aborted, so the request is not processed any further.
+ */
+final class ErrorResponses {
+
+    private static final Logger log = LoggerFactory.getLogger(ErrorResponses.class);
+
+    private ErrorResponses() {
+    }
+
+    /**
+     * Sends error response.
+     * @param message Incoming message.
+     * @param responseCode HTTP response code.
+     */
+    static void send(Message message, int responseCode) {
+        send(message, responseCode, Collections.<String, List<String>>emptyMap());
+    }
+
+    /**
+     * Sends error response with additional headers.
+     * @param message Incoming message.
+     * @param responseCode HTTP response code.
+     * @param headers Additional response headers.
+     */
+    static void send(Message message, int responseCode, Map<String, List<String>> headers) {
+        Message outMessage = getOutMessage(message);
+        outMessage.put(Message.RESPONSE_CODE, responseCode);
+        // Set the response headers
+        @SuppressWarnings("unchecked")
+        Map<String, List<String>> responseHeaders = (Map)message.get(Message.PROTOCOL_HEADERS);
+        if (responseHeaders != null) {
+            responseHeaders.putAll(headers);
+            responseHeaders.put("Content-length", Collections.singletonList("0"));
+        }
+        message.getInterceptorChain().abort();
+        try {
+            getConduit(message).prepare(outMessage);
+            close(outMessage);
+        } catch (IOException e) {
+            log.warn(e.getMessage(), e);
+        }
+    }
+
+    private static Message getOutMessage(Message inMessage) {
+        Exchange exchange = inMessage.getExchange();
+        Message outMessage = exchange.getOutMessage();
+        if (outMessage == null) {
+            Endpoint endpoint = exchange.get(Endpoint.class);
+            outMessage = endpoint.getBinding().createMessage();
+            exchange.setOutMessage(outMessage);
+        }
+        outMessage.putAll(inMessage);
+        return outMessage;
+    }
+
+    private static Conduit getConduit(Message inMessage) throws IOException {
+        Exchange exchange = inMessage.getExchange();
+        Conduit conduit = exchange.getDestination().getBackChannel(inMessage);
+        exchange.setConduit(conduit);
+        return conduit;
+    }
+
+    private static void close(Message outMessage) throws IOException {
+        OutputStream os = outMessage.getContent(OutputStream.class);
+        os.flush();
+        os.close();
+    }
+}
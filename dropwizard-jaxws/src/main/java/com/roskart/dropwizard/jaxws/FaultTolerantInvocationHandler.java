@@ -0,0 +1,135 @@
+package com.roskart.dropwizard.jaxws;
+
+import com.codahale.metrics.Meter;
+
+import javax.xml.ws.BindingProvider;
+import javax.xml.ws.WebServiceException;
+import javax.xml.ws.soap.SOAPFaultException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/**
+ * Client proxy with circuit breaker and retries. Transport failures (WebServiceException other than SOAP fault) are
+ * recorded as circuit breaker failures, all other outcomes as successes. When the circuit is open, calls fail fast
+ * with CircuitBreakerOpenException. Idempotent operations are retried on transport failures, while the circuit is
+ * not open and the caller's deadline does not expire during the backoff. When the circuit opens before the retry,
+ * the last transport failure is thrown and retries are counted as exhausted.
+ * @see com.roskart.dropwizard.jaxws.CircuitBreaker
+ * @see com.roskart.dropwizard.jaxws.ClientRetryPolicy
+ */
+public class FaultTolerantInvocationHandler implements InvocationHandler {
+
+    private final Class<?> serviceClass;
+    private final Object underlying;
+    private final CircuitBreaker circuitBreaker;
+    private final Meter rejected;
+    private final ClientRetryPolicy retryPolicy;
+
+    private FaultTolerantInvocationHandler(Class<?> serviceClass, Object underlying, CircuitBreaker circuitBreaker,
+                                           Meter rejected, ClientRetryPolicy retryPolicy) {
+        this.serviceClass = serviceClass;
+        this.underlying = underlying;
+        this.circuitBreaker = circuitBreaker;
+        this.rejected = rejected;
+        this.retryPolicy = retryPolicy;
+    }
+
+    /**
+     * Creates fault tolerant client proxy.
+     * @param serviceClass Service interface class.
+     * @param proxy Underlying client proxy.
+     * @param circuitBreaker Circuit breaker or null.
+     * @param rejected Meter of calls rejected by open circuit breaker.
+     * @param retryPolicy Retry policy or null.
+     */
+    public static <T> T create(Class<T> serviceClass, T proxy, CircuitBreaker circuitBreaker, Meter rejected,
+                               ClientRetryPolicy retryPolicy) {
+        return serviceClass.cast(Proxy.newProxyInstance(serviceClass.getClassLoader(),
+                new Class<?>[]{ serviceClass, BindingProvider.class },
+                new FaultTolerantInvocationHandler(serviceClass, proxy, circuitBreaker, rejected, retryPolicy)));
+    }
+
+    /**
+     * True when the exception is a transport failure.
+     */
+    static boolean isFailure(Throwable t) {
+        return t instanceof WebServiceException && !(t instanceof SOAPFaultException);
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+
+        if (method.getDeclaringClass() == Object.class || method.getDeclaringClass() == BindingProvider.class) {
+            try {
+                return method.invoke(underlying, args);
+            }
+            catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        String operationName = HedgingPolicy.operationName(method);
+        int maxAttempts = retryPolicy != null && retryPolicy.isRetried(operationName) ?
+                retryPolicy.getMaxAttempts() : 1;
+
+        Throwable cause = null;
+        for (int attempt = 1; ; attempt++) {
+
+            CircuitBreaker.Permit permit = circuitBreaker != null ? circuitBreaker.tryAcquire() : null;
+            if (circuitBreaker != null && permit == null) {
+                if (cause != null) {
+                    // circuit was opened by the previous attempts, caller gets the actual failure
+                    retryPolicy.meter(operationName, "retries-exhausted").mark();
+                    throw cause;
+                }
+                rejected.mark();
+                throw new CircuitBreakerOpenException("Circuit breaker of " + serviceClass.getName() + " is open");
+            }
+
+            try {
+                Object result = method.invoke(underlying, args);
+                if (circuitBreaker != null) {
+                    circuitBreaker.onSuccess(permit);
+                }
+                return result;
+            }
+            catch (InvocationTargetException e) {
+                cause = e.getCause();
+            }
+
+            boolean failure = isFailure(cause);
+            if (circuitBreaker != null) {
+                if (failure) {
+                    circuitBreaker.onFailure(permit);
+                }
+                else {
+                    circuitBreaker.onSuccess(permit);
+                }
+            }
+
+            if (!failure || maxAttempts == 1) {
+                throw cause;
+            }
+            if (attempt >= maxAttempts) {
+                retryPolicy.meter(operationName, "retries-exhausted").mark();
+                throw cause;
+            }
+
+            long backoff = retryPolicy.backoff(attempt);
+            Deadline deadline = Deadline.current();
+            if (deadline != null && deadline.remainingMillis() <= backoff) {
+                throw cause;
+            }
+            retryPolicy.meter(operationName, "retries").mark();
+            try {
+                Thread.sleep(backoff);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw cause;
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.roskart.dropwizard.jaxws;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Adaptive concurrency limiter. Limit is adjusted by the gradient between long term and short term average latency:
+ * when short term latency grows (i.e. requests start to queue in the database), limit is decreased, otherwise limit
+ * grows by square root of the current limit. Based on the gradient algorithm of Netflix concurrency-limits library.
+ */
+public class GradientConcurrencyLimiter extends ConcurrencyLimiter {
+
+    private static final double SHORT_WINDOW = 10;
+    private static final double LONG_WINDOW = 600;
+    private static final double TOLERANCE = 1.5;
+    private static final double SMOOTHING = 0.2;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private double estimatedLimit;
+    private double shortLatency;
+    private double longLatency;
+
+    /**
+     * @param initialLimit Initial limit.
+     * @param minLimit Lower bound of the limit.
+     * @param maxLimit Upper bound of the limit.
+     */
+    public GradientConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit) {
+        super(initialLimit);
+        checkArgument(minLimit > 0 && minLimit <= initialLimit && initialLimit <= maxLimit,
+                "Invalid adaptive concurrency limit bounds");
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.estimatedLimit = initialLimit;
+    }
+
+    @Override
+    protected synchronized void onSample(long latencyNanos, int inFlight) {
+
+        if (longLatency == 0) {
+            shortLatency = latencyNanos;
+            longLatency = latencyNanos;
+            return;
+        }
+
+        shortLatency += (latencyNanos - shortLatency) * 2 / (SHORT_WINDOW + 1);
+        longLatency += (latencyNanos - longLatency) * 2 / (LONG_WINDOW + 1);
+
+        // Long term average recovers faster after a latency spike is over
+        if (longLatency / shortLatency > 2) {
+            longLatency *= 0.95;
+        }
+
+        // Don't grow the limit when it is not used
+        if (inFlight < estimatedLimit / 2) {
+            return;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longLatency / shortLatency));
+        double newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        newLimit = estimatedLimit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+
+        setLimit((int)estimatedLimit);
+    }
+}
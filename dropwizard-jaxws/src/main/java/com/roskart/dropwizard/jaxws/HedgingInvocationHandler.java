@@ -0,0 +1,139 @@
+package com.roskart.dropwizard.jaxws;
+
+import org.apache.cxf.binding.soap.SoapFault;
+import org.apache.cxf.interceptor.Fault;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import javax.xml.soap.Detail;
+import javax.xml.soap.SOAPException;
+import javax.xml.soap.SOAPFactory;
+import javax.xml.soap.SOAPFault;
+import javax.xml.ws.Binding;
+import javax.xml.ws.BindingProvider;
+import javax.xml.ws.WebServiceException;
+import javax.xml.ws.soap.SOAPBinding;
+import javax.xml.ws.soap.SOAPFaultException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Synchronous client proxy with hedged requests for idempotent operations. Idempotent operations are invoked by
+ * hedging AsyncClient and the calling thread waits for the winning response. Other operations are invoked by the
+ * underlying CXF client proxy.
+ * <p>
+ * Undeclared SOAP faults of hedged operations are thrown as SOAPFaultException and transport failures as
+ * WebServiceException, same as by the CXF client proxy. Operations with Holder parameters can not be hedged.
+ * @see com.roskart.dropwizard.jaxws.HedgingPolicy
+ */
+public class HedgingInvocationHandler implements InvocationHandler {
+
+    private final Object underlying;
+    private final AsyncClient<?> asyncClient;
+    private final HedgingPolicy hedgingPolicy;
+
+    private HedgingInvocationHandler(Object underlying, AsyncClient<?> asyncClient, HedgingPolicy hedgingPolicy) {
+        this.underlying = underlying;
+        this.asyncClient = asyncClient;
+        this.hedgingPolicy = hedgingPolicy;
+    }
+
+    /**
+     * Creates hedging client proxy.
+     * @param serviceClass Service interface class.
+     * @param asyncClient Asynchronous client with hedging policy.
+     * @param hedgingPolicy Hedging policy.
+     */
+    public static <T> T create(Class<T> serviceClass, AsyncClient<T> asyncClient, HedgingPolicy hedgingPolicy) {
+        return serviceClass.cast(Proxy.newProxyInstance(serviceClass.getClassLoader(),
+                new Class<?>[]{ serviceClass, BindingProvider.class },
+                new HedgingInvocationHandler(asyncClient.getProxy(), asyncClient, hedgingPolicy)));
+    }
+
+    public HedgingPolicy getHedgingPolicy() {
+        return hedgingPolicy;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+
+        if (method.getDeclaringClass() != Object.class && method.getDeclaringClass() != BindingProvider.class) {
+            String operationName = HedgingPolicy.operationName(method);
+            if (hedgingPolicy.isHedged(operationName)) {
+                return this.invokeHedged(method, operationName, args != null ? args : new Object[0]);
+            }
+        }
+
+        try {
+            return method.invoke(underlying, args);
+        }
+        catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private Object invokeHedged(Method method, String operationName, Object[] args) throws Throwable {
+        CompletableFuture<Object> future = asyncClient.invoke(operationName, args);
+        try {
+            return future.get();
+        }
+        catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new WebServiceException("Interrupted while waiting for response", e);
+        }
+        catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SoapFault) {
+                throw this.soapFaultException((SoapFault)cause);
+            }
+            if (cause instanceof Fault) {
+                throw new WebServiceException(cause.getMessage(), cause);
+            }
+            if (cause instanceof RuntimeException || cause instanceof Error) {
+                throw cause;
+            }
+            for (Class<?> exceptionType : method.getExceptionTypes()) {
+                if (exceptionType.isInstance(cause)) {
+                    throw cause;
+                }
+            }
+            throw new WebServiceException(cause);
+        }
+    }
+
+    /**
+     * Maps SOAP fault response to SOAPFaultException, same as JaxWsClientProxy.
+     */
+    private WebServiceException soapFaultException(SoapFault fault) {
+        try {
+            Binding binding = ((BindingProvider)underlying).getBinding();
+            SOAPFactory factory = binding instanceof SOAPBinding ?
+                    ((SOAPBinding)binding).getSOAPFactory() : SOAPFactory.newInstance();
+            SOAPFault soapFault = factory.createFault();
+            soapFault.setFaultString(fault.getMessage());
+            soapFault.setFaultCode(fault.getFaultCode());
+            if (fault.getRole() != null) {
+                soapFault.setFaultActor(fault.getRole());
+            }
+            if (fault.hasDetails()) {
+                Detail detail = soapFault.addDetail();
+                for (Node child = fault.getDetail().getFirstChild(); child != null; child = child.getNextSibling()) {
+                    if (child instanceof Element) {
+                        detail.appendChild(detail.getOwnerDocument().importNode(child, true));
+                    }
+                }
+            }
+            SOAPFaultException exception = new SOAPFaultException(soapFault);
+            exception.initCause(fault);
+            return exception;
+        }
+        catch (SOAPException e) {
+            return new WebServiceException(fault.getMessage(), fault);
+        }
+    }
+}
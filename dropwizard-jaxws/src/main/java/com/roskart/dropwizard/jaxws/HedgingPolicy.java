@@ -0,0 +1,132 @@
+package com.roskart.dropwizard.jaxws;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableSet;
+
+import javax.jws.WebMethod;
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Hedging settings and state of a client. When idempotent operation does not respond within the hedging delay, a
+ * duplicate (hedged) request is sent and the first successful response wins.
+ * <p>
+ * Hedged requests are limited by a budget: every hedgeable request adds budget percentage of a token and every
+ * hedged request takes one token. This caps extra load to the budget percentage of the traffic, while allowing short
+ * bursts of hedges after quiet periods. Following meters are registered for each operation under
+ * ServiceInterface.operation.client: hedges, hedges-won and hedges-throttled.
+ * @see com.roskart.dropwizard.jaxws.ClientBuilder#hedging(int, int, String...)
+ */
+public class HedgingPolicy {
+
+    private static final double MAX_TOKENS = 10;
+
+    private final long delay;
+    private final double tokensPerRequest;
+    private final Set<String> idempotentOperations;
+    private final ScheduledExecutorService scheduler;
+    private final MetricRegistry metricRegistry;
+    private final Class<?> serviceClass;
+    private final ConcurrentMap<String, Meter> meters = new ConcurrentHashMap<>();
+    private double tokens;
+
+    /**
+     * @param delay Hedging delay in milliseconds.
+     * @param budgetPercent Maximum hedged requests as a percentage of hedgeable requests.
+     * @param idempotentOperations Names of operations which can be hedged.
+     * @param scheduler Scheduler which sends hedged requests.
+     * @param metricRegistry Metric registry or null.
+     * @param serviceClass Service interface class.
+     */
+    public HedgingPolicy(long delay, int budgetPercent, Set<String> idempotentOperations,
+                         ScheduledExecutorService scheduler, MetricRegistry metricRegistry, Class<?> serviceClass) {
+        this.delay = delay;
+        this.tokensPerRequest = budgetPercent / 100.0;
+        this.idempotentOperations = ImmutableSet.copyOf(idempotentOperations);
+        this.scheduler = scheduler;
+        this.metricRegistry = metricRegistry;
+        this.serviceClass = serviceClass;
+    }
+
+    public long getDelay() {
+        return delay;
+    }
+
+    public Set<String> getIdempotentOperations() {
+        return idempotentOperations;
+    }
+
+    public ScheduledExecutorService getScheduler() {
+        return scheduler;
+    }
+
+    public boolean isHedged(String operationName) {
+        return idempotentOperations.contains(operationName);
+    }
+
+    /**
+     * Adds request to the hedging budget.
+     */
+    public synchronized void requestSent() {
+        tokens = Math.min(MAX_TOKENS, tokens + tokensPerRequest);
+    }
+
+    /**
+     * Takes hedged request from the budget.
+     * @return True when hedged request may be sent.
+     */
+    public boolean tryHedge(String operationName) {
+        boolean acquired;
+        synchronized (this) {
+            acquired = tokens >= 1;
+            if (acquired) {
+                tokens -= 1;
+            }
+        }
+        this.meter(operationName, acquired ? "hedges" : "hedges-throttled").mark();
+        return acquired;
+    }
+
+    /**
+     * Records hedged request which responded before the original request.
+     */
+    public void hedgeWon(String operationName) {
+        this.meter(operationName, "hedges-won").mark();
+    }
+
+    /**
+     * Returns names of operations which are marked idempotent by @Idempotent annotation or listed in
+     * idempotentOperations.
+     */
+    public static Set<String> idempotentOperations(Class<?> serviceClass, Collection<String> idempotentOperations) {
+        ImmutableSet.Builder<String> builder = ImmutableSet.builder();
+        builder.addAll(idempotentOperations);
+        for (Method method : serviceClass.getMethods()) {
+            if (method.isAnnotationPresent(Idempotent.class)) {
+                builder.add(operationName(method));
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Returns operation name of the service interface method.
+     */
+    public static String operationName(Method method) {
+        WebMethod webMethod = method.getAnnotation(WebMethod.class);
+        if (webMethod != null && !webMethod.operationName().isEmpty()) {
+            return webMethod.operationName();
+        }
+        return method.getName();
+    }
+
+    public Meter meter(String operationName, String name) {
+        String metricName = MetricRegistry.name(serviceClass, operationName, "client", name);
+        return meters.computeIfAbsent(metricName, n -> metricRegistry != null ? metricRegistry.meter(n) : new Meter());
+    }
+}
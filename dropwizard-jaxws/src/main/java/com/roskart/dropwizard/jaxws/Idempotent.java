@@ -0,0 +1,19 @@
+package com.roskart.dropwizard.jaxws;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * When annotating a method of the service interface used by a client, the operation is considered idempotent: it can
+ * be safely sent more than once. Clients with hedging enabled send hedged requests for idempotent operations only.
+ * Operations of generated service interfaces can be marked idempotent with ClientBuilder.idempotentOperations.
+ * @see com.roskart.dropwizard.jaxws.HedgingPolicy
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Idempotent {
+}
@@ -1,7 +1,6 @@
 package com.roskart.dropwizard.jaxws;
 
 import com.codahale.metrics.MetricRegistry;
-import com.google.common.collect.ImmutableMap;
 import com.codahale.metrics.annotation.ExceptionMetered;
 import com.codahale.metrics.annotation.Metered;
 import com.codahale.metrics.annotation.Timed;
@@ -10,8 +9,6 @@ import com.codahale.metrics.Timer;
 import org.apache.cxf.service.invoker.Invoker;
 
 import java.lang.reflect.Method;
-import java.util.ArrayList;
-import java.util.List;
 
 /**
  * Provides factory method for creating instrumented CXF invoker chain.
@@ -23,60 +20,44 @@ public class InstrumentedInvokerFactory {
     private final MetricRegistry metricRegistry;
 
     /**
-     * Factory method for TimedInvoker.
+     * Resolves timer for method annotated with @Timed.
      */
-    private Invoker timed(Invoker invoker, List<Method> timedMethods) {
-
-        ImmutableMap.Builder<String, Timer> timers = new ImmutableMap.Builder<>();
-
-        for (Method m : timedMethods) {
-            Timed annotation = m.getAnnotation(Timed.class);
-            final String name = chooseName(annotation.name(), annotation.absolute(), m);
-            Timer timer = metricRegistry.timer(name);
-            timers.put(m.getName(), timer);
+    private Timer timer(Method m) {
+        Timed annotation = m.getAnnotation(Timed.class);
+        if (annotation == null) {
+            return null;
         }
-
-        return new InstrumentedInvokers.TimedInvoker(invoker, timers.build());
+        final String name = chooseName(annotation.name(), annotation.absolute(), m);
+        return metricRegistry.timer(name);
     }
 
     /**
-     * Factory method for MeteredInvoker.
+     * Resolves meter for method annotated with @Metered.
      */
-    private Invoker metered(Invoker invoker, List<Method> meteredMethods) {
-
-        ImmutableMap.Builder<String, Meter> meters = new ImmutableMap.Builder<>();
-
-        for (Method m : meteredMethods) {
-            Metered annotation = m.getAnnotation(Metered.class);
-            final String name = chooseName(annotation.name(), annotation.absolute(), m);
-            Meter meter = metricRegistry.meter(name);
-            meters.put(m.getName(), meter);
+    private Meter meter(Method m) {
+        Metered annotation = m.getAnnotation(Metered.class);
+        if (annotation == null) {
+            return null;
         }
-
-        return new InstrumentedInvokers.MeteredInvoker(invoker, meters.build());
+        final String name = chooseName(annotation.name(), annotation.absolute(), m);
+        return metricRegistry.meter(name);
     }
 
     /**
-     * Factory method for ExceptionMeteredInvoker.
+     * Resolves exception meter for method annotated with @ExceptionMetered.
      */
-    private Invoker exceptionMetered(Invoker invoker, List<Method> meteredMethods) {
-
-        ImmutableMap.Builder<String, InstrumentedInvokers.ExceptionMeter> meters =
-                new ImmutableMap.Builder<>();
-
-        for (Method m : meteredMethods) {
-
-            ExceptionMetered annotation = m.getAnnotation(ExceptionMetered.class);
-            final String name = chooseName(
-                    annotation.name(),
-                    annotation.absolute(),
-                    m,
-                    ExceptionMetered.DEFAULT_NAME_SUFFIX);
-            Meter meter = metricRegistry.meter(name);
-            meters.put(m.getName(), new InstrumentedInvokers.ExceptionMeter(meter, annotation.cause()));
+    private InstrumentedInvokers.ExceptionMeter exceptionMeter(Method m) {
+        ExceptionMetered annotation = m.getAnnotation(ExceptionMetered.class);
+        if (annotation == null) {
+            return null;
         }
-
-        return new InstrumentedInvokers.ExceptionMeteredInvoker(invoker, meters.build());
+        final String name = chooseName(
+                annotation.name(),
+                annotation.absolute(),
+                m,
+                ExceptionMetered.DEFAULT_NAME_SUFFIX);
+        Meter meter = metricRegistry.meter(name);
+        return new InstrumentedInvokers.ExceptionMeter(meter, annotation.cause());
     }
 
     /* Based on com.codahale.metrics.jersey.InstrumentedResourceMethodDispatchProvider#chooseName */
@@ -102,44 +83,36 @@ public class InstrumentedInvokerFactory {
 
 
     /**
-     * Factory method for creating instrumented invoker chain.
+     * Resolves metrics for service method annotated with @Timed, @Metered or @ExceptionMetered. Returned metrics are
+     * stored in the operation's invocation plan.
+     * @return Operation metrics or null when method is not instrumented.
      */
-    public Invoker create(Object service, Invoker rootInvoker) {
-
-        List<Method> timedmethods = new ArrayList<>();
-        List<Method> meteredmethods = new ArrayList<>();
-        List<Method> exceptionmeteredmethods = new ArrayList<>();
-
-        for (Method m : service.getClass().getMethods()) {
-
-            if (m.isAnnotationPresent(Timed.class)) {
-                timedmethods.add(m);
-            }
-
-            if (m.isAnnotationPresent(Metered.class)) {
-                meteredmethods.add(m);
-            }
-
-            if (m.isAnnotationPresent(ExceptionMetered.class)) {
-                exceptionmeteredmethods.add(m);
-            }
+    public InstrumentedInvokers.OperationMetrics createOperationMetrics(Method m) {
+        if (!isInstrumented(m)) {
+            return null;
         }
+        return new InstrumentedInvokers.OperationMetrics(timer(m), meter(m), exceptionMeter(m));
+    }
 
-        Invoker invoker = rootInvoker;
-
-        if (timedmethods.size() > 0) {
-            invoker = this.timed(invoker, timedmethods);
-        }
+    private boolean isInstrumented(Method m) {
+        return m.isAnnotationPresent(Timed.class) ||
+                m.isAnnotationPresent(Metered.class) ||
+                m.isAnnotationPresent(ExceptionMetered.class);
+    }
 
-        if (meteredmethods.size() > 0) {
-            invoker = this.metered(invoker, meteredmethods);
-        }
+    /**
+     * Factory method for creating instrumented invoker. Timers, meters and exception meters of all annotated service
+     * methods are handled by a single InstrumentedInvoker.
+     */
+    public Invoker create(Object service, Invoker rootInvoker) {
 
-        if (exceptionmeteredmethods.size() > 0) {
-            invoker = this.exceptionMetered(invoker, exceptionmeteredmethods);
+        for (Method m : service.getClass().getMethods()) {
+            if (isInstrumented(m)) {
+                return new InstrumentedInvokers.InstrumentedInvoker(rootInvoker);
+            }
         }
 
-        return invoker;
+        return rootInvoker;
     }
 
 }
@@ -12,9 +12,111 @@ import org.apache.cxf.service.invoker.Invoker;
  */
 public class InstrumentedInvokers {
 
+    /**
+     * Metrics of a single service operation. Timer, meter and exception meter are null when the corresponding
+     * annotation is not present on the service method.
+     */
+    public static class OperationMetrics {
+        private final Timer timer;
+        private final Meter meter;
+        private final ExceptionMeter exceptionMeter;
+        public OperationMetrics(Timer timer, Meter meter, ExceptionMeter exceptionMeter) {
+            this.timer = timer;
+            this.meter = meter;
+            this.exceptionMeter = exceptionMeter;
+        }
+        public Timer getTimer() {
+            return timer;
+        }
+        public Meter getMeter() {
+            return meter;
+        }
+        public ExceptionMeter getExceptionMeter() {
+            return exceptionMeter;
+        }
+    }
+
+    /**
+     * Wraps underlying invoker and manages timers and meters for methods annotated with @Timed, @Metered or
+     * with @ExceptionMetered. All metrics of the invoked operation are read from the operation's invocation plan,
+     * regardless of how many annotations are present on the service method.
+     * <p>
+     * Invocation of an operation using @UseAsyncMethod is suspended until the asynchronous response is ready, after
+     * which CXF invokes the invoker chain again. Timer context is kept in the exchange while the invocation is
+     * suspended, so timers measure the complete operation and exception meters see exceptions of the asynchronous
+     * response.
+     */
+    public static class InstrumentedInvoker extends AbstractInvoker {
+
+        private static final String SUSPENDED_INVOCATION = InstrumentedInvoker.class.getName() + ".suspended";
+
+        /**
+         * Metrics state of the suspended invocation.
+         */
+        private static class SuspendedInvocation {
+            private final Timer.Context context;
+            SuspendedInvocation(Timer.Context context) {
+                this.context = context;
+            }
+        }
+
+        public InstrumentedInvoker(Invoker underlying) {
+            super(underlying);
+        }
+
+        public Object invoke(Exchange exchange, Object o) {
+
+            InvocationPlan plan = this.getInvocationPlan(exchange);
+            OperationMetrics operationMetrics = plan.getMetrics();
+
+            if (operationMetrics == null) {
+                return this.underlying.invoke(exchange, o);
+            }
+
+            SuspendedInvocation suspended =
+                    plan.isAsync() ? (SuspendedInvocation)exchange.remove(SUSPENDED_INVOCATION) : null;
+
+            final Timer.Context context;
+            if (suspended != null) {
+                // invocation was resumed, meter was marked and timer started before it was suspended
+                context = suspended.context;
+            }
+            else {
+                if (operationMetrics.getMeter() != null) {
+                    operationMetrics.getMeter().mark();
+                }
+                context = operationMetrics.getTimer() != null ? operationMetrics.getTimer().time() : null;
+            }
+
+            boolean suspending = false;
+            try {
+                Object result = this.underlying.invoke(exchange, o);
+                if (plan.isAsync() && this.isSuspended(exchange)) {
+                    exchange.put(SUSPENDED_INVOCATION, new SuspendedInvocation(context));
+                    suspending = true;
+                }
+                return result;
+            }
+            catch (Exception e) {
+                if (operationMetrics.getExceptionMeter() != null) {
+                    operationMetrics.getExceptionMeter().mark(e);
+                }
+                this.<RuntimeException>rethrow(e); // unchecked rethrow
+                return null; // avoid compiler warning
+            }
+            finally {
+                if (context != null && !suspending) {
+                    context.stop();
+                }
+            }
+        }
+    }
+
     /**
      * Wraps underlying invoker and manages timers for methods annotated with @Timed.
+     * @deprecated Use {@link InstrumentedInvoker}, which handles all metrics annotations in a single invoker.
      */
+    @Deprecated
     public static class TimedInvoker extends AbstractInvoker {
 
         private ImmutableMap<String, Timer> timers;
@@ -48,7 +150,9 @@ public class InstrumentedInvokers {
 
     /**
      * Wraps underlying invoker and manages meters for methods annotated with @Metered.
+     * @deprecated Use {@link InstrumentedInvoker}, which handles all metrics annotations in a single invoker.
      */
+    @Deprecated
     public static class MeteredInvoker extends AbstractInvoker {
 
         private ImmutableMap<String, Meter> meters;
@@ -85,11 +189,23 @@ public class InstrumentedInvokers {
         public Class<? extends Throwable> getExceptionClass() {
             return exceptionClass;
         }
+
+        /**
+         * Marks the meter if exception or its cause is an instance of the metered exception class.
+         */
+        public void mark(Throwable e) {
+            if (exceptionClass.isAssignableFrom(e.getClass()) ||
+                    (e.getCause() != null && exceptionClass.isAssignableFrom(e.getCause().getClass()))) {
+                meter.mark();
+            }
+        }
     }
 
     /**
      * Wraps underlying invoker and manages meters for methods annotated with @ExceptionMetered.
+     * @deprecated Use {@link InstrumentedInvoker}, which handles all metrics annotations in a single invoker.
      */
+    @Deprecated
     public static class ExceptionMeteredInvoker extends AbstractInvoker {
 
         private ImmutableMap<String, ExceptionMeter> meters;
@@ -111,12 +227,7 @@ public class InstrumentedInvokers {
             catch (Exception e) {
 
                 if (meters.containsKey(methodname)) {
-                    ExceptionMeter meter = meters.get(methodname);
-                    if (meter.getExceptionClass().isAssignableFrom(e.getClass()) ||
-                            (e.getCause() != null &&
-                                    meter.getExceptionClass().isAssignableFrom(e.getCause().getClass()))) {
-                        meter.getMeter().mark();
-                    }
+                    meters.get(methodname).mark(e);
                 }
                 this.<RuntimeException>rethrow(e); // unchecked rethrow
                 return null; // avoid compiler warning
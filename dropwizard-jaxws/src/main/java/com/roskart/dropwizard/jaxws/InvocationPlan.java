@@ -0,0 +1,235 @@
+package com.roskart.dropwizard.jaxws;
+
+import io.dropwizard.hibernate.UnitOfWork;
+
+import java.lang.reflect.Method;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Immutable invocation plan of a single service operation. Plans are compiled by JAXWSEnvironment when endpoint is
+ * published and are attached to CXF OperationInfo. Invokers read pre-resolved operation metadata from the plan instead
+ * of performing reflection and map lookups on each request.
+ * @see com.roskart.dropwizard.jaxws.AbstractInvoker#getInvocationPlan(org.apache.cxf.message.Exchange)
+ */
+public class InvocationPlan {
+
+    private static final Class<?>[][] NO_VALIDATION_GROUPS = new Class<?>[0][];
+
+    private final Method method;
+    private final boolean async;
+    private final Class<?>[][] parameterValidationGroups;
+    private final UnitOfWork unitOfWork;
+    private final UnitOfWorkSettings unitOfWorkSettings;
+    private final UnitOfWorkInvoker.UnitOfWorkMetrics unitOfWorkMetrics;
+    private final UnitOfWorkInvoker.RetryPolicy retryPolicy;
+    private final boolean lazySession;
+    private final ReplicaRouter replicaRouter;
+    private final InstrumentedInvokers.OperationMetrics metrics;
+    private final CachingInvoker.ResultCache resultCache;
+    private final CoalescingInvoker.RequestCoalescer requestCoalescer;
+    private final ConcurrencyLimitingInvoker.Bulkhead bulkhead;
+
+    private InvocationPlan(Builder builder) {
+        this.method = builder.method;
+        this.async = builder.async;
+        this.parameterValidationGroups = builder.parameterValidationGroups;
+        this.unitOfWork = builder.unitOfWork;
+        this.unitOfWorkSettings = builder.unitOfWorkSettings;
+        this.unitOfWorkMetrics = builder.unitOfWorkMetrics;
+        this.retryPolicy = builder.retryPolicy;
+        this.lazySession = builder.lazySession;
+        this.replicaRouter = builder.replicaRouter;
+        this.metrics = builder.metrics;
+        this.resultCache = builder.resultCache;
+        this.requestCoalescer = builder.requestCoalescer;
+        this.bulkhead = builder.bulkhead;
+    }
+
+    /**
+     * Service implementation method which is invoked for the operation.
+     */
+    public Method getMethod() {
+        return method;
+    }
+
+    /**
+     * True when service method is annotated with CXF UseAsyncMethod annotation, in which case CXF may invoke its
+     * asynchronous counterpart.
+     */
+    public boolean isAsync() {
+        return async;
+    }
+
+    /**
+     * Validation groups for each operation parameter. Null element means that parameter is not validated.
+     * Returned array must not be modified.
+     */
+    public Class<?>[][] getParameterValidationGroups() {
+        return parameterValidationGroups;
+    }
+
+    /**
+     * UnitOfWork annotation of the service method or null if operation is not executed in a unit of work.
+     */
+    public UnitOfWork getUnitOfWork() {
+        return unitOfWork;
+    }
+
+    /**
+     * UnitOfWorkSettings annotation of the service method or null if session uses default settings.
+     */
+    public UnitOfWorkSettings getUnitOfWorkSettings() {
+        return unitOfWorkSettings;
+    }
+
+    /**
+     * Unit of work metrics or null if unit of work is not instrumented.
+     */
+    public UnitOfWorkInvoker.UnitOfWorkMetrics getUnitOfWorkMetrics() {
+        return unitOfWorkMetrics;
+    }
+
+    /**
+     * Unit of work retry policy or null if unit of work is not retried.
+     */
+    public UnitOfWorkInvoker.RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * True when unit of work opens Hibernate session only when the operation uses it.
+     */
+    public boolean isLazySession() {
+        return lazySession;
+    }
+
+    /**
+     * Routes unit of work to read replicas or null if unit of work uses the endpoint's session factory.
+     */
+    public ReplicaRouter getReplicaRouter() {
+        return replicaRouter;
+    }
+
+    /**
+     * Operation metrics or null if service method is not instrumented.
+     */
+    public InstrumentedInvokers.OperationMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Result cache or null if results of the operation are not cached.
+     */
+    public CachingInvoker.ResultCache getResultCache() {
+        return resultCache;
+    }
+
+    /**
+     * Request coalescer or null if concurrent invocations of the operation are not coalesced.
+     */
+    public CoalescingInvoker.RequestCoalescer getRequestCoalescer() {
+        return requestCoalescer;
+    }
+
+    /**
+     * Concurrency limiter or null if concurrent invocations of the operation are not limited.
+     */
+    public ConcurrencyLimitingInvoker.Bulkhead getBulkhead() {
+        return bulkhead;
+    }
+
+    /**
+     * InvocationPlan builder.
+     */
+    public static class Builder {
+
+        private final Method method;
+        private boolean async;
+        private Class<?>[][] parameterValidationGroups = NO_VALIDATION_GROUPS;
+        private UnitOfWork unitOfWork;
+        private UnitOfWorkSettings unitOfWorkSettings;
+        private UnitOfWorkInvoker.UnitOfWorkMetrics unitOfWorkMetrics;
+        private UnitOfWorkInvoker.RetryPolicy retryPolicy;
+        private boolean lazySession;
+        private ReplicaRouter replicaRouter;
+        private InstrumentedInvokers.OperationMetrics metrics;
+        private CachingInvoker.ResultCache resultCache;
+        private CoalescingInvoker.RequestCoalescer requestCoalescer;
+        private ConcurrencyLimitingInvoker.Bulkhead bulkhead;
+
+        /**
+         * Create new InvocationPlan builder.
+         * @param method Service implementation method.
+         */
+        public Builder(Method method) {
+            checkArgument(method != null, "Method is null");
+            this.method = method;
+        }
+
+        public Builder async(boolean async) {
+            this.async = async;
+            return this;
+        }
+
+        public Builder parameterValidationGroups(Class<?>[][] parameterValidationGroups) {
+            this.parameterValidationGroups =
+                    parameterValidationGroups != null ? parameterValidationGroups : NO_VALIDATION_GROUPS;
+            return this;
+        }
+
+        public Builder unitOfWork(UnitOfWork unitOfWork) {
+            this.unitOfWork = unitOfWork;
+            return this;
+        }
+
+        public Builder unitOfWorkSettings(UnitOfWorkSettings unitOfWorkSettings) {
+            this.unitOfWorkSettings = unitOfWorkSettings;
+            return this;
+        }
+
+        public Builder unitOfWorkMetrics(UnitOfWorkInvoker.UnitOfWorkMetrics unitOfWorkMetrics) {
+            this.unitOfWorkMetrics = unitOfWorkMetrics;
+            return this;
+        }
+
+        public Builder retryPolicy(UnitOfWorkInvoker.RetryPolicy retryPolicy) {
+            this.retryPolicy = retryPolicy;
+            return this;
+        }
+
+        public Builder lazySession(boolean lazySession) {
+            this.lazySession = lazySession;
+            return this;
+        }
+
+        public Builder replicaRouter(ReplicaRouter replicaRouter) {
+            this.replicaRouter = replicaRouter;
+            return this;
+        }
+
+        public Builder metrics(InstrumentedInvokers.OperationMetrics metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        public Builder resultCache(CachingInvoker.ResultCache resultCache) {
+            this.resultCache = resultCache;
+            return this;
+        }
+
+        public Builder requestCoalescer(CoalescingInvoker.RequestCoalescer requestCoalescer) {
+            this.requestCoalescer = requestCoalescer;
+            return this;
+        }
+
+        public Builder bulkhead(ConcurrencyLimitingInvoker.Bulkhead bulkhead) {
+            this.bulkhead = bulkhead;
+            return this;
+        }
+
+        public InvocationPlan build() {
+            return new InvocationPlan(this);
+        }
+    }
+}
@@ -1,10 +1,12 @@
 package com.roskart.dropwizard.jaxws;
 
 import io.dropwizard.ConfiguredBundle;
+import io.dropwizard.lifecycle.Managed;
 import io.dropwizard.setup.Bootstrap;
 import io.dropwizard.setup.Environment;
 import org.hibernate.SessionFactory;
 
+import javax.servlet.ServletRegistration;
 import javax.xml.ws.Endpoint;
 import javax.xml.ws.handler.Handler;
 
@@ -53,8 +55,17 @@ public class JAXWSBundle<C> implements ConfiguredBundle<C> {
      */
     @Override
     public void initialize(Bootstrap<?> bootstrap) {
+        this.jaxwsEnvironment.setMetricRegistry(bootstrap.getMetricRegistry());
         this.jaxwsEnvironment.setInstrumentedInvokerBuilder(
                 new InstrumentedInvokerFactory(bootstrap.getMetricRegistry()));
+        this.jaxwsEnvironment.setCachingInvokerBuilder(
+                new CachingInvokerFactory(bootstrap.getMetricRegistry()));
+        this.jaxwsEnvironment.setCoalescingInvokerBuilder(
+                new CoalescingInvokerFactory(bootstrap.getMetricRegistry()));
+        this.jaxwsEnvironment.setConcurrencyLimitingInvokerBuilder(
+                new ConcurrencyLimitingInvokerFactory(bootstrap.getMetricRegistry()));
+        this.jaxwsEnvironment.setUnitOfWorkInvokerBuilder(
+                new UnitOfWorkInvokerFactory(bootstrap.getMetricRegistry()));
     }
 
     /**
@@ -63,11 +74,29 @@ public class JAXWSBundle<C> implements ConfiguredBundle<C> {
     @Override
     public void run(C configuration, Environment environment) {
         checkArgument(environment != null, "Environment is null");
-        environment.servlets().addServlet("CXF Servlet " + jaxwsEnvironment.getDefaultPath(),
-                jaxwsEnvironment.buildServlet()).addMapping(servletPath);
+
+        if (environment.getValidator() != null) {
+            jaxwsEnvironment.setValidator(environment.getValidator());
+        }
+
+        ServletRegistration.Dynamic servlet = environment.servlets().addServlet(
+                "CXF Servlet " + jaxwsEnvironment.getDefaultPath(), jaxwsEnvironment.buildServlet());
+        servlet.addMapping(servletPath);
+        // Async support enables CXF continuations, used by @UseAsyncMethod and virtual threads
+        servlet.setAsyncSupported(true);
 
         environment.lifecycle().addServerLifecycleListener(
                 server -> jaxwsEnvironment.logEndpoints());
+        // executors created by JAXWSEnvironment are shut down when the server stops
+        environment.lifecycle().manage(new Managed() {
+            @Override
+            public void start() {
+            }
+            @Override
+            public void stop() {
+                jaxwsEnvironment.stop();
+            }
+        });
 
         String publishedEndpointUrlPrefix = getPublishedEndpointUrlPrefix(configuration);
         if(publishedEndpointUrlPrefix != null) {
@@ -178,6 +207,28 @@ public class JAXWSBundle<C> implements ConfiguredBundle<C> {
         return jaxwsEnvironment.getClient(clientBuilder);
     }
 
+    /**
+     * Factory method for creating asynchronous JAX-WS clients, which return CompletableFuture of operation results.
+     * @param clientBuilder ClientBuilder.
+     * @param <T> Service interface type.
+     * @return Asynchronous client.
+     */
+    public <T> AsyncClient<T> getAsyncClient(ClientBuilder<T> clientBuilder) {
+        checkArgument(clientBuilder != null, "ClientBuilder is null");
+        return jaxwsEnvironment.getAsyncClient(clientBuilder);
+    }
+
+    /**
+     * Factory method for creating pools of JAX-WS clients, which can be used concurrently.
+     * @param clientBuilder ClientBuilder.
+     * @param <T> Service interface type.
+     * @return Client pool.
+     */
+    public <T> ClientPool<T> getClientPool(ClientBuilder<T> clientBuilder) {
+        checkArgument(clientBuilder != null, "ClientBuilder is null");
+        return jaxwsEnvironment.getClientPool(clientBuilder);
+    }
+
     /**
      * Extract the published endpoint URL prefix from the application configuration and return it to use the returned
      * value as the location of services in the published WSDLs.
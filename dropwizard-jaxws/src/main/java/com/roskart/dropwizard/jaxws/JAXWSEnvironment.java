@@ -1,27 +1,47 @@
 package com.roskart.dropwizard.jaxws;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.dropwizard.hibernate.UnitOfWork;
 import org.apache.cxf.Bus;
+import org.apache.cxf.annotations.UseAsyncMethod;
 import org.apache.cxf.BusFactory;
+import org.apache.cxf.buslifecycle.BusLifeCycleListener;
+import org.apache.cxf.buslifecycle.BusLifeCycleManager;
 import org.apache.cxf.jaxws.EndpointImpl;
 import org.apache.cxf.endpoint.Server;
 import org.apache.cxf.endpoint.ServerRegistry;
 import org.apache.cxf.frontend.ClientProxy;
 import org.apache.cxf.jaxws.JaxWsProxyFactoryBean;
 import org.apache.cxf.service.invoker.Invoker;
+import org.apache.cxf.service.model.BindingOperationInfo;
+import org.apache.cxf.service.model.OperationInfo;
 import org.apache.cxf.transport.http.HTTPConduit;
+import org.apache.cxf.transport.http.HTTPConduitFactory;
 import org.apache.cxf.transport.servlet.CXFNonSpringServlet;
 import org.apache.cxf.transports.http.configuration.HTTPClientPolicy;
+import org.apache.http.pool.PoolStats;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.servlet.http.HttpServlet;
 import javax.validation.Validation;
 import javax.validation.Validator;
-import javax.validation.ValidatorFactory;
 import javax.xml.ws.BindingProvider;
 import javax.xml.ws.Endpoint;
 import javax.xml.ws.handler.Handler;
 import javax.xml.ws.soap.SOAPBinding;
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
@@ -36,7 +56,14 @@ public class JAXWSEnvironment {
     protected final String defaultPath;
     private InstrumentedInvokerFactory instrumentedInvokerBuilder;
     private UnitOfWorkInvokerFactory unitOfWorkInvokerBuilder = new UnitOfWorkInvokerFactory();
+    private CachingInvokerFactory cachingInvokerBuilder;
+    private CoalescingInvokerFactory coalescingInvokerBuilder;
+    private ConcurrencyLimitingInvokerFactory concurrencyLimitingInvokerBuilder;
     private String publishedEndpointUrlPrefix;
+    private Validator validator;
+    private MetricRegistry metricRegistry;
+    private ExecutorService virtualThreadExecutor;
+    private ScheduledExecutorService hedgingScheduler;
 
     public String getDefaultPath() {
         return this.defaultPath;
@@ -66,6 +93,28 @@ public class JAXWSEnvironment {
         this.publishedEndpointUrlPrefix = publishedEndpointUrlPrefix;
     }
 
+    /**
+     * Set metric registry for endpoint metrics which are not bound to service operations.
+     */
+    public void setMetricRegistry(MetricRegistry metricRegistry) {
+        this.metricRegistry = metricRegistry;
+    }
+
+    /**
+     * Set validator used for validation of service operation parameters of all published endpoints. When validator
+     * is not set, single validator is created from the default validator factory and shared between endpoints.
+     */
+    public void setValidator(Validator validator) {
+        this.validator = validator;
+    }
+
+    protected synchronized Validator getValidator() {
+        if (this.validator == null) {
+            this.validator = Validation.buildDefaultValidatorFactory().getValidator();
+        }
+        return this.validator;
+    }
+
     public void setInstrumentedInvokerBuilder(InstrumentedInvokerFactory instrumentedInvokerBuilder) {
         this.instrumentedInvokerBuilder = instrumentedInvokerBuilder;
     }
@@ -74,14 +123,238 @@ public class JAXWSEnvironment {
         this.unitOfWorkInvokerBuilder = unitOfWorkInvokerBuilder;
     }
 
+    public void setCachingInvokerBuilder(CachingInvokerFactory cachingInvokerBuilder) {
+        this.cachingInvokerBuilder = cachingInvokerBuilder;
+    }
+
+    public void setCoalescingInvokerBuilder(CoalescingInvokerFactory coalescingInvokerBuilder) {
+        this.coalescingInvokerBuilder = coalescingInvokerBuilder;
+    }
+
+    public void setConcurrencyLimitingInvokerBuilder(
+            ConcurrencyLimitingInvokerFactory concurrencyLimitingInvokerBuilder) {
+        this.concurrencyLimitingInvokerBuilder = concurrencyLimitingInvokerBuilder;
+    }
+
     protected BasicAuthenticationInterceptor createBasicAuthenticationInterceptor() {
         return new BasicAuthenticationInterceptor();
     }
 
+    protected LoadSheddingInterceptor createLoadSheddingInterceptor(long maxQueueTime, Meter shed) {
+        return new LoadSheddingInterceptor(maxQueueTime, shed);
+    }
+
+    private Meter meter(EndpointBuilder endpointBuilder, String name) {
+        return metricRegistry != null ?
+                metricRegistry.meter(MetricRegistry.name(endpointBuilder.getService().getClass(), name)) :
+                new Meter();
+    }
+
+    /**
+     * Registers active sessions gauge of each read replica. Publishing another endpoint of the same service class with
+     * read replicas fails, because gauges are named by the service class.
+     */
+    private void registerReplicaGauges(EndpointBuilder endpointBuilder) {
+        if (metricRegistry == null || endpointBuilder.getReplicaRouter() == null) {
+            return;
+        }
+        Class<?> serviceClass = endpointBuilder.getService().getClass();
+        int index = 0;
+        for (final ReplicaRouter.Replica replica : endpointBuilder.getReplicaRouter().getReplicas()) {
+            EndpointGauges.register(metricRegistry, serviceClass,
+                    MetricRegistry.name(serviceClass, "replica-" + index++ + "-active-sessions"), replica::getActive);
+        }
+    }
+
+    protected PooledHTTPConduitFactory createConduitFactory(ClientBuilder<?> clientBuilder) {
+        return new PooledHTTPConduitFactory(clientBuilder);
+    }
+
+    /**
+     * Registers leased, idle and pending connections gauges of the client connection pool.
+     */
+    private void registerConnectionPoolGauges(ClientBuilder<?> clientBuilder,
+                                              final PooledHTTPConduitFactory conduitFactory) {
+        if (metricRegistry == null) {
+            return;
+        }
+        this.registerClientGauge(metricRegistry, clientBuilder,
+                clientMetricName(clientBuilder, "client", "leased-connections"), () -> {
+            PoolStats stats = conduitFactory.getTotalStats();
+            return stats != null ? stats.getLeased() : 0;
+        });
+        this.registerClientGauge(metricRegistry, clientBuilder,
+                clientMetricName(clientBuilder, "client", "idle-connections"), () -> {
+            PoolStats stats = conduitFactory.getTotalStats();
+            return stats != null ? stats.getAvailable() : 0;
+        });
+        this.registerClientGauge(metricRegistry, clientBuilder,
+                clientMetricName(clientBuilder, "client", "pending-connections"), () -> {
+            PoolStats stats = conduitFactory.getTotalStats();
+            return stats != null ? stats.getPending() : 0;
+        });
+    }
+
+    /**
+     * Returns name of the client wide metric, prefixed with the service interface name and the client name, when
+     * the client is named.
+     */
+    private static String clientMetricName(ClientBuilder<?> clientBuilder, String... names) {
+        String prefix = clientBuilder.getName() != null ?
+                MetricRegistry.name(clientBuilder.getServiceClass(), clientBuilder.getName()) :
+                MetricRegistry.name(clientBuilder.getServiceClass());
+        return MetricRegistry.name(prefix, names);
+    }
+
+    /**
+     * Registers client wide gauge. Gauge of another client with the same name is not replaced, because the other
+     * client would silently lose its gauge.
+     */
+    private void registerClientGauge(MetricRegistry registry, ClientBuilder<?> clientBuilder, String metricName,
+                                     Gauge<Integer> gauge) {
+        try {
+            registry.register(metricName, gauge);
+        }
+        catch (IllegalArgumentException e) {
+            throw new IllegalStateException("Gauge " + metricName + " is already registered by another client of " +
+                    clientBuilder.getServiceClass().getName() + ", use ClientBuilder.name() to distinguish clients", e);
+        }
+    }
+
+    protected OffloadingInvoker createOffloadingInvoker(Invoker invoker, Executor executor, Meter rejections) {
+        return new OffloadingInvoker(invoker, executor, rejections);
+    }
+
+    /**
+     * Registers queue size and active threads gauges of the endpoint executor, when executor is a thread pool.
+     * Publishing another endpoint of the same service class with a thread pool fails, because gauges are named by the
+     * service class.
+     */
+    private void registerExecutorGauges(EndpointBuilder endpointBuilder, Executor executor) {
+        if (metricRegistry == null || !(executor instanceof ThreadPoolExecutor)) {
+            return;
+        }
+        final ThreadPoolExecutor pool = (ThreadPoolExecutor)executor;
+        Class<?> serviceClass = endpointBuilder.getService().getClass();
+        EndpointGauges.register(metricRegistry, serviceClass,
+                MetricRegistry.name(serviceClass, "executor-queue-size"), () -> pool.getQueue().size());
+        EndpointGauges.register(metricRegistry, serviceClass,
+                MetricRegistry.name(serviceClass, "executor-active-threads"), pool::getActiveCount);
+    }
+
+    /**
+     * Returns virtual thread per task executor shared by all endpoints. Executor is created reflectively, because
+     * virtual threads are only available on Java 21 or newer.
+     */
+    protected synchronized ExecutorService getVirtualThreadExecutor() {
+        if (this.virtualThreadExecutor == null) {
+            try {
+                this.virtualThreadExecutor = (ExecutorService)Executors.class
+                        .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            }
+            catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Virtual threads are not supported by this Java runtime", e);
+            }
+        }
+        return this.virtualThreadExecutor;
+    }
+
+    protected DeadlineInvoker createDeadlineInvoker(Invoker invoker) {
+        return new DeadlineInvoker(invoker);
+    }
+
     protected ValidatingInvoker createValidatingInvoker(Invoker invoker, Validator validator) {
         return new ValidatingInvoker(invoker, validator);
     }
 
+    /**
+     * Compiles invocation plan for the service operation. Plan contains service implementation method and operation
+     * metadata which is used by invokers.
+     * @param endpointBuilder EndpointBuilder.
+     * @param operationMethod Method bound to the operation by CXF. When service implements service endpoint interface,
+     *                        this is the interface method.
+     */
+    protected InvocationPlan createInvocationPlan(EndpointBuilder endpointBuilder, Method operationMethod) {
+
+        Method method = getImplementationMethod(endpointBuilder.getService(), operationMethod);
+
+        InvocationPlan.Builder plan = new InvocationPlan.Builder(method)
+                .async(method.isAnnotationPresent(UseAsyncMethod.class))
+                .parameterValidationGroups(ValidatingInvoker.findParameterValidationGroups(operationMethod))
+                .metrics(instrumentedInvokerBuilder.createOperationMetrics(method));
+
+        if (endpointBuilder.getSessionFactory() != null) {
+            UnitOfWork unitOfWork = method.getAnnotation(UnitOfWork.class);
+            plan.unitOfWork(unitOfWork)
+                    .unitOfWorkSettings(method.getAnnotation(UnitOfWorkSettings.class))
+                    .unitOfWorkMetrics(unitOfWorkInvokerBuilder.createUnitOfWorkMetrics(method))
+                    .retryPolicy(unitOfWorkInvokerBuilder.createRetryPolicy(method))
+                    .lazySession(endpointBuilder.isLazySessionsEnabled());
+            if (unitOfWork != null && unitOfWork.readOnly()) {
+                plan.replicaRouter(endpointBuilder.getReplicaRouter());
+            }
+        }
+
+        if (cachingInvokerBuilder != null) {
+            plan.resultCache(cachingInvokerBuilder.createResultCache(method));
+        }
+
+        if (coalescingInvokerBuilder != null) {
+            plan.requestCoalescer(coalescingInvokerBuilder.createRequestCoalescer(method));
+        }
+
+        if (concurrencyLimitingInvokerBuilder != null) {
+            plan.bulkhead(concurrencyLimitingInvokerBuilder.createBulkhead(method, endpointBuilder));
+        }
+
+        return plan.build();
+    }
+
+    /**
+     * Compiles invocation plans for all operations of the published endpoint and attaches them to the operations'
+     * OperationInfo, where they are available to invokers.
+     */
+    private void attachInvocationPlans(EndpointImpl cxfendpoint, EndpointBuilder endpointBuilder) {
+
+        for (BindingOperationInfo boi :
+                cxfendpoint.getServer().getEndpoint().getEndpointInfo().getBinding().getOperations()) {
+
+            Method operationMethod = getOperationMethod(boi.getOperationInfo());
+            if (operationMethod == null && boi.isUnwrappedCapable()) {
+                operationMethod = getOperationMethod(boi.getUnwrappedOperation().getOperationInfo());
+            }
+            if (operationMethod == null) {
+                continue;
+            }
+
+            InvocationPlan plan = this.createInvocationPlan(endpointBuilder, operationMethod);
+
+            // Exchange refers to unwrapped operation when wrapped document/literal style is used.
+            boi.getOperationInfo().setProperty(InvocationPlan.class.getName(), plan);
+            if (boi.isUnwrappedCapable()) {
+                boi.getUnwrappedOperation().getOperationInfo().setProperty(InvocationPlan.class.getName(), plan);
+            }
+        }
+    }
+
+    private Method getOperationMethod(OperationInfo operationInfo) {
+        Object o = operationInfo.getProperty(Method.class.getName());
+        return (o instanceof Method) ? (Method)o : null;
+    }
+
+    /**
+     * Finds service implementation method which implements the operation method. Annotations such as @Timed
+     * or @UnitOfWork are declared on implementation methods.
+     */
+    private Method getImplementationMethod(Object service, Method operationMethod) {
+        try {
+            return service.getClass().getMethod(operationMethod.getName(), operationMethod.getParameterTypes());
+        }
+        catch (NoSuchMethodException e) {
+            return operationMethod;
+        }
+    }
+
     public void logEndpoints() {
         ServerRegistry sr = bus.getExtension(org.apache.cxf.endpoint.ServerRegistry.class);
         if (sr.getServers().size() > 0) {
@@ -97,11 +370,29 @@ public class JAXWSEnvironment {
         }
     }
 
+    /**
+     * Shuts down executors created by this environment, i.e. virtual thread executor and hedging scheduler.
+     * Invocations which are already running are completed, pending hedged requests are not sent. Executors provided
+     * by EndpointBuilder are not shut down.
+     */
+    public synchronized void stop() {
+        if (this.virtualThreadExecutor != null) {
+            this.virtualThreadExecutor.shutdown();
+            this.virtualThreadExecutor = null;
+        }
+        if (this.hedgingScheduler != null) {
+            this.hedgingScheduler.shutdownNow();
+            this.hedgingScheduler = null;
+        }
+    }
+
     /**
      * Publish JAX-WS server side endpoint. Returns javax.xml.ws.Endpoint to enable further customization.
      */
     public Endpoint publishEndpoint(EndpointBuilder endpointBuilder) {
         checkArgument(endpointBuilder != null, "EndpointBuilder is null");
+        checkArgument(endpointBuilder.getExecutor() == null || !endpointBuilder.isVirtualThreadsEnabled(),
+                "Endpoint executor and virtual threads can not be used together");
 
         EndpointImpl cxfendpoint = new EndpointImpl(bus, endpointBuilder.getService());
         if(endpointBuilder.publishedEndpointUrl() != null) {
@@ -117,11 +408,13 @@ public class JAXWSEnvironment {
             ((SOAPBinding)cxfendpoint.getBinding()).setMTOMEnabled(true);
         }
 
+        // Operation metadata used by invokers is resolved once, when endpoint is published
+        attachInvocationPlans(cxfendpoint, endpointBuilder);
+
         Invoker invoker = cxfendpoint.getService().getInvoker();
 
         // validating invoker
-        ValidatorFactory vf = Validation.buildDefaultValidatorFactory();
-        invoker = this.createValidatingInvoker(invoker, vf.getValidator());
+        invoker = this.createValidatingInvoker(invoker, this.getValidator());
 
         if (endpointBuilder.getSessionFactory() != null) {
             // Add invoker to handle UnitOfWork annotations. Note that this invoker is set up before
@@ -129,12 +422,60 @@ public class JAXWSEnvironment {
             invoker = unitOfWorkInvokerBuilder.create(
                     endpointBuilder.getService(), invoker, endpointBuilder.getSessionFactory());
             cxfendpoint.getService().setInvoker(invoker);
+            this.registerReplicaGauges(endpointBuilder);
+        }
+
+        if (coalescingInvokerBuilder != null) {
+            // Add invoker to handle CoalesceRequests annotations. Coalesced invocations share single unit of work.
+            invoker = coalescingInvokerBuilder.create(endpointBuilder.getService(), invoker);
+            cxfendpoint.getService().setInvoker(invoker);
+        }
+
+        if (concurrencyLimitingInvokerBuilder != null) {
+            // Add invoker to limit concurrent invocations. Coalesced invocations are limited as well, because they
+            // occupy server threads while waiting. Cached results are returned without acquiring the limit.
+            invoker = concurrencyLimitingInvokerBuilder.create(endpointBuilder.getService(), invoker, endpointBuilder);
+            cxfendpoint.getService().setInvoker(invoker);
+        }
+
+        if (cachingInvokerBuilder != null) {
+            // Add invoker to handle CacheResult annotations. Cached results are returned without opening unit of work,
+            // but are still measured by instrumented invoker(s).
+            invoker = cachingInvokerBuilder.create(endpointBuilder.getService(), invoker);
+            cxfendpoint.getService().setInvoker(invoker);
         }
 
+        // Enforce deadline sent by the caller and make it available to the wrapped invokers
+        invoker = this.createDeadlineInvoker(invoker);
+        cxfendpoint.getService().setInvoker(invoker);
+
         // Replace CXF service invoker with instrumented invoker(s)
         invoker = instrumentedInvokerBuilder.create(endpointBuilder.getService(), invoker);
         cxfendpoint.getService().setInvoker(invoker);
 
+        if (endpointBuilder.getExecutor() != null || endpointBuilder.isVirtualThreadsEnabled()) {
+            // Run invoker chain on endpoint executor or on virtual threads. This invoker wraps all other invokers,
+            // so that thread bound state (i.e. Hibernate session, timer context) is created and cleared on the same
+            // thread.
+            Executor executor = endpointBuilder.getExecutor() != null ?
+                    endpointBuilder.getExecutor() : this.getVirtualThreadExecutor();
+            this.registerExecutorGauges(endpointBuilder, executor);
+            invoker = this.createOffloadingInvoker(invoker, executor,
+                    this.meter(endpointBuilder, "executor-rejections"));
+            cxfendpoint.getService().setInvoker(invoker);
+        }
+
+        if (endpointBuilder.isRequestTimeoutHonored()) {
+            // Configure CXF in interceptor to read deadline sent by the caller
+            cxfendpoint.getInInterceptors().add(new DeadlineInterceptor());
+        }
+
+        if (endpointBuilder.getMaxQueueTime() > 0) {
+            // Configure CXF in interceptor to drop requests which waited in the queue for too long
+            cxfendpoint.getInInterceptors().add(this.createLoadSheddingInterceptor(
+                    endpointBuilder.getMaxQueueTime(), this.meter(endpointBuilder, "shed-requests")));
+        }
+
         if (endpointBuilder.getAuthentication() != null) {
             // Configure CXF in interceptor to handle basic authentication
             BasicAuthenticationInterceptor basicAuthInterceptor = this.createBasicAuthenticationInterceptor();
@@ -175,6 +516,174 @@ public class JAXWSEnvironment {
      * @return JAX-WS client proxy.
      */
     public <T> T getClient(ClientBuilder<T> clientBuilder) {
+        JaxWsProxyFactoryBean proxyFactory = this.createProxyFactory(clientBuilder);
+        PooledHTTPConduitFactory conduitFactory = this.createPooledConduitFactory(clientBuilder, proxyFactory);
+        return this.faultTolerant(clientBuilder,
+                this.hedged(clientBuilder, this.createClientProxy(clientBuilder, proxyFactory, conduitFactory),
+                        conduitFactory, this.createHedgingPolicy(clientBuilder)),
+                this.createCircuitBreaker(clientBuilder));
+    }
+
+    /**
+     * Asynchronous JAX-WS client factory. Calls honor client receive timeout and deadline propagation settings.
+     * @param clientBuilder ClientBuilder.
+     * @param <T> Service interface type.
+     * @return Asynchronous JAX-WS client.
+     */
+    public <T> AsyncClient<T> getAsyncClient(ClientBuilder<T> clientBuilder) {
+        JaxWsProxyFactoryBean proxyFactory = this.createProxyFactory(clientBuilder);
+        PooledHTTPConduitFactory conduitFactory = this.createPooledConduitFactory(clientBuilder, proxyFactory);
+        T proxy = this.createClientProxy(clientBuilder, proxyFactory, conduitFactory);
+        if (clientBuilder.isHedgingEnabled()) {
+            return this.createHedgingAsyncClient(clientBuilder, proxy, conduitFactory,
+                    this.createHedgingPolicy(clientBuilder));
+        }
+        return new AsyncClient<>(proxy);
+    }
+
+    /**
+     * JAX-WS client pool factory. Service model is built once and client proxies are created on demand, up to the
+     * client pool size. Proxies share the HTTP connection pool, when connection pool is enabled.
+     * @param clientBuilder ClientBuilder.
+     * @param <T> Service interface type.
+     * @return JAX-WS client pool.
+     */
+    public <T> ClientPool<T> getClientPool(final ClientBuilder<T> clientBuilder) {
+        final JaxWsProxyFactoryBean proxyFactory = this.createProxyFactory(clientBuilder);
+        final PooledHTTPConduitFactory conduitFactory = this.createPooledConduitFactory(clientBuilder, proxyFactory);
+        // pooled proxies share the circuit breaker and the hedging budget
+        final CircuitBreaker circuitBreaker = this.createCircuitBreaker(clientBuilder);
+        final HedgingPolicy hedgingPolicy = this.createHedgingPolicy(clientBuilder);
+        Timer waitTimer = metricRegistry != null ?
+                metricRegistry.timer(clientMetricName(clientBuilder, "client-pool", "wait")) :
+                new Timer();
+        return new ClientPool<>(
+                () -> {
+                    // proxy factory is not thread safe
+                    synchronized (proxyFactory) {
+                        return this.faultTolerant(clientBuilder,
+                                this.hedged(clientBuilder,
+                                        this.createClientProxy(clientBuilder, proxyFactory, conduitFactory),
+                                        conduitFactory, hedgingPolicy),
+                                circuitBreaker);
+                    }
+                },
+                clientBuilder.getClientPoolSize(), clientBuilder.getClientPoolMaxWait(), waitTimer);
+    }
+
+    /**
+     * Returns client proxy with circuit breaker and retries when enabled, or the client proxy otherwise.
+     */
+    private <T> T faultTolerant(ClientBuilder<T> clientBuilder, T proxy, CircuitBreaker circuitBreaker) {
+        if (circuitBreaker == null && !clientBuilder.isRetryEnabled()) {
+            return proxy;
+        }
+        MetricRegistry registry = this.clientMetricRegistry(clientBuilder);
+        ClientRetryPolicy retryPolicy = null;
+        if (clientBuilder.isRetryEnabled()) {
+            retryPolicy = new ClientRetryPolicy(
+                    clientBuilder.getRetryMaxAttempts(),
+                    clientBuilder.getRetryBackoff(),
+                    HedgingPolicy.idempotentOperations(
+                            clientBuilder.getServiceClass(), clientBuilder.getIdempotentOperations()),
+                    registry,
+                    clientBuilder.getServiceClass());
+        }
+        String rejectedName = clientMetricName(clientBuilder, "client", "circuit-breaker", "rejected");
+        Meter rejected = registry != null ? registry.meter(rejectedName) : new Meter();
+        return FaultTolerantInvocationHandler.create(
+                clientBuilder.getServiceClass(), proxy, circuitBreaker, rejected, retryPolicy);
+    }
+
+    /**
+     * Creates circuit breaker and registers its state (0 closed, 1 open, 2 half-open) and failure rate gauges, or
+     * returns null when circuit breaker is not enabled.
+     */
+    private CircuitBreaker createCircuitBreaker(ClientBuilder<?> clientBuilder) {
+        if (!clientBuilder.isCircuitBreakerEnabled()) {
+            return null;
+        }
+        final CircuitBreaker circuitBreaker = new CircuitBreaker(
+                clientBuilder.getCircuitBreakerFailureRate(),
+                clientBuilder.getCircuitBreakerWindowSize(),
+                clientBuilder.getCircuitBreakerOpenDuration());
+        MetricRegistry registry = this.clientMetricRegistry(clientBuilder);
+        if (registry != null) {
+            this.registerClientGauge(registry, clientBuilder,
+                    clientMetricName(clientBuilder, "client", "circuit-breaker", "state"),
+                    () -> circuitBreaker.getState().ordinal());
+            this.registerClientGauge(registry, clientBuilder,
+                    clientMetricName(clientBuilder, "client", "circuit-breaker", "failure-rate"),
+                    circuitBreaker::getFailureRate);
+        }
+        return circuitBreaker;
+    }
+
+    private MetricRegistry clientMetricRegistry(ClientBuilder<?> clientBuilder) {
+        return clientBuilder.getMetricRegistry() != null ? clientBuilder.getMetricRegistry() : this.metricRegistry;
+    }
+
+    /**
+     * Returns hedging client proxy when hedging is enabled, or the client proxy otherwise.
+     */
+    private <T> T hedged(ClientBuilder<T> clientBuilder, T proxy, PooledHTTPConduitFactory conduitFactory,
+                         HedgingPolicy hedgingPolicy) {
+        if (hedgingPolicy == null) {
+            return proxy;
+        }
+        AsyncClient<T> asyncClient = this.createHedgingAsyncClient(clientBuilder, proxy, conduitFactory,
+                hedgingPolicy);
+        return HedgingInvocationHandler.create(clientBuilder.getServiceClass(), asyncClient, hedgingPolicy);
+    }
+
+    /**
+     * Creates hedging policy, or returns null when hedging is not enabled. Proxies of the same client share the
+     * hedging policy, so that the hedging budget applies to the client as a whole.
+     */
+    private HedgingPolicy createHedgingPolicy(ClientBuilder<?> clientBuilder) {
+        if (!clientBuilder.isHedgingEnabled()) {
+            return null;
+        }
+        return new HedgingPolicy(
+                clientBuilder.getHedgingDelay(),
+                clientBuilder.getHedgingBudget(),
+                HedgingPolicy.idempotentOperations(
+                        clientBuilder.getServiceClass(), clientBuilder.getIdempotentOperations()),
+                this.getHedgingScheduler(),
+                this.clientMetricRegistry(clientBuilder),
+                clientBuilder.getServiceClass());
+    }
+
+    private <T> AsyncClient<T> createHedgingAsyncClient(ClientBuilder<T> clientBuilder, T proxy,
+                                                        PooledHTTPConduitFactory conduitFactory,
+                                                        HedgingPolicy hedgingPolicy) {
+        ImmutableList.Builder<T> hedgeProxies = ImmutableList.builder();
+        // load balanced hedged requests are sent by the proxy, which selects the endpoint for each request
+        for (String address : clientBuilder.isLoadBalancingEnabled() ?
+                ImmutableList.<String>of() : clientBuilder.getHedgingAddresses()) {
+            JaxWsProxyFactoryBean hedgeProxyFactory = this.createProxyFactory(clientBuilder);
+            hedgeProxyFactory.setAddress(address);
+            hedgeProxies.add(this.createClientProxy(clientBuilder, hedgeProxyFactory, conduitFactory));
+        }
+        return new AsyncClient<>(proxy, hedgingPolicy, hedgeProxies.build());
+    }
+
+    /**
+     * Returns scheduler which sends hedged requests of all clients. Scheduler is shut down when the environment is
+     * stopped.
+     */
+    protected synchronized ScheduledExecutorService getHedgingScheduler() {
+        if (this.hedgingScheduler == null) {
+            ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1,
+                    new ThreadFactoryBuilder().setDaemon(true).setNameFormat("jaxws-hedging-%d").build());
+            // hedge timers are cancelled when requests complete before the hedging delay
+            scheduler.setRemoveOnCancelPolicy(true);
+            this.hedgingScheduler = scheduler;
+        }
+        return this.hedgingScheduler;
+    }
+
+    private JaxWsProxyFactoryBean createProxyFactory(ClientBuilder<?> clientBuilder) {
 
         JaxWsProxyFactoryBean proxyFactory = new JaxWsProxyFactoryBean();
         proxyFactory.setServiceClass(clientBuilder.getServiceClass());
@@ -192,6 +701,36 @@ public class JAXWSEnvironment {
             proxyFactory.setBindingId(clientBuilder.getBindingId());
         }
 
+        // Deadline propagation
+        if (clientBuilder.isDeadlinePropagationEnabled()) {
+            proxyFactory.getOutInterceptors().add(
+                    new DeadlinePropagationInterceptor(clientBuilder.getReceiveTimeout()));
+        }
+
+        // Client side load balancing
+        if (clientBuilder.isLoadBalancingEnabled()) {
+            LoadBalancer loadBalancer = this.createLoadBalancer(clientBuilder);
+            proxyFactory.getOutInterceptors().add(loadBalancer.getOutInterceptor());
+            proxyFactory.getOutInterceptors().add(loadBalancer.getOutEndingInterceptor());
+            proxyFactory.getInInterceptors().add(loadBalancer.getInInterceptor());
+            proxyFactory.getInFaultInterceptors().add(loadBalancer.getInFaultInterceptor());
+        }
+
+        // Client metrics
+        if (clientBuilder.isInstrumented()) {
+            MetricRegistry registry = this.clientMetricRegistry(clientBuilder);
+            if (registry == null) {
+                throw new IllegalStateException("Client metrics require metric registry");
+            }
+            ClientMetrics clientMetrics = new ClientMetrics(registry, clientBuilder.getServiceClass());
+            proxyFactory.getOutInterceptors().add(clientMetrics.getOutInterceptor());
+            proxyFactory.getOutInterceptors().add(clientMetrics.getOutStreamInterceptor());
+            proxyFactory.getOutInterceptors().add(clientMetrics.getOutEndingInterceptor());
+            proxyFactory.getInInterceptors().add(clientMetrics.getInStreamInterceptor());
+            proxyFactory.getInInterceptors().add(clientMetrics.getInInterceptor());
+            proxyFactory.getInFaultInterceptors().add(clientMetrics.getInFaultInterceptor());
+        }
+
         // CXF interceptors
         if (clientBuilder.getCxfInInterceptors() != null) {
             proxyFactory.getInInterceptors().addAll(clientBuilder.getCxfInInterceptors());
@@ -206,6 +745,72 @@ public class JAXWSEnvironment {
             proxyFactory.getOutFaultInterceptors().addAll(clientBuilder.getCxfOutFaultInterceptors());
         }
 
+        return proxyFactory;
+    }
+
+    /**
+     * Creates load balancer of the client addresses. Following metrics are registered for each address under
+     * ServiceInterface.client.endpoint-N (ServiceInterface.name.client.endpoint-N when the client is named), where N
+     * is the index of the address: latency timer, failures and ejections meters, outstanding calls and ejected
+     * (0 or 1) gauges.
+     */
+    private LoadBalancer createLoadBalancer(ClientBuilder<?> clientBuilder) {
+        MetricRegistry registry = this.clientMetricRegistry(clientBuilder);
+        ImmutableList.Builder<LoadBalancer.Endpoint> endpoints = ImmutableList.builder();
+        int index = 0;
+        for (String address : clientBuilder.getAddresses()) {
+            String baseName = clientMetricName(clientBuilder, "client", "endpoint-" + index++);
+            final LoadBalancer.Endpoint endpoint = registry != null ?
+                    LoadBalancer.endpoint(address,
+                            registry.timer(MetricRegistry.name(baseName, "latency")),
+                            registry.meter(MetricRegistry.name(baseName, "failures")),
+                            registry.meter(MetricRegistry.name(baseName, "ejections"))) :
+                    LoadBalancer.endpoint(address, new Timer(), new Meter(), new Meter());
+            if (registry != null) {
+                this.registerClientGauge(registry, clientBuilder, MetricRegistry.name(baseName, "outstanding"),
+                        endpoint::getOutstanding);
+                this.registerClientGauge(registry, clientBuilder, MetricRegistry.name(baseName, "ejected"),
+                        () -> endpoint.isEjected(System.nanoTime()) ? 1 : 0);
+            }
+            endpoints.add(endpoint);
+        }
+        return new LoadBalancer(clientBuilder.getLoadBalancingStrategy(), endpoints.build(),
+                clientBuilder.getOutlierEjectionFailures(), clientBuilder.getOutlierEjectionTime());
+    }
+
+    /**
+     * Creates pooled HTTP conduit factory, which is shut down together with the client bus, or returns null when
+     * connection pool is not enabled.
+     */
+    private PooledHTTPConduitFactory createPooledConduitFactory(ClientBuilder<?> clientBuilder,
+                                                                JaxWsProxyFactoryBean proxyFactory) {
+        if (!clientBuilder.isConnectionPoolEnabled()) {
+            return null;
+        }
+        final PooledHTTPConduitFactory conduitFactory = this.createConduitFactory(clientBuilder);
+        // gauges are registered first, so that conflicting client fails before its conduit factory is registered
+        this.registerConnectionPoolGauges(clientBuilder, conduitFactory);
+        BusLifeCycleManager lifeCycleManager = proxyFactory.getBus().getExtension(BusLifeCycleManager.class);
+        if (lifeCycleManager != null) {
+            lifeCycleManager.registerLifeCycleListener(new BusLifeCycleListener() {
+                @Override
+                public void initComplete() {
+                }
+                @Override
+                public void preShutdown() {
+                }
+                @Override
+                public void postShutdown() {
+                    conduitFactory.shutdown();
+                }
+            });
+        }
+        return conduitFactory;
+    }
+
+    private <T> T createClientProxy(ClientBuilder<T> clientBuilder, JaxWsProxyFactoryBean proxyFactory,
+                                    PooledHTTPConduitFactory conduitFactory) {
+
         T proxy = clientBuilder.getServiceClass().cast(proxyFactory.create());
 
         // MTOM support
@@ -215,6 +820,12 @@ public class JAXWSEnvironment {
             binding.setMTOMEnabled(true);
         }
 
+        // Pooled HTTP connections, conduit factory has to be set before the conduit is created
+        if (conduitFactory != null) {
+            ClientProxy.getClient(proxy).getEndpoint().getEndpointInfo()
+                    .setProperty(HTTPConduitFactory.class.getName(), conduitFactory);
+        }
+
         HTTPConduit http = (HTTPConduit)ClientProxy.getClient(proxy).getConduit();
         HTTPClientPolicy client = http.getClient();
         client.setConnectionTimeout(clientBuilder.getConnectTimeout());
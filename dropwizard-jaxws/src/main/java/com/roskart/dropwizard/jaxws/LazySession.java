@@ -0,0 +1,140 @@
+package com.roskart.dropwizard.jaxws;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Hibernate session proxy, which opens the session when it is used for the first time. Operations which don't access
+ * the database do not open a session, begin a transaction or acquire a JDBC connection. Proxy answers
+ * getSessionFactory, isOpen, close, equals, hashCode and toString without opening the session.
+ * <p>
+ * Session may be opened by another session factory than the one reported by getSessionFactory, i.e. by the read
+ * replica session factory. Proxy is then bound in ManagedSessionContext under the primary session factory, where DAOs
+ * of the service find it.
+ * @see com.roskart.dropwizard.jaxws.UnitOfWorkInvoker
+ */
+public class LazySession implements InvocationHandler {
+
+    private final SessionFactory boundSessionFactory;
+    private final Supplier<Session> opener;
+    private final Consumer<Session> initializer;
+    private final Runnable closeListener;
+    private Session session;
+
+    private LazySession(SessionFactory boundSessionFactory, Supplier<Session> opener,
+                        Consumer<Session> initializer, Runnable closeListener) {
+        this.boundSessionFactory = boundSessionFactory;
+        this.opener = opener;
+        this.initializer = initializer;
+        this.closeListener = closeListener;
+    }
+
+    /**
+     * Creates lazy session proxy.
+     * @param sessionFactory Session factory used to open the session.
+     * @param initializer Configures the opened session and begins the transaction.
+     */
+    public static Session create(SessionFactory sessionFactory, Consumer<Session> initializer) {
+        return create(sessionFactory, sessionFactory::openSession, initializer, () -> { });
+    }
+
+    /**
+     * Creates lazy session proxy, which may open the session with another session factory.
+     * @param boundSessionFactory Session factory reported by the proxy.
+     * @param opener Opens the session.
+     * @param initializer Configures the opened session and begins the transaction.
+     * @param closeListener Invoked after the opened session is closed through the proxy.
+     */
+    public static Session create(SessionFactory boundSessionFactory, Supplier<Session> opener,
+                                 Consumer<Session> initializer, Runnable closeListener) {
+        return (Session)Proxy.newProxyInstance(Session.class.getClassLoader(), new Class<?>[]{ Session.class },
+                new LazySession(boundSessionFactory, opener, initializer, closeListener));
+    }
+
+    /**
+     * Returns the session opened by lazy session proxy or null when proxy was not used. Other sessions are returned
+     * unchanged.
+     */
+    public static Session getOpenedSession(Session session) {
+        if (Proxy.isProxyClass(session.getClass()) && Proxy.getInvocationHandler(session) instanceof LazySession) {
+            return ((LazySession)Proxy.getInvocationHandler(session)).session;
+        }
+        return session;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+
+        int argCount = args != null ? args.length : 0;
+
+        switch (method.getName()) {
+            case "equals":
+                if (argCount == 1) {
+                    return proxy == args[0];
+                }
+                break;
+            case "hashCode":
+                if (argCount == 0) {
+                    return System.identityHashCode(proxy);
+                }
+                break;
+            case "toString":
+                if (argCount == 0) {
+                    return "LazySession[" + (session != null ? session : "not opened") + "]";
+                }
+                break;
+            case "getSessionFactory":
+                if (argCount == 0) {
+                    return boundSessionFactory;
+                }
+                break;
+            case "isOpen":
+                if (session == null) {
+                    return true;
+                }
+                break;
+            case "close":
+                if (session == null) {
+                    return null;
+                }
+                try {
+                    session.close();
+                }
+                finally {
+                    closeListener.run();
+                }
+                return null;
+            default:
+                break;
+        }
+
+        try {
+            return method.invoke(this.open(), args);
+        }
+        catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private Session open() {
+        if (session == null) {
+            Session opened = opener.get();
+            try {
+                initializer.accept(opened);
+            }
+            catch (RuntimeException e) {
+                opened.close();
+                throw e;
+            }
+            session = opened;
+        }
+        return session;
+    }
+}
@@ -0,0 +1,306 @@
+package com.roskart.dropwizard.jaxws;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Timer;
+import com.google.common.collect.ImmutableList;
+import org.apache.cxf.interceptor.Fault;
+import org.apache.cxf.interceptor.Interceptor;
+import org.apache.cxf.message.Exchange;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.phase.AbstractPhaseInterceptor;
+import org.apache.cxf.phase.Phase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Client side load balancer, which sends each call to one of the endpoint addresses. Endpoint is selected by
+ * client side CXF interceptor, which sets the message endpoint address before the conduit sends the request.
+ * <p>
+ * Endpoints are ejected passively: endpoint which fails with consecutive transport failures (i.e. connection failure,
+ * receive timeout or HTTP error without SOAP fault) is not selected during the ejection time. Ejection time grows
+ * with each following ejection of the same endpoint without a successful call in between, up to ten times. When all
+ * endpoints are ejected, ejection is ignored. SOAP fault responses are not failures, because the endpoint responded.
+ * @see com.roskart.dropwizard.jaxws.ClientBuilder#addresses(java.util.List)
+ */
+public class LoadBalancer {
+
+    /**
+     * Endpoint selection strategy.
+     */
+    public enum Strategy {
+        /**
+         * Endpoints are used in turn.
+         */
+        ROUND_ROBIN,
+        /**
+         * Endpoint with the least number of outstanding calls is selected.
+         */
+        LEAST_OUTSTANDING,
+        /**
+         * Two random endpoints are compared and the one with lower exponentially weighted moving average latency,
+         * weighted by the number of outstanding calls, is selected.
+         */
+        POWER_OF_TWO_CHOICES
+    }
+
+    /**
+     * Endpoint address with its call statistics and metrics.
+     */
+    public static class Endpoint {
+        private static final double EWMA_WEIGHT = 0.2;
+        private final String address;
+        private final Timer latency;
+        private final Meter failures;
+        private final Meter ejections;
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private double ewmaLatency;
+        private int consecutiveFailures;
+        private int ejectionCount;
+        private long ejectedUntil;
+        Endpoint(String address, Timer latency, Meter failures, Meter ejections) {
+            this.address = address;
+            this.latency = latency;
+            this.failures = failures;
+            this.ejections = ejections;
+        }
+        public String getAddress() {
+            return address;
+        }
+        public int getOutstanding() {
+            return outstanding.get();
+        }
+        /**
+         * Returns exponentially weighted moving average latency in nanoseconds.
+         */
+        public synchronized double getEwmaLatency() {
+            return ewmaLatency;
+        }
+        public synchronized boolean isEjected(long now) {
+            return ejectedUntil - now > 0;
+        }
+        synchronized double score() {
+            return ewmaLatency * (outstanding.get() + 1);
+        }
+    }
+
+    /**
+     * Selected endpoint of the call, stored in the exchange while the call is in progress.
+     */
+    private static class Selection {
+        private final Endpoint endpoint;
+        private final long start;
+        private final AtomicBoolean completed = new AtomicBoolean();
+        Selection(Endpoint endpoint, long start) {
+            this.endpoint = endpoint;
+            this.start = start;
+        }
+    }
+
+    private final Strategy strategy;
+    private final List<Endpoint> endpoints;
+    private final int consecutiveFailures;
+    private final long ejectionTimeNanos;
+    private final LongSupplier nanoTime;
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * @param strategy Endpoint selection strategy.
+     * @param endpoints Endpoints.
+     * @param consecutiveFailures Number of consecutive transport failures which ejects the endpoint.
+     * @param ejectionTime Base ejection time in milliseconds.
+     */
+    public LoadBalancer(Strategy strategy, List<Endpoint> endpoints, int consecutiveFailures, long ejectionTime) {
+        this(strategy, endpoints, consecutiveFailures, ejectionTime, System::nanoTime);
+    }
+
+    LoadBalancer(Strategy strategy, List<Endpoint> endpoints, int consecutiveFailures, long ejectionTime,
+                 LongSupplier nanoTime) {
+        checkArgument(strategy != null, "Strategy is null");
+        checkArgument(endpoints != null && !endpoints.isEmpty(), "Endpoints are empty");
+        this.strategy = strategy;
+        this.endpoints = ImmutableList.copyOf(endpoints);
+        this.consecutiveFailures = consecutiveFailures;
+        this.ejectionTimeNanos = TimeUnit.MILLISECONDS.toNanos(ejectionTime);
+        this.nanoTime = nanoTime;
+    }
+
+    /**
+     * Creates endpoint, which can be used by load balancer.
+     */
+    public static Endpoint endpoint(String address, Timer latency, Meter failures, Meter ejections) {
+        return new Endpoint(address, latency, failures, ejections);
+    }
+
+    public Strategy getStrategy() {
+        return strategy;
+    }
+
+    public List<Endpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     * Selects endpoint for the next call.
+     */
+    public Endpoint select() {
+        long now = nanoTime.getAsLong();
+        List<Endpoint> available = new ArrayList<>(endpoints.size());
+        for (Endpoint endpoint : endpoints) {
+            if (!endpoint.isEjected(now)) {
+                available.add(endpoint);
+            }
+        }
+        if (available.isEmpty()) {
+            available = endpoints;
+        }
+
+        int start = Math.floorMod(next.getAndIncrement(), available.size());
+        Endpoint selected = available.get(start);
+        switch (strategy) {
+            case LEAST_OUTSTANDING:
+                // starts at the round-robin position, so that endpoints with equal outstanding calls are used in turn
+                for (int i = 1; i < available.size(); i++) {
+                    Endpoint endpoint = available.get((start + i) % available.size());
+                    if (endpoint.getOutstanding() < selected.getOutstanding()) {
+                        selected = endpoint;
+                    }
+                }
+                break;
+            case POWER_OF_TWO_CHOICES:
+                if (available.size() > 1) {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    int first = random.nextInt(available.size());
+                    int second = random.nextInt(available.size() - 1);
+                    if (second >= first) {
+                        second++;
+                    }
+                    Endpoint a = available.get(first);
+                    Endpoint b = available.get(second);
+                    selected = a.score() <= b.score() ? a : b;
+                }
+                break;
+            default:
+                break;
+        }
+        return selected;
+    }
+
+    /**
+     * Records the start of the call to the endpoint.
+     */
+    public void started(Endpoint endpoint) {
+        endpoint.outstanding.incrementAndGet();
+    }
+
+    /**
+     * Records the end of the call to the endpoint.
+     * @param endpoint Endpoint.
+     * @param latency Call latency in nanoseconds.
+     * @param failure True when the call failed with transport failure.
+     */
+    public void completed(Endpoint endpoint, long latency, boolean failure) {
+        endpoint.outstanding.decrementAndGet();
+        endpoint.latency.update(latency, TimeUnit.NANOSECONDS);
+        boolean ejected = false;
+        synchronized (endpoint) {
+            endpoint.ewmaLatency = endpoint.ewmaLatency == 0 ? latency :
+                    endpoint.ewmaLatency + (latency - endpoint.ewmaLatency) * Endpoint.EWMA_WEIGHT;
+            if (!failure) {
+                endpoint.consecutiveFailures = 0;
+                endpoint.ejectionCount = 0;
+            }
+            else if (++endpoint.consecutiveFailures >= consecutiveFailures && consecutiveFailures > 0) {
+                endpoint.consecutiveFailures = 0;
+                endpoint.ejectionCount = Math.min(endpoint.ejectionCount + 1, 10);
+                endpoint.ejectedUntil = nanoTime.getAsLong() + ejectionTimeNanos * endpoint.ejectionCount;
+                ejected = true;
+            }
+        }
+        if (failure) {
+            endpoint.failures.mark();
+        }
+        if (ejected) {
+            endpoint.ejections.mark();
+        }
+    }
+
+    public Interceptor<Message> getOutInterceptor() {
+        return new SelectingInterceptor();
+    }
+
+    public Interceptor<Message> getOutEndingInterceptor() {
+        return new OneWayEndingInterceptor();
+    }
+
+    public Interceptor<Message> getInInterceptor() {
+        return new ResponseInterceptor();
+    }
+
+    public Interceptor<Message> getInFaultInterceptor() {
+        return new ResponseInterceptor();
+    }
+
+    private void complete(Message message, boolean failure) {
+        Exchange exchange = message.getExchange();
+        Selection selection = exchange != null ? exchange.get(Selection.class) : null;
+        if (selection != null && selection.completed.compareAndSet(false, true)) {
+            this.completed(selection.endpoint, nanoTime.getAsLong() - selection.start, failure);
+        }
+    }
+
+    /**
+     * Selects endpoint and sets its address to the message. Records transport failure when out chain is unwound.
+     */
+    private class SelectingInterceptor extends AbstractPhaseInterceptor<Message> {
+        SelectingInterceptor() {
+            super(Phase.SETUP);
+        }
+        @Override
+        public void handleMessage(Message message) throws Fault {
+            Endpoint endpoint = select();
+            message.put(Message.ENDPOINT_ADDRESS, endpoint.getAddress());
+            started(endpoint);
+            message.getExchange().put(Selection.class, new Selection(endpoint, nanoTime.getAsLong()));
+        }
+        @Override
+        public void handleFault(Message message) {
+            complete(message, true);
+        }
+    }
+
+    /**
+     * Completes one-way calls, which do not receive a response.
+     */
+    private class OneWayEndingInterceptor extends AbstractPhaseInterceptor<Message> {
+        OneWayEndingInterceptor() {
+            super(Phase.SETUP_ENDING);
+        }
+        @Override
+        public void handleMessage(Message message) throws Fault {
+            if (message.getExchange().isOneWay()) {
+                complete(message, false);
+            }
+        }
+    }
+
+    /**
+     * Completes the call when response or fault response was received.
+     */
+    private class ResponseInterceptor extends AbstractPhaseInterceptor<Message> {
+        ResponseInterceptor() {
+            super(Phase.POST_INVOKE);
+        }
+        @Override
+        public void handleMessage(Message message) throws Fault {
+            complete(message, false);
+        }
+    }
+}
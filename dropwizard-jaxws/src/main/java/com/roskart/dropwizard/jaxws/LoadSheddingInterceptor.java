@@ -0,0 +1,65 @@
+package com.roskart.dropwizard.jaxws;
+
+import com.codahale.metrics.Meter;
+import org.apache.cxf.interceptor.Fault;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.phase.AbstractPhaseInterceptor;
+import org.apache.cxf.phase.Phase;
+import org.apache.cxf.transport.http.AbstractHTTPDestination;
+import org.eclipse.jetty.server.Request;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.http.HttpServletRequest;
+import java.net.HttpURLConnection;
+
+/**
+ * A CXF interceptor that drops requests which waited in the server queue longer than the configured budget. Such
+ * requests have most likely already timed out on the client side. Requests are dropped in the RECEIVE phase, before
+ * the message is unmarshalled, and HTTP 503 response without a body is returned.
+ * Queue time is measured from the moment Jetty received the request.
+ */
+public class LoadSheddingInterceptor extends AbstractPhaseInterceptor<Message> {
+
+    private static final Logger log = LoggerFactory.getLogger(LoadSheddingInterceptor.class);
+    private final long maxQueueTimeMillis;
+    private final Meter shed;
+
+    /**
+     * @param maxQueueTimeMillis Maximum time in milliseconds request may wait before it is processed.
+     * @param shed Meter of dropped requests.
+     */
+    public LoadSheddingInterceptor(long maxQueueTimeMillis, Meter shed) {
+        super(Phase.RECEIVE);
+        this.maxQueueTimeMillis = maxQueueTimeMillis;
+        this.shed = shed;
+    }
+
+    @Override
+    public void handleMessage(final Message message) throws Fault {
+
+        HttpServletRequest request = (HttpServletRequest)message.get(AbstractHTTPDestination.HTTP_REQUEST);
+        if (request == null) {
+            // not a HTTP request, i.e. local transport
+            return;
+        }
+
+        long queueTime = getQueueTime(request);
+        if (queueTime > maxQueueTimeMillis) {
+            shed.mark();
+            log.debug("Request dropped after {} ms in queue", queueTime);
+            ErrorResponses.send(message, HttpURLConnection.HTTP_UNAVAILABLE);
+        }
+    }
+
+    /**
+     * Returns time in milliseconds since request was received by Jetty or 0 when time is not known.
+     */
+    protected long getQueueTime(HttpServletRequest request) {
+        Request baseRequest = Request.getBaseRequest(request);
+        if (baseRequest == null || baseRequest.getTimeStamp() == 0) {
+            return 0;
+        }
+        return System.currentTimeMillis() - baseRequest.getTimeStamp();
+    }
+}
@@ -0,0 +1,110 @@
+package com.roskart.dropwizard.jaxws;
+
+import com.codahale.metrics.Meter;
+import org.apache.cxf.continuations.Continuation;
+import org.apache.cxf.interceptor.Fault;
+import org.apache.cxf.message.Exchange;
+import org.apache.cxf.message.FaultMode;
+import org.apache.cxf.service.invoker.Invoker;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Wraps underlying invoker and runs it on the provided executor, i.e. on virtual threads or on a bounded per-endpoint
+ * thread pool. Request is suspended using
+ * CXF continuation while the underlying invoker runs, so the server thread is released. When underlying invoker
+ * completes, request is resumed and CXF invokes this invoker again, which returns stored result.
+ * <p>
+ * This invoker has to wrap all other invokers, because invokers bind state (i.e. Hibernate session) to the invoking
+ * thread. Operations are invoked on the calling thread when continuations are not available (i.e. servlet does not
+ * support async requests) and for operations which use @UseAsyncMethod. When executor rejects the invocation, request
+ * fails without being suspended.
+ * <p>
+ * Thread bound state of the server thread is not available on the executor thread. Deadline is bound again by
+ * DeadlineInvoker and CXF binds the message context of the injected WebServiceContext when it invokes the service,
+ * but PhaseInterceptorChain.getCurrentMessage() returns null. Operations should use WebServiceContext instead.
+ */
+public class OffloadingInvoker extends AbstractInvoker {
+
+    /**
+     * Result of the offloaded invocation, stored in continuation until request is resumed.
+     */
+    private static class Outcome {
+        private final Object result;
+        private final Throwable failure;
+        Outcome(Object result, Throwable failure) {
+            this.result = result;
+            this.failure = failure;
+        }
+    }
+
+    private final Executor executor;
+    private final Meter rejections;
+
+    public OffloadingInvoker(Invoker underlying, Executor executor, Meter rejections) {
+        super(underlying);
+        this.executor = executor;
+        this.rejections = rejections;
+    }
+
+    @Override
+    public Object invoke(final Exchange exchange, final Object o) {
+
+        final Continuation continuation = this.getInvocationPlan(exchange).isAsync() ? null : getContinuation(exchange);
+
+        if (continuation == null) {
+            return underlying.invoke(exchange, o);
+        }
+
+        synchronized (continuation) {
+            if (continuation.isNew()) {
+                // Offloaded invocation can not resume the continuation before it is suspended, because it has to
+                // acquire the continuation lock first.
+                try {
+                    executor.execute(() -> invokeAndResume(continuation, exchange, o));
+                }
+                catch (RejectedExecutionException e) {
+                    rejections.mark();
+                    // Prevent CXF PhaseInterceptorChain to log complete stack trace
+                    exchange.getInMessage().put(FaultMode.class, FaultMode.CHECKED_APPLICATION_FAULT);
+                    throw new Fault(e);
+                }
+                continuation.suspend(0);
+                return null;
+            }
+            Object stored = continuation.getObject();
+            if (stored instanceof Outcome) {
+                // request was resumed after offloaded invocation completed
+                continuation.setObject(null);
+                return result((Outcome)stored);
+            }
+        }
+
+        return underlying.invoke(exchange, o);
+    }
+
+    private void invokeAndResume(Continuation continuation, Exchange exchange, Object o) {
+        Outcome outcome;
+        try {
+            outcome = new Outcome(underlying.invoke(exchange, o), null);
+        }
+        catch (Throwable t) {
+            outcome = new Outcome(null, t);
+        }
+        synchronized (continuation) {
+            continuation.setObject(outcome);
+            continuation.resume();
+        }
+    }
+
+    private Object result(Outcome outcome) {
+        if (outcome.failure instanceof Exception) {
+            this.<RuntimeException>rethrow((Exception)outcome.failure); // unchecked rethrow
+        }
+        else if (outcome.failure != null) {
+            throw (Error)outcome.failure;
+        }
+        return outcome.result;
+    }
+}
@@ -0,0 +1,211 @@
+package com.roskart.dropwizard.jaxws;
+
+import javax.xml.bind.JAXBElement;
+import javax.xml.datatype.Duration;
+import javax.xml.datatype.XMLGregorianCalendar;
+import javax.xml.namespace.QName;
+import javax.xml.ws.AsyncHandler;
+import javax.xml.ws.Holder;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Key of unmarshalled service operation parameters. Parameters are converted to a canonical representation built
+ * from immutable values, lists, sets and maps, which is compared by value. JAXB generated parameter classes are
+ * represented by their field values, therefore they do not need to implement equals and hashCode.
+ * Canonical representation is a deep copy, so key is not affected if parameters are modified after the key is created.
+ */
+public final class ParameterKey {
+
+    private static final Set<Class<?>> VALUE_TYPES = new HashSet<>(Arrays.<Class<?>>asList(
+            String.class, Boolean.class, Character.class, Byte.class, Short.class, Integer.class, Long.class,
+            Float.class, Double.class, BigInteger.class, BigDecimal.class, QName.class, UUID.class, Class.class));
+
+    private static final ClassValue<Field[]> FIELDS = new ClassValue<Field[]>() {
+        @Override
+        protected Field[] computeValue(Class<?> type) {
+            List<Field> fields = new ArrayList<>();
+            for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+                for (Field f : c.getDeclaredFields()) {
+                    if (!Modifier.isStatic(f.getModifiers()) && !f.isSynthetic()) {
+                        f.setAccessible(true);
+                        fields.add(f);
+                    }
+                }
+            }
+            return fields.toArray(new Field[0]);
+        }
+    };
+
+    private final Object canonicalParameters;
+    private final int hashCode;
+
+    private ParameterKey(Object canonicalParameters) {
+        this.canonicalParameters = canonicalParameters;
+        this.hashCode = canonicalParameters != null ? canonicalParameters.hashCode() : 0;
+    }
+
+    /**
+     * Creates key of unmarshalled service operation parameters.
+     * @param parameters Parameters as passed to the CXF invoker.
+     * @return Parameter key or null when parameters can not be represented by value, i.e. when they contain
+     * streams, data handlers or cyclic object graphs.
+     */
+    public static ParameterKey of(Object parameters) {
+        return of(parameters, null);
+    }
+
+    /**
+     * Creates key of unmarshalled service operation parameters, which is equal only to keys with equal scope.
+     * @param parameters Parameters as passed to the CXF invoker.
+     * @param scope Scope of the key compared by value, i.e. name of the authenticated principal, or null.
+     * @return Parameter key or null when parameters or scope can not be represented by value.
+     */
+    public static ParameterKey of(Object parameters, Object scope) {
+        try {
+            Object canonicalParameters = canonicalize(parameters, new IdentityHashMap<>());
+            return new ParameterKey(scope != null ?
+                    Arrays.asList(ParameterKey.class, canonicalize(scope, new IdentityHashMap<>()),
+                            canonicalParameters) :
+                    canonicalParameters);
+        }
+        catch (RuntimeException | IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Checks whether parameters of the service method can be used as a key of its results. Methods with Holder or
+     * AsyncHandler parameters are not supported, because their results are not returned by the invoker alone.
+     */
+    public static boolean isSupported(Method method) {
+        for (Class<?> parameterType : method.getParameterTypes()) {
+            if (Holder.class.isAssignableFrom(parameterType) || AsyncHandler.class.isAssignableFrom(parameterType)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Object canonicalize(Object value, Map<Object, Object> visiting) throws IllegalAccessException {
+
+        if (value == null) {
+            return null;
+        }
+
+        Class<?> type = value.getClass();
+
+        if (VALUE_TYPES.contains(type) || type.isEnum()) {
+            return value;
+        }
+        if (value instanceof Enum || type.getName().startsWith("java.time.")) {
+            // enum constants with a body, immutable java.time values
+            return value;
+        }
+        if (type == Object.class) {
+            // placeholder, i.e. MessageContentsList.REMOVED_MARKER
+            return Object.class;
+        }
+        if (value instanceof XMLGregorianCalendar || value instanceof Duration) {
+            return Arrays.asList(type, value.toString());
+        }
+        if (value instanceof Date) {
+            return Arrays.asList(type, ((Date)value).getTime());
+        }
+        if (value instanceof byte[]) {
+            return ByteBuffer.wrap(((byte[])value).clone());
+        }
+
+        if (visiting.put(value, value) != null) {
+            throw new IllegalArgumentException("Cyclic object graph");
+        }
+        try {
+            if (type.isArray()) {
+                int length = Array.getLength(value);
+                List<Object> list = new ArrayList<>(length + 1);
+                list.add(type);
+                for (int i = 0; i < length; i++) {
+                    list.add(canonicalize(Array.get(value, i), visiting));
+                }
+                return list;
+            }
+            if (value instanceof Set) {
+                Set<Object> set = new HashSet<>();
+                for (Object o : (Set<?>)value) {
+                    set.add(canonicalize(o, visiting));
+                }
+                return set;
+            }
+            if (value instanceof Collection) {
+                List<Object> list = new ArrayList<>(((Collection<?>)value).size());
+                for (Object o : (Collection<?>)value) {
+                    list.add(canonicalize(o, visiting));
+                }
+                return list;
+            }
+            if (value instanceof Map) {
+                Map<Object, Object> map = new HashMap<>();
+                for (Map.Entry<?, ?> e : ((Map<?, ?>)value).entrySet()) {
+                    map.put(canonicalize(e.getKey(), visiting), canonicalize(e.getValue(), visiting));
+                }
+                return map;
+            }
+            if (value instanceof JAXBElement) {
+                JAXBElement<?> element = (JAXBElement<?>)value;
+                return Arrays.asList(JAXBElement.class, element.getName(), element.getDeclaredType(),
+                        element.isNil(), canonicalize(element.getValue(), visiting));
+            }
+            if (type.getName().startsWith("java.") || type.getName().startsWith("javax.")) {
+                // streams, data handlers, sources etc.
+                throw new IllegalArgumentException("Unsupported parameter type " + type.getName());
+            }
+
+            // bean, represented by values of its fields
+            Field[] fields = FIELDS.get(type);
+            List<Object> list = new ArrayList<>(fields.length + 1);
+            list.add(type);
+            for (Field f : fields) {
+                list.add(canonicalize(f.get(value), visiting));
+            }
+            return list;
+        }
+        finally {
+            visiting.remove(value);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ParameterKey)) {
+            return false;
+        }
+        ParameterKey other = (ParameterKey)o;
+        return hashCode == other.hashCode &&
+                (canonicalParameters == null ? other.canonicalParameters == null :
+                        canonicalParameters.equals(other.canonicalParameters));
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+}
@@ -0,0 +1,66 @@
+package com.roskart.dropwizard.jaxws;
+
+import org.apache.cxf.transport.http.asyncclient.AsyncHTTPConduitFactory;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+
+import java.lang.reflect.Field;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * CXF asynchronous HTTP conduit factory, which sends all client requests, including synchronous ones, over pooled
+ * persistent connections of the Apache HttpAsyncClient. Factory is created for each client with connection pool
+ * settings from ClientBuilder and is set on the client endpoint, so that clients do not share connection pools.
+ * <p>
+ * CXF does not expose the connection pool of the factory, so it is looked up reflectively for connection pool
+ * statistics. Statistics are not available before the first request is sent.
+ * @see com.roskart.dropwizard.jaxws.ClientBuilder#connectionPool(int, int)
+ */
+public class PooledHTTPConduitFactory extends AsyncHTTPConduitFactory {
+
+    private static final Field CONNECTION_MANAGER_FIELD = findConnectionManagerField();
+
+    public PooledHTTPConduitFactory(ClientBuilder<?> clientBuilder) {
+        super(configuration(clientBuilder));
+    }
+
+    static Map<String, Object> configuration(ClientBuilder<?> clientBuilder) {
+        Map<String, Object> conf = new HashMap<>();
+        conf.put(USE_POLICY, UseAsyncPolicy.ALWAYS);
+        conf.put(MAX_CONNECTIONS, clientBuilder.getMaxConnections());
+        conf.put(MAX_PER_HOST_CONNECTIONS, clientBuilder.getMaxConnectionsPerHost());
+        conf.put(CONNECTION_TTL, clientBuilder.getConnectionKeepAlive());
+        conf.put(CONNECTION_MAX_IDLE, clientBuilder.getConnectionMaxIdle());
+        conf.put(SO_KEEPALIVE, true);
+        conf.put(TCP_NODELAY, true);
+        return conf;
+    }
+
+    private static Field findConnectionManagerField() {
+        for (Field field : AsyncHTTPConduitFactory.class.getDeclaredFields()) {
+            if (PoolingNHttpClientConnectionManager.class.isAssignableFrom(field.getType())) {
+                field.setAccessible(true);
+                return field;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns total connection pool statistics or null when the pool was not created yet.
+     */
+    public PoolStats getTotalStats() {
+        if (CONNECTION_MANAGER_FIELD == null) {
+            return null;
+        }
+        try {
+            PoolingNHttpClientConnectionManager connectionManager =
+                    (PoolingNHttpClientConnectionManager)CONNECTION_MANAGER_FIELD.get(this);
+            return connectionManager != null ? connectionManager.getTotalStats() : null;
+        }
+        catch (IllegalAccessException e) {
+            return null;
+        }
+    }
+}
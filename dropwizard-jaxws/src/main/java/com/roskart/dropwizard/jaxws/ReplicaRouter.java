@@ -0,0 +1,94 @@
+package com.roskart.dropwizard.jaxws;
+
+import com.google.common.collect.ImmutableList;
+import org.hibernate.SessionFactory;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Routes read-only units of work to read replica session factories. Replica is selected round-robin or by the least
+ * number of sessions currently opened by the units of work.
+ * @see com.roskart.dropwizard.jaxws.UnitOfWorkInvoker
+ */
+public class ReplicaRouter {
+
+    /**
+     * Replica selection strategy.
+     */
+    public enum Strategy {
+        ROUND_ROBIN,
+        LEAST_ACTIVE
+    }
+
+    /**
+     * Read replica session factory and the number of its sessions opened by units of work.
+     */
+    public static class Replica {
+        private final SessionFactory sessionFactory;
+        private final AtomicInteger active = new AtomicInteger();
+        Replica(SessionFactory sessionFactory) {
+            this.sessionFactory = sessionFactory;
+        }
+        public SessionFactory getSessionFactory() {
+            return sessionFactory;
+        }
+        public int getActive() {
+            return active.get();
+        }
+        void acquired() {
+            active.incrementAndGet();
+        }
+        void released() {
+            active.decrementAndGet();
+        }
+    }
+
+    private final Strategy strategy;
+    private final List<Replica> replicas;
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * @param strategy Replica selection strategy.
+     * @param replicaSessionFactories Read replica session factories.
+     */
+    public ReplicaRouter(Strategy strategy, List<SessionFactory> replicaSessionFactories) {
+        checkArgument(strategy != null, "Strategy is null");
+        checkArgument(replicaSessionFactories != null && !replicaSessionFactories.isEmpty(),
+                "Replica session factories are empty");
+        this.strategy = strategy;
+        ImmutableList.Builder<Replica> builder = ImmutableList.builder();
+        for (SessionFactory sessionFactory : replicaSessionFactories) {
+            builder.add(new Replica(sessionFactory));
+        }
+        this.replicas = builder.build();
+    }
+
+    public Strategy getStrategy() {
+        return strategy;
+    }
+
+    public List<Replica> getReplicas() {
+        return replicas;
+    }
+
+    /**
+     * Selects replica for the next read-only unit of work. Least active selection starts at the round-robin
+     * position, so that replicas with equal number of active sessions are used in turn.
+     */
+    public Replica select() {
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        Replica selected = replicas.get(start);
+        if (strategy == Strategy.LEAST_ACTIVE) {
+            for (int i = 1; i < replicas.size(); i++) {
+                Replica replica = replicas.get((start + i) % replicas.size());
+                if (replica.getActive() < selected.getActive()) {
+                    selected = replica;
+                }
+            }
+        }
+        return selected;
+    }
+}
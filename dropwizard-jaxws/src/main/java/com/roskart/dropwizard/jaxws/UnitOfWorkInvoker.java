@@ -1,68 +1,440 @@
 package com.roskart.dropwizard.jaxws;
 
-import com.google.common.collect.ImmutableMap;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Timer;
 import io.dropwizard.hibernate.UnitOfWork;
 import org.apache.cxf.message.Exchange;
 import org.apache.cxf.service.invoker.Invoker;
+import org.hibernate.BaseSessionEventListener;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.Transaction;
 import org.hibernate.context.internal.ManagedSessionContext;
 import org.hibernate.resource.transaction.spi.TransactionStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
 
 /**
  * Wraps underlying invoker in a Hibernate session. Code in this class is based on Dropwizard's UnitOfWorkApplication
  * listener and UnitOfWorkAspect. We don't use UnitOfWorkAspect here because it is declared package private.
+ * <p>
+ * Invocation of an operation using @UseAsyncMethod is suspended until the asynchronous response is ready, after which
+ * CXF invokes the invoker chain again, possibly on another thread. Session and its transaction are kept in the
+ * exchange while the invocation is suspended and are bound again to the thread which resumes the invocation, where
+ * the transaction is committed or rolled back. When the request times out, fails or completes without being resumed,
+ * i.e. because the asynchronous response was never produced or the connection was closed, transaction is rolled back
+ * and session closed by the listener of the asynchronous servlet request.
+ * <p>
+ * When lazy sessions are enabled for the endpoint, a LazySession proxy is bound instead of the session, therefore
+ * session is opened and transaction started only when the operation accesses the database. Read-only units of work
+ * of endpoints with read replicas always use lazy sessions, which are opened by the replica selected by ReplicaRouter.
+ * <p>
+ * When operation metrics are available, session opening, transaction begin, service body, commit and rollback are
+ * timed separately, and statements executed by the session are counted with a Hibernate session event listener.
+ * <p>
+ * Unit of work of an operation annotated with @UnitOfWorkRetry is retried with a new session when it fails with a
+ * retryable exception, i.e. because of a deadlock or optimistic locking failure. Operation is invoked again with the
+ * same parameters on the invoking thread, which sleeps during the backoff. Backoffs and retries are bounded by the
+ * caller's deadline, when it is available.
  * @see io.dropwizard.hibernate.UnitOfWorkAspect
  * @see io.dropwizard.hibernate.UnitOfWorkApplicationListener
  * @see io.dropwizard.hibernate.UnitOfWorkAwareProxyFactory
  */
 public class UnitOfWorkInvoker extends AbstractInvoker {
 
+    private static final Logger log = LoggerFactory.getLogger(UnitOfWorkInvoker.class);
+
+    private static final String QUERY_TIMEOUT_HINT = "javax.persistence.query.timeout";
+    private static final String SUSPENDED_UNIT_OF_WORK = UnitOfWorkInvoker.class.getName() + ".suspended";
+
+    /**
+     * Metrics of the unit of work of a single service operation: timers of its phases, histograms of statements
+     * executed, entities in the session and second-level cache hits, and meter of units of work which executed more
+     * statements than the threshold, i.e. because of N+1 selects.
+     */
+    public static class UnitOfWorkMetrics {
+        private final String operationName;
+        private final Timer open;
+        private final Timer begin;
+        private final Timer body;
+        private final Timer commit;
+        private final Timer rollback;
+        private final Histogram statements;
+        private final Histogram entities;
+        private final Histogram cacheHits;
+        private final Meter excessiveStatements;
+        private final int statementThreshold;
+        public UnitOfWorkMetrics(String operationName, Timer open, Timer begin, Timer body, Timer commit,
+                                 Timer rollback, Histogram statements, Histogram entities, Histogram cacheHits,
+                                 Meter excessiveStatements, int statementThreshold) {
+            this.operationName = operationName;
+            this.open = open;
+            this.begin = begin;
+            this.body = body;
+            this.commit = commit;
+            this.rollback = rollback;
+            this.statements = statements;
+            this.entities = entities;
+            this.cacheHits = cacheHits;
+            this.excessiveStatements = excessiveStatements;
+            this.statementThreshold = statementThreshold;
+        }
+        public String getOperationName() {
+            return operationName;
+        }
+        public Timer getOpen() {
+            return open;
+        }
+        public Timer getBegin() {
+            return begin;
+        }
+        public Timer getBody() {
+            return body;
+        }
+        public Timer getCommit() {
+            return commit;
+        }
+        public Timer getRollback() {
+            return rollback;
+        }
+        public Histogram getStatements() {
+            return statements;
+        }
+        public Histogram getEntities() {
+            return entities;
+        }
+        public Histogram getCacheHits() {
+            return cacheHits;
+        }
+        public Meter getExcessiveStatements() {
+            return excessiveStatements;
+        }
+        public int getStatementThreshold() {
+            return statementThreshold;
+        }
+    }
+
+    /**
+     * Retry policy of the unit of work of a single service operation, read from @UnitOfWorkRetry annotation.
+     */
+    public static class RetryPolicy {
+        private final String operationName;
+        private final UnitOfWorkRetry retry;
+        private final Meter retries;
+        private final Meter exhausted;
+        public RetryPolicy(String operationName, UnitOfWorkRetry retry, Meter retries, Meter exhausted) {
+            this.operationName = operationName;
+            this.retry = retry;
+            this.retries = retries;
+            this.exhausted = exhausted;
+        }
+        public String getOperationName() {
+            return operationName;
+        }
+        public int getMaxAttempts() {
+            return retry.maxAttempts();
+        }
+        public Meter getRetries() {
+            return retries;
+        }
+        public Meter getExhausted() {
+            return exhausted;
+        }
+        /**
+         * True when the exception or any of its causes is retryable.
+         */
+        public boolean isRetryable(Throwable t) {
+            for (Throwable cause = t; cause != null; cause = cause.getCause() != cause ? cause.getCause() : null) {
+                for (Class<? extends Throwable> retryable : retry.retryOn()) {
+                    if (retryable.isInstance(cause)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+        /**
+         * Jittered exponential backoff in milliseconds before the retry of the failed attempt.
+         */
+        public long backoff(int attempt) {
+            long backoff = retry.backoffUnit().toMillis(retry.backoff()) << Math.min(attempt - 1, 20);
+            return backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+        }
+    }
+
+    /**
+     * Counts JDBC statements and second-level cache hits of a session.
+     */
+    static class StatementCounter extends BaseSessionEventListener {
+        private int statements;
+        private int cacheHits;
+        @Override
+        public void jdbcExecuteStatementStart() {
+            statements++;
+        }
+        @Override
+        public void jdbcExecuteBatchStart() {
+            statements++;
+        }
+        @Override
+        public void cacheGetEnd(boolean hit) {
+            if (hit) {
+                cacheHits++;
+            }
+        }
+    }
+
+    /**
+     * Unit of work of the suspended asynchronous invocation.
+     */
+    private static class SuspendedUnitOfWork {
+        private final Session session;
+        private final StatementCounter counter;
+        SuspendedUnitOfWork(Session session, StatementCounter counter) {
+            this.session = session;
+            this.counter = counter;
+        }
+    }
+
     private final SessionFactory sessionFactory;
-    ImmutableMap<String, UnitOfWork> unitOfWorkMethods;
 
-    public UnitOfWorkInvoker(Invoker underlying, ImmutableMap<String, UnitOfWork> unitOfWorkMethods,
-                             SessionFactory sessionFactory) {
+    public UnitOfWorkInvoker(Invoker underlying, SessionFactory sessionFactory) {
         super(underlying);
-        this.unitOfWorkMethods = unitOfWorkMethods;
         this.sessionFactory = sessionFactory;
     }
 
     @Override
     public Object invoke(Exchange exchange, Object o) {
 
-        Object result;
-        String methodname = this.getTargetMethod(exchange).getName();
+        InvocationPlan plan = this.getInvocationPlan(exchange);
 
-        if (unitOfWorkMethods.containsKey(methodname)) {
+        if (plan.getUnitOfWork() == null) {
+            return underlying.invoke(exchange, o);
+        }
 
-            final Session session = sessionFactory.openSession();
-            UnitOfWork unitOfWork = unitOfWorkMethods.get(methodname);
+        RetryPolicy retryPolicy = plan.isAsync() ? null : plan.getRetryPolicy();
+        if (retryPolicy == null) {
+            return invokeInUnitOfWork(exchange, o, plan);
+        }
 
+        // Backoff blocks the invoking thread, therefore retries and their backoffs have to fit in the caller's deadline
+        final Deadline deadline = Deadline.current();
+        for (int attempt = 1; ; attempt++) {
             try {
-                configureSession(session, unitOfWork);
-                ManagedSessionContext.bind(session);
-                beginTransaction(session, unitOfWork);
+                return invokeInUnitOfWork(exchange, o, plan);
+            }
+            catch (Exception e) {
+                if (!retryPolicy.isRetryable(e)) {
+                    this.<RuntimeException>rethrow(e); // unchecked rethrow
+                }
+                long backoff = retryPolicy.backoff(attempt);
+                if (attempt >= retryPolicy.getMaxAttempts() ||
+                        (deadline != null && deadline.remainingMillis() <= backoff)) {
+                    retryPolicy.getExhausted().mark();
+                    this.<RuntimeException>rethrow(e); // unchecked rethrow
+                }
+                retryPolicy.getRetries().mark();
+                log.debug("Retrying unit of work of {} after {} ms, attempt {} failed: {}",
+                        retryPolicy.getOperationName(), backoff, attempt, e.toString());
+                try {
+                    Thread.sleep(backoff);
+                }
+                catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    this.<RuntimeException>rethrow(e); // unchecked rethrow
+                }
+                if (deadline != null && deadline.isExpired()) {
+                    retryPolicy.getExhausted().mark();
+                    this.<RuntimeException>rethrow(e); // unchecked rethrow
+                }
+            }
+        }
+    }
+
+    private Object invokeInUnitOfWork(Exchange exchange, Object o, InvocationPlan plan) {
+
+        Object result;
+        UnitOfWork unitOfWork = plan.getUnitOfWork();
+        UnitOfWorkSettings settings = plan.getUnitOfWorkSettings();
+        UnitOfWorkMetrics metrics = plan.getUnitOfWorkMetrics();
+
+        // Session of the resumed asynchronous invocation is reused
+        SuspendedUnitOfWork suspended =
+                plan.isAsync() ? (SuspendedUnitOfWork)exchange.remove(SUSPENDED_UNIT_OF_WORK) : null;
+        final boolean resumed = suspended != null;
+        final StatementCounter counter =
+                resumed ? suspended.counter : metrics != null ? new StatementCounter() : null;
+        final ReplicaRouter.Replica replica =
+                !resumed && plan.getReplicaRouter() != null ? plan.getReplicaRouter().select() : null;
+        final boolean lazy = !resumed && (plan.isLazySession() || replica != null);
+        final Session session;
+        if (resumed) {
+            session = suspended.session;
+        }
+        else if (replica != null) {
+            // Read replica session is bound under the primary session factory, where DAOs find it
+            session = LazySession.create(sessionFactory, () -> openSession(replica.getSessionFactory(), metrics),
+                    s -> {
+                        initializeSession(s, unitOfWork, settings, metrics, counter);
+                        replica.acquired();
+                    }, replica::released);
+        }
+        else if (lazy) {
+            // Session is opened and transaction started when session is used for the first time
+            session = LazySession.create(sessionFactory, () -> openSession(sessionFactory, metrics),
+                    s -> initializeSession(s, unitOfWork, settings, metrics, counter), () -> { });
+        }
+        else {
+            session = openSession(sessionFactory, metrics);
+        }
+        boolean suspending = false;
+
+        try {
+            ManagedSessionContext.bind(session);
+            if (!resumed && !lazy) {
+                initializeSession(session, unitOfWork, settings, metrics, counter);
+            }
+            try {
+                final Timer.Context bodyContext = time(metrics, UnitOfWorkMetrics::getBody);
                 try {
                     result = underlying.invoke(exchange, o);
-                    commitTransaction(session, unitOfWork);
+                } finally {
+                    stop(bodyContext);
+                }
+                if (plan.isAsync() && this.isSuspended(exchange)) {
+                    // Keep unit of work open until the asynchronous response is ready
+                    exchange.put(SUSPENDED_UNIT_OF_WORK, new SuspendedUnitOfWork(session, counter));
+                    // Unit of work is closed either by the resumed invocation or by the listener of the suspended
+                    // request, whichever removes it from the exchange first
+                    this.whenAbandoned(exchange, () -> closeAbandoned(exchange, unitOfWork, metrics));
+                    suspending = true;
                     return result;
-                } catch (Exception e) {
-                    rollbackTransaction(session, unitOfWork);
-                    this.<RuntimeException>rethrow(e); // unchecked rethrow
-                    return null; // avoid compiler warning
                 }
-            } finally {
+                final Timer.Context commitContext = time(metrics, UnitOfWorkMetrics::getCommit);
+                try {
+                    commitTransaction(LazySession.getOpenedSession(session), unitOfWork);
+                } finally {
+                    stop(commitContext);
+                }
+                return result;
+            } catch (Exception e) {
+                final Timer.Context rollbackContext = time(metrics, UnitOfWorkMetrics::getRollback);
+                try {
+                    rollbackTransaction(LazySession.getOpenedSession(session), unitOfWork);
+                } finally {
+                    stop(rollbackContext);
+                }
+                this.<RuntimeException>rethrow(e); // unchecked rethrow
+                return null; // avoid compiler warning
+            }
+        } finally {
+            if (!suspending) {
+                updateStatistics(LazySession.getOpenedSession(session), metrics, counter);
+                // Lazy session proxy closes the session only when it was opened
                 session.close();
-                ManagedSessionContext.unbind(sessionFactory);
             }
+            ManagedSessionContext.unbind(sessionFactory);
         }
-        else {
-            return underlying.invoke(exchange, o);
+    }
+
+    /**
+     * Rolls back transaction and closes session of the suspended unit of work, unless it was already resumed.
+     */
+    private void closeAbandoned(Exchange exchange, UnitOfWork unitOfWork, UnitOfWorkMetrics metrics) {
+        SuspendedUnitOfWork suspended = (SuspendedUnitOfWork)exchange.remove(SUSPENDED_UNIT_OF_WORK);
+        if (suspended == null) {
+            return;
+        }
+        log.warn("Suspended unit of work of {} was not resumed, rolling back",
+                metrics != null ? metrics.getOperationName() : exchange.getBindingOperationInfo().getName());
+        Session session = LazySession.getOpenedSession(suspended.session);
+        final Timer.Context rollbackContext = time(metrics, UnitOfWorkMetrics::getRollback);
+        try {
+            rollbackTransaction(session, unitOfWork);
+        } finally {
+            stop(rollbackContext);
+            updateStatistics(session, metrics, suspended.counter);
+            suspended.session.close();
+        }
+    }
+
+    private Session openSession(SessionFactory factory, UnitOfWorkMetrics metrics) {
+        final Timer.Context context = time(metrics, UnitOfWorkMetrics::getOpen);
+        try {
+            return factory.openSession();
+        } finally {
+            stop(context);
+        }
+    }
+
+    private void initializeSession(Session session, UnitOfWork unitOfWork, UnitOfWorkSettings settings,
+                                   UnitOfWorkMetrics metrics, StatementCounter counter) {
+        configureSession(session, unitOfWork, settings);
+        if (counter != null) {
+            session.addEventListeners(counter);
+        }
+        final Timer.Context context = time(metrics, UnitOfWorkMetrics::getBegin);
+        try {
+            beginTransaction(session, unitOfWork);
+        } finally {
+            stop(context);
+        }
+    }
+
+    /**
+     * Updates statement, entity and cache hit histograms of the operation when its session was opened.
+     */
+    private void updateStatistics(Session session, UnitOfWorkMetrics metrics, StatementCounter counter) {
+        if (session == null || metrics == null || counter == null) {
+            return;
+        }
+        metrics.getStatements().update(counter.statements);
+        metrics.getCacheHits().update(counter.cacheHits);
+        if (session.isOpen()) {
+            metrics.getEntities().update(session.getStatistics().getEntityCount());
+        }
+        if (counter.statements > metrics.getStatementThreshold()) {
+            metrics.getExcessiveStatements().mark();
+            log.warn("Unit of work of {} executed {} statements, possible N+1 selects",
+                    metrics.getOperationName(), counter.statements);
+        }
+    }
+
+    private static Timer.Context time(UnitOfWorkMetrics metrics, Function<UnitOfWorkMetrics, Timer> timer) {
+        return metrics != null ? timer.apply(metrics).time() : null;
+    }
+
+    private static void stop(Timer.Context context) {
+        if (context != null) {
+            context.stop();
         }
     }
 
+    /**
+     * Wraps task which is run on another thread by an asynchronous operation, i.e. by the operation using CXF
+     * UseAsyncMethod annotation. Session of the current unit of work is bound to the thread running the task. This
+     * method has to be invoked within the unit of work, while session is bound to the invoking thread. Session must
+     * not be used by more than one thread at a time.
+     * @param sessionFactory Session factory of the endpoint.
+     * @param task Task accessing the database.
+     */
+    public static Runnable withCurrentSession(SessionFactory sessionFactory, Runnable task) {
+        final Session session = sessionFactory.getCurrentSession();
+        return () -> {
+            ManagedSessionContext.bind(session);
+            try {
+                task.run();
+            }
+            finally {
+                ManagedSessionContext.unbind(sessionFactory);
+            }
+        };
+    }
+
     /**
      * @see io.dropwizard.hibernate.UnitOfWorkAspect#beginTransaction()
      */
@@ -75,17 +447,40 @@ public class UnitOfWorkInvoker extends AbstractInvoker {
     /**
      * @see io.dropwizard.hibernate.UnitOfWorkAspect#configureSession()
      */
-    private void configureSession(Session session, UnitOfWork unitOfWork) {
+    private void configureSession(Session session, UnitOfWork unitOfWork, UnitOfWorkSettings settings) {
         session.setDefaultReadOnly(unitOfWork.readOnly());
         session.setCacheMode(unitOfWork.cacheMode());
         session.setHibernateFlushMode(unitOfWork.flushMode());
+        if (settings != null && settings.jdbcBatchSize() > 0) {
+            session.setJdbcBatchSize(settings.jdbcBatchSize());
+        }
+        configureQueryTimeout(session, settings);
+    }
+
+    /**
+     * Limits query execution time to the query timeout of the operation and to the remaining time of the caller's
+     * deadline, whichever is shorter. JDBC query timeout is set in seconds, therefore timeout is at least one second.
+     */
+    private void configureQueryTimeout(Session session, UnitOfWorkSettings settings) {
+        long timeout = Long.MAX_VALUE;
+        if (settings != null && settings.queryTimeout() > 0) {
+            timeout = settings.queryTimeoutUnit().toMillis(settings.queryTimeout());
+        }
+        Deadline deadline = Deadline.current();
+        if (deadline != null) {
+            timeout = Math.min(timeout, deadline.remainingMillis());
+        }
+        if (timeout != Long.MAX_VALUE) {
+            timeout = Math.max(1000, Math.min(Integer.MAX_VALUE, timeout));
+            session.setProperty(QUERY_TIMEOUT_HINT, (int)timeout);
+        }
     }
 
     /**
      * @see io.dropwizard.hibernate.UnitOfWorkAspect#rollbackTransaction()
      */
     private void rollbackTransaction(Session session, UnitOfWork unitOfWork) {
-        if (unitOfWork.transactional()) {
+        if (session != null && unitOfWork.transactional()) {
             final Transaction txn = session.getTransaction();
             if (txn != null && txn.getStatus().equals(TransactionStatus.ACTIVE)) {
                 txn.rollback();
@@ -97,7 +492,7 @@ public class UnitOfWorkInvoker extends AbstractInvoker {
      * @see io.dropwizard.hibernate.UnitOfWorkAspect#commitTransaction()
      */
     private void commitTransaction(Session session, UnitOfWork unitOfWork) {
-        if (unitOfWork.transactional()) {
+        if (session != null && unitOfWork.transactional()) {
             final Transaction txn = session.getTransaction();
             if (txn != null && txn.getStatus().equals(TransactionStatus.ACTIVE)) {
                 txn.commit();
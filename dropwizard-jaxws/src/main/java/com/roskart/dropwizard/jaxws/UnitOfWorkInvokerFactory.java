@@ -1,36 +1,113 @@
 package com.roskart.dropwizard.jaxws;
 
-import com.google.common.collect.ImmutableMap;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
 import io.dropwizard.hibernate.UnitOfWork;
 import org.apache.cxf.service.invoker.Invoker;
 import org.hibernate.SessionFactory;
 
 import java.lang.reflect.Method;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
 public class UnitOfWorkInvokerFactory {
 
     /**
-     * Factory method for creating UnitOfWorkInvoker.
+     * Default number of statements executed by a unit of work, above which the unit of work is reported as a likely
+     * N+1 selects problem.
      */
-    public Invoker create(Object service, Invoker rootInvoker, SessionFactory sessionFactory) {
+    public static final int DEFAULT_STATEMENT_THRESHOLD = 50;
 
-        ImmutableMap.Builder<String, UnitOfWork> unitOfWorkMethodsBuilder =
-                new ImmutableMap.Builder<>();
+    private final MetricRegistry metricRegistry;
+    private final int statementThreshold;
 
-        for (Method m : service.getClass().getMethods()) {
-            if (m.isAnnotationPresent(UnitOfWork.class)) {
-                unitOfWorkMethodsBuilder.put(m.getName(), m.getAnnotation(UnitOfWork.class));
-            }
+    /**
+     * Creates factory without unit of work metrics.
+     */
+    public UnitOfWorkInvokerFactory() {
+        this(null, DEFAULT_STATEMENT_THRESHOLD);
+    }
+
+    /**
+     * @param metricRegistry Metric registry for unit of work timers, histograms and meters.
+     */
+    public UnitOfWorkInvokerFactory(MetricRegistry metricRegistry) {
+        this(metricRegistry, DEFAULT_STATEMENT_THRESHOLD);
+    }
+
+    /**
+     * @param metricRegistry Metric registry for unit of work timers, histograms and meters.
+     * @param statementThreshold Number of statements executed by a unit of work, above which the unit of work is
+     *                           reported as a likely N+1 selects problem.
+     */
+    public UnitOfWorkInvokerFactory(MetricRegistry metricRegistry, int statementThreshold) {
+        this.metricRegistry = metricRegistry;
+        this.statementThreshold = statementThreshold;
+    }
+
+    /**
+     * Resolves metrics of the unit of work of service method annotated with @UnitOfWork. Returned metrics are stored
+     * in the operation's invocation plan.
+     * @return Unit of work metrics or null when method is not annotated or factory has no metric registry.
+     */
+    public UnitOfWorkInvoker.UnitOfWorkMetrics createUnitOfWorkMetrics(Method m) {
+        if (metricRegistry == null || !m.isAnnotationPresent(UnitOfWork.class)) {
+            return null;
         }
-        ImmutableMap<String, UnitOfWork> unitOfWorkMethods = unitOfWorkMethodsBuilder.build();
+        return new UnitOfWorkInvoker.UnitOfWorkMetrics(
+                m.getDeclaringClass().getSimpleName() + "." + m.getName(),
+                metricRegistry.timer(name(m, "open")),
+                metricRegistry.timer(name(m, "begin")),
+                metricRegistry.timer(name(m, "body")),
+                metricRegistry.timer(name(m, "commit")),
+                metricRegistry.timer(name(m, "rollback")),
+                metricRegistry.histogram(name(m, "statements")),
+                metricRegistry.histogram(name(m, "entities")),
+                metricRegistry.histogram(name(m, "cache-hits")),
+                metricRegistry.meter(name(m, "excessive-statements")),
+                statementThreshold);
+    }
 
-        Invoker invoker = rootInvoker;
+    /**
+     * Resolves retry policy of service method annotated with @UnitOfWork and @UnitOfWorkRetry. Returned policy is
+     * stored in the operation's invocation plan.
+     * @return Retry policy or null when method is not annotated.
+     */
+    public UnitOfWorkInvoker.RetryPolicy createRetryPolicy(Method m) {
+        UnitOfWorkRetry retry = m.getAnnotation(UnitOfWorkRetry.class);
+        if (retry == null || !m.isAnnotationPresent(UnitOfWork.class)) {
+            return null;
+        }
+        checkArgument(retry.maxAttempts() > 0, "Max attempts must be positive");
+        checkArgument(retry.backoff() >= 0, "Backoff must not be negative");
+        return new UnitOfWorkInvoker.RetryPolicy(
+                m.getDeclaringClass().getSimpleName() + "." + m.getName(),
+                retry,
+                meter(m, "retries"),
+                meter(m, "retries-exhausted"));
+    }
+
+    private Meter meter(Method m, String suffix) {
+        return metricRegistry != null ? metricRegistry.meter(name(m, suffix)) : new Meter();
+    }
 
-        if (unitOfWorkMethods.size() > 0) {
-            invoker = new UnitOfWorkInvoker(invoker, unitOfWorkMethods, sessionFactory);
+    private String name(Method m, String suffix) {
+        return MetricRegistry.name(m.getDeclaringClass(), m.getName(), "unit-of-work", suffix);
+    }
+
+    /**
+     * Factory method for creating UnitOfWorkInvoker. UnitOfWork annotations are read from the operations' invocation
+     * plans, service is only scanned to find out whether any of its methods is annotated with @UnitOfWork.
+     */
+    public Invoker create(Object service, Invoker rootInvoker, SessionFactory sessionFactory) {
+
+        for (Method m : service.getClass().getMethods()) {
+            if (m.isAnnotationPresent(UnitOfWork.class)) {
+                return new UnitOfWorkInvoker(rootInvoker, sessionFactory);
+            }
         }
 
-        return invoker;
+        return rootInvoker;
     }
 
 }
@@ -0,0 +1,56 @@
+package com.roskart.dropwizard.jaxws;
+
+import org.hibernate.PessimisticLockException;
+import org.hibernate.StaleStateException;
+import org.hibernate.exception.LockAcquisitionException;
+
+import javax.persistence.OptimisticLockException;
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * When annotating a service operation method annotated with @UnitOfWork, the whole unit of work is retried with a new
+ * session when it fails with one of the retryable exceptions, i.e. because of a deadlock or optimistic locking
+ * failure. Service method must not have side effects outside of the database, because it is invoked again.
+ * Service method must not modify its parameters either, because retry invokes it with the same parameter objects.
+ * Operations using @UseAsyncMethod are not retried.
+ * @see com.roskart.dropwizard.jaxws.UnitOfWorkInvoker
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface UnitOfWorkRetry {
+
+    /**
+     * Maximum number of attempts, including the first one.
+     */
+    int maxAttempts() default 3;
+
+    /**
+     * Backoff before the first retry. Backoff is doubled for each following retry and randomized between half and
+     * full backoff. Invoking thread sleeps during the backoff. Retry is not attempted when the caller's deadline would
+     * expire during the backoff, therefore total backoff is bounded by the caller's deadline. Without a deadline
+     * (i.e. when the endpoint does not honor request timeout), it is bounded only by the maximum number of attempts.
+     */
+    long backoff() default 50;
+
+    /**
+     * Time unit of backoff.
+     */
+    TimeUnit backoffUnit() default TimeUnit.MILLISECONDS;
+
+    /**
+     * Retryable exceptions. Unit of work is retried when the exception or any of its causes is an instance of one of
+     * these exceptions.
+     */
+    Class<? extends Throwable>[] retryOn() default {
+            LockAcquisitionException.class,
+            PessimisticLockException.class,
+            StaleStateException.class,
+            OptimisticLockException.class
+    };
+}
@@ -0,0 +1,38 @@
+package com.roskart.dropwizard.jaxws;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Additional Hibernate session settings of a service operation method annotated with @UnitOfWork. Settings are applied
+ * when the session of the unit of work is opened.
+ * <p>
+ * JDBC fetch size and ordering of inserts and updates can not be set per session in Hibernate. Use Query.setFetchSize
+ * and hibernate.jdbc.fetch_size, hibernate.order_inserts and hibernate.order_updates session factory properties.
+ * @see com.roskart.dropwizard.jaxws.UnitOfWorkInvoker
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface UnitOfWorkSettings {
+
+    /**
+     * JDBC batch size of the session. Zero means the batch size of the session factory (hibernate.jdbc.batch_size).
+     */
+    int jdbcBatchSize() default 0;
+
+    /**
+     * Timeout of queries created by the session. When the caller's deadline is shorter, deadline is used. Zero means
+     * no timeout. JDBC query timeout is set in seconds, therefore timeout is at least one second.
+     */
+    long queryTimeout() default 0;
+
+    /**
+     * Time unit of queryTimeout.
+     */
+    TimeUnit queryTimeoutUnit() default TimeUnit.SECONDS;
+}
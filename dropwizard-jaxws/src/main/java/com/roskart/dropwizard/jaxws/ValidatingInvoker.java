@@ -5,7 +5,6 @@ import io.dropwizard.validation.ConstraintViolations;
 import org.apache.cxf.helpers.CastUtils;
 import org.apache.cxf.message.Exchange;
 import org.apache.cxf.message.FaultMode;
-import org.apache.cxf.message.MessageContentsList;
 import org.apache.cxf.service.invoker.Invoker;
 
 import javax.validation.Validator;
@@ -14,6 +13,7 @@ import javax.validation.ValidationException;
 import javax.validation.groups.Default;
 import javax.xml.ws.AsyncHandler;
 import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
 import java.util.Collection;
 import java.util.List;
 
@@ -35,35 +35,42 @@ public class ValidatingInvoker extends AbstractInvoker {
     @Override
     public Object invoke(Exchange exchange, Object o) {
 
-        // get annotations declared on parameters
-        Annotation[][] parameterAnnotations = this.getTargetMethod(exchange).getParameterAnnotations();
+        // get validation groups resolved from annotations declared on parameters
+        Class<?>[][] parameterValidationGroups = this.getInvocationPlan(exchange).getParameterValidationGroups();
 
-        /* Get actual parameter list start (code copied from org.apache.cxf.service.invoker.AbstractInvoker.invoke) */
-        List<Object> params = null;
-        if (o instanceof List) {
-            params = CastUtils.cast((List<?>) o);
-        } else if (o != null) {
-            params = new MessageContentsList(o);
+        // operation has no parameters to validate
+        if (parameterValidationGroups.length == 0 || o == null) {
+            return underlying.invoke(exchange, o);
         }
-        /* Get actual parameter list end */
 
-        // validate each parameter in the list
-        if (params != null) {
-            int i = 0;
-            try {
+        try {
+            if (o instanceof List) {
+                // validate each parameter in the list
+                List<Object> params = CastUtils.cast((List<?>) o);
+                int i = 0;
                 for (Object parameter : params) {
-                    if(parameter == null || !AsyncHandler.class.isAssignableFrom(parameter.getClass())) {
-                        validate(parameterAnnotations[i++], parameter);
+                    if (i >= parameterValidationGroups.length) {
+                        break;
                     }
+                    if (parameterValidationGroups[i] != null) {
+                        if (parameter == null || !AsyncHandler.class.isAssignableFrom(parameter.getClass())) {
+                            validate(parameterValidationGroups[i], parameter);
+                        }
+                    }
+                    i++;
                 }
             }
-            catch (ValidationException ve) {
-                // Prevent CXF PhaseInterceptorChain to log complete stack trace (happens because ValidationException
-                // extends RuntimeException). Only error message with INFO level will be logged.
-                exchange.getInMessage().put(FaultMode.class, FaultMode.CHECKED_APPLICATION_FAULT);
-                throw ve;
+            else {
+                // single parameter (see org.apache.cxf.service.invoker.AbstractInvoker.invoke)
+                validate(parameterValidationGroups[0], o);
             }
         }
+        catch (ValidationException ve) {
+            // Prevent CXF PhaseInterceptorChain to log complete stack trace (happens because ValidationException
+            // extends RuntimeException). Only error message with INFO level will be logged.
+            exchange.getInMessage().put(FaultMode.class, FaultMode.CHECKED_APPLICATION_FAULT);
+            throw ve;
+        }
 
         return underlying.invoke(exchange, o);
     }
@@ -76,8 +83,7 @@ public class ValidatingInvoker extends AbstractInvoker {
      *   for null parameter values:
      *   java.lang.IllegalArgumentException: HV000116: The object to be validated must not be null.
      */
-    private Object validate(Annotation[] annotations, Object value) {
-        final Class<?>[] classes = findValidationGroups(annotations);
+    private Object validate(Class<?>[] classes, Object value) {
 
         if (classes != null) {
             final Collection<String> errors = ConstraintViolations.format(
@@ -95,10 +101,27 @@ public class ValidatingInvoker extends AbstractInvoker {
         return value;
     }
 
+    /**
+     * Resolves validation groups for each parameter of the service operation method. Null element means that the
+     * parameter is not validated. Empty array is returned when none of the parameters is validated, in which case
+     * invoker skips validation altogether. Validation groups are resolved once per operation and stored in its
+     * invocation plan.
+     */
+    public static Class<?>[][] findParameterValidationGroups(Method method) {
+        Annotation[][] parameterAnnotations = method.getParameterAnnotations();
+        Class<?>[][] parameterValidationGroups = new Class<?>[parameterAnnotations.length][];
+        boolean validated = false;
+        for (int i = 0; i < parameterAnnotations.length; i++) {
+            parameterValidationGroups[i] = findValidationGroups(parameterAnnotations[i]);
+            validated |= parameterValidationGroups[i] != null;
+        }
+        return validated ? parameterValidationGroups : new Class<?>[0][];
+    }
+
     /**
      * Copied from com.yammer.dropwizard.jersey.jackson.JacksonMessageBodyProvider#findValidationGroups()
      */
-    private Class<?>[] findValidationGroups(Annotation[] annotations) {
+    private static Class<?>[] findValidationGroups(Annotation[] annotations) {
         for (Annotation annotation : annotations) {
             if (annotation.annotationType() == Valid.class) {
                 return DEFAULT_GROUP_ARRAY;
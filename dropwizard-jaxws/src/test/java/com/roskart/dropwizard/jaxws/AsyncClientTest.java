@@ -0,0 +1,216 @@
+package com.roskart.dropwizard.jaxws;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.apache.cxf.endpoint.Client;
+import org.apache.cxf.endpoint.ClientCallback;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.SocketTimeoutException;
+import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.hasItems;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyVararg;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+
+public class AsyncClientTest {
+
+    interface FooService {
+        String foo(String value);
+        @Idempotent
+        String bar(String value);
+    }
+
+    Client client;
+    ClientCallback callback;
+    AsyncClient<FooService> asyncClient;
+
+    @Before
+    public void setup() throws Exception {
+        client = mock(Client.class);
+        doAnswer(invocation -> callback = (ClientCallback)invocation.getArguments()[0])
+                .when(client).invoke(any(ClientCallback.class), eq("foo"), (Object[])anyVararg());
+        asyncClient = new AsyncClient<>(mock(FooService.class), client);
+    }
+
+    @Test
+    public void completesWithResult() throws Exception {
+        CompletableFuture<String> future = asyncClient.invoke("foo", "value");
+
+        verify(client).invoke(callback, "foo", "value");
+        assertThat(future.isDone(), equalTo(false));
+
+        callback.handleResponse(new HashMap<>(), new Object[]{ "foo return" });
+
+        assertThat(future.get(), equalTo("foo return"));
+    }
+
+    @Test
+    public void completesWithNullResultOfVoidOperation() throws Exception {
+        CompletableFuture<Object> future = asyncClient.invoke("foo", "value");
+
+        callback.handleResponse(new HashMap<>(), null);
+
+        assertThat(future.get(), is(nullValue()));
+    }
+
+    @Test
+    public void failsWithException() throws Exception {
+        CompletableFuture<String> future = asyncClient.invoke("foo", "value");
+
+        callback.handleException(new HashMap<>(), new SocketTimeoutException("Read timed out"));
+
+        try {
+            future.get();
+            fail();
+        }
+        catch (ExecutionException e) {
+            assertThat(e.getCause(), is(instanceOf(SocketTimeoutException.class)));
+        }
+    }
+
+    @Test
+    public void failsWhenInvocationFails() throws Exception {
+        doThrow(new IllegalStateException("no conduit"))
+                .when(client).invoke(any(ClientCallback.class), eq("foo"), (Object[])anyVararg());
+
+        CompletableFuture<String> future = asyncClient.invoke("foo", "value");
+
+        assertThat(future.isCompletedExceptionally(), equalTo(true));
+    }
+
+    @Test
+    public void cancelsCallback() {
+        CompletableFuture<String> future = asyncClient.invoke("foo", "value");
+
+        future.cancel(true);
+
+        assertThat(callback.isCancelled(), equalTo(true));
+    }
+
+    private HedgingPolicy hedgingPolicy(int budgetPercent, ScheduledExecutorService scheduler,
+                                        MetricRegistry metricRegistry) {
+        return new HedgingPolicy(100, budgetPercent,
+                HedgingPolicy.idempotentOperations(FooService.class, ImmutableSet.of("foo")),
+                scheduler, metricRegistry, FooService.class);
+    }
+
+    @Test
+    public void idempotentOperations() {
+        assertThat(HedgingPolicy.idempotentOperations(FooService.class, ImmutableSet.of("foo")),
+                hasItems("foo", "bar"));
+    }
+
+    @Test
+    public void hedgedRequestWins() throws Exception {
+        ScheduledExecutorService scheduler = mock(ScheduledExecutorService.class);
+        ScheduledFuture<?> hedgeTimer = mock(ScheduledFuture.class);
+        Runnable[] scheduled = new Runnable[1];
+        doAnswer(invocation -> {
+            scheduled[0] = (Runnable)invocation.getArguments()[0];
+            return hedgeTimer;
+        }).when(scheduler).schedule(any(Runnable.class), eq(100L), eq(TimeUnit.MILLISECONDS));
+
+        Client hedgeClient = mock(Client.class);
+        ClientCallback[] hedgeCallback = new ClientCallback[1];
+        doAnswer(invocation -> hedgeCallback[0] = (ClientCallback)invocation.getArguments()[0])
+                .when(hedgeClient).invoke(any(ClientCallback.class), eq("foo"), (Object[])anyVararg());
+
+        MetricRegistry metricRegistry = new MetricRegistry();
+        asyncClient = new AsyncClient<>(mock(FooService.class), client,
+                hedgingPolicy(100, scheduler, metricRegistry), ImmutableList.of(hedgeClient));
+
+        CompletableFuture<String> future = asyncClient.invoke("foo", "value");
+        ClientCallback originalCallback = callback;
+
+        scheduled[0].run();
+
+        verify(hedgeClient).invoke(hedgeCallback[0], "foo", "value");
+
+        hedgeCallback[0].handleResponse(new HashMap<>(), new Object[]{ "hedge return" });
+
+        assertThat(future.get(), equalTo("hedge return"));
+        assertThat(originalCallback.isCancelled(), equalTo(true));
+        assertThat(metricRegistry.meter(MetricRegistry.name(FooService.class, "foo", "client", "hedges"))
+                .getCount(), equalTo(1L));
+        assertThat(metricRegistry.meter(MetricRegistry.name(FooService.class, "foo", "client", "hedges-won"))
+                .getCount(), equalTo(1L));
+    }
+
+    @Test
+    public void originalRequestWinsBeforeHedgingDelay() throws Exception {
+        ScheduledExecutorService scheduler = mock(ScheduledExecutorService.class);
+        ScheduledFuture<?> hedgeTimer = mock(ScheduledFuture.class);
+        doReturn(hedgeTimer).when(scheduler).schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+
+        asyncClient = new AsyncClient<>(mock(FooService.class), client,
+                hedgingPolicy(100, scheduler, new MetricRegistry()), ImmutableList.of());
+
+        CompletableFuture<String> future = asyncClient.invoke("foo", "value");
+        callback.handleResponse(new HashMap<>(), new Object[]{ "foo return" });
+
+        assertThat(future.get(), equalTo("foo return"));
+        verify(hedgeTimer).cancel(true);
+    }
+
+    @Test
+    public void hedgedRequestIsThrottledByBudget() {
+        ScheduledExecutorService scheduler = mock(ScheduledExecutorService.class);
+        Runnable[] scheduled = new Runnable[1];
+        doAnswer(invocation -> {
+            scheduled[0] = (Runnable)invocation.getArguments()[0];
+            return mock(ScheduledFuture.class);
+        }).when(scheduler).schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+
+        MetricRegistry metricRegistry = new MetricRegistry();
+        asyncClient = new AsyncClient<>(mock(FooService.class), client,
+                hedgingPolicy(50, scheduler, metricRegistry), ImmutableList.of());
+
+        CompletableFuture<String> future = asyncClient.invoke("foo", "value");
+        scheduled[0].run();
+
+        verify(client, times(1)).invoke(any(ClientCallback.class), eq("foo"), (Object[])anyVararg());
+        assertThat(future.isDone(), equalTo(false));
+        assertThat(metricRegistry.meter(MetricRegistry.name(FooService.class, "foo", "client", "hedges-throttled"))
+                .getCount(), equalTo(1L));
+    }
+
+    @Test
+    public void failsWhenAllRequestsFail() throws Exception {
+        ScheduledExecutorService scheduler = mock(ScheduledExecutorService.class);
+        Runnable[] scheduled = new Runnable[1];
+        doAnswer(invocation -> {
+            scheduled[0] = (Runnable)invocation.getArguments()[0];
+            return mock(ScheduledFuture.class);
+        }).when(scheduler).schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+
+        asyncClient = new AsyncClient<>(mock(FooService.class), client,
+                hedgingPolicy(100, scheduler, new MetricRegistry()), ImmutableList.of());
+
+        CompletableFuture<String> future = asyncClient.invoke("foo", "value");
+        ClientCallback originalCallback = callback;
+        scheduled[0].run();
+        ClientCallback hedgeCallback = callback;
+
+        originalCallback.handleException(new HashMap<>(), new SocketTimeoutException("Read timed out"));
+        assertThat(future.isDone(), equalTo(false));
+
+        hedgeCallback.handleException(new HashMap<>(), new SocketTimeoutException("Read timed out"));
+        assertThat(future.isCompletedExceptionally(), equalTo(true));
+    }
+}
@@ -0,0 +1,261 @@
+package com.roskart.dropwizard.jaxws;
+
+import com.codahale.metrics.MetricRegistry;
+import com.roskart.dropwizard.jaxws.auth.User;
+import org.apache.cxf.continuations.Continuation;
+import org.apache.cxf.continuations.ContinuationProvider;
+import org.apache.cxf.message.Exchange;
+import org.apache.cxf.message.ExchangeImpl;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.message.MessageImpl;
+import org.apache.cxf.service.invoker.Invoker;
+import org.apache.cxf.service.model.BindingOperationInfo;
+import org.apache.cxf.service.model.OperationInfo;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.xml.ws.Holder;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.*;
+
+public class CachingInvokerFactoryTest {
+
+    class Param {
+        private String value;
+        public Param(String value) {
+            this.value = value;
+        }
+    }
+
+    class FooService {
+        private int invocations = 0;
+        public String foo(Param param) {
+            return "foo return " + (++invocations);
+        }
+        @CacheResult(maxEntries = 10)
+        public String cached(Param param) {
+            if (param == null) {
+                throw new RuntimeException("Uh oh");
+            }
+            return "cached return " + (++invocations);
+        }
+        @CacheResult
+        public void holder(Holder<String> holder) {
+        }
+    }
+
+    public class FooInvoker implements Invoker {
+        @Override
+        public Object invoke(Exchange exchange, Object o) {
+            return fooService.foo((Param)((Object[])o)[0]);
+        }
+    }
+
+    public class CachedInvoker implements Invoker {
+        @Override
+        public Object invoke(Exchange exchange, Object o) {
+            return fooService.cached((Param)((Object[])o)[0]);
+        }
+    }
+
+    CachingInvokerFactory invokerBuilder;
+    FooService fooService;
+    MetricRegistry metricRegistry;
+
+    // CXF Exchange contains message exchange and is used by Invoker to obtain invoked method name
+    Exchange exchange;
+
+    @Before
+    public void setup() {
+        exchange = mock(Exchange.class);
+        BindingOperationInfo boi = mock(BindingOperationInfo.class);
+        when(exchange.getBindingOperationInfo()).thenReturn(boi);
+        OperationInfo oi = mock(OperationInfo.class);
+        when(boi.getOperationInfo()).thenReturn(oi);
+        metricRegistry = new MetricRegistry();
+        invokerBuilder = new CachingInvokerFactory(metricRegistry);
+        fooService = new FooService();
+    }
+
+    /**
+     * Utility method that mimics runtime CXF behaviour. Enables AbstractInvoker.getInvocationPlan to work properly
+     * during the test.
+     */
+    private void setTargetMethod(Exchange exchange, String methodName, Class<?>... parameterTypes) {
+
+        try {
+            OperationInfo oi = exchange.getBindingOperationInfo().getOperationInfo();
+            Method method = FooService.class.getMethod(methodName, parameterTypes);
+            when(oi.getProperty(InvocationPlan.class.getName())).thenReturn(
+                    new InvocationPlan.Builder(method)
+                            .resultCache(invokerBuilder.createResultCache(method))
+                            .build());
+        }
+        catch (Exception e) {
+            fail("setTargetMethod failed: " + e.getClass().getName() + ": " + e.getMessage());
+        }
+    }
+
+    private long meterCount(String methodName, String suffix) {
+        return metricRegistry.meter(MetricRegistry.name(FooService.class, methodName, suffix)).getCount();
+    }
+
+    @Test
+    public void noAnnotation() {
+        Invoker invoker = invokerBuilder.create(fooService, new FooInvoker());
+        this.setTargetMethod(exchange, "foo", Param.class); // simulate CXF behavior
+
+        assertThat(invoker, is(instanceOf(CachingInvoker.class)));
+
+        assertEquals("foo return 1", invoker.invoke(exchange, new Object[]{ new Param("a") }));
+        assertEquals("foo return 2", invoker.invoke(exchange, new Object[]{ new Param("a") }));
+    }
+
+    @Test
+    public void noAnnotatedMethods() {
+        Invoker rootInvoker = mock(Invoker.class);
+        Invoker invoker = invokerBuilder.create(new Object(), rootInvoker);
+        assertThat(invoker == rootInvoker, is(true));
+    }
+
+    @Test
+    public void cacheResultAnnotation() {
+        Invoker invoker = invokerBuilder.create(fooService, new CachedInvoker());
+        this.setTargetMethod(exchange, "cached", Param.class); // simulate CXF behavior
+
+        assertEquals("cached return 1", invoker.invoke(exchange, new Object[]{ new Param("a") }));
+        assertEquals("cached return 1", invoker.invoke(exchange, new Object[]{ new Param("a") }));
+        assertEquals("cached return 2", invoker.invoke(exchange, new Object[]{ new Param("b") }));
+        assertEquals("cached return 2", invoker.invoke(exchange, new Object[]{ new Param("b") }));
+
+        assertEquals(2, meterCount("cached", "cache-hits"));
+        assertEquals(2, meterCount("cached", "cache-misses"));
+    }
+
+    @Test
+    public void cacheResultPerPrincipal() {
+        Invoker invoker = invokerBuilder.create(fooService, new CachedInvoker());
+        this.setTargetMethod(exchange, "cached", Param.class); // simulate CXF behavior
+        Message inMessage = new MessageImpl();
+        when(exchange.getInMessage()).thenReturn(inMessage);
+
+        inMessage.put(BasicAuthenticationInterceptor.PRINCIPAL_KEY, new User("alice"));
+        assertEquals("cached return 1", invoker.invoke(exchange, new Object[]{ new Param("a") }));
+        assertEquals("cached return 1", invoker.invoke(exchange, new Object[]{ new Param("a") }));
+
+        inMessage.put(BasicAuthenticationInterceptor.PRINCIPAL_KEY, new User("bob"));
+        assertEquals("cached return 2", invoker.invoke(exchange, new Object[]{ new Param("a") }));
+
+        inMessage.remove(BasicAuthenticationInterceptor.PRINCIPAL_KEY);
+        assertEquals("cached return 3", invoker.invoke(exchange, new Object[]{ new Param("a") }));
+
+        assertEquals(1, meterCount("cached", "cache-hits"));
+        assertEquals(3, meterCount("cached", "cache-misses"));
+    }
+
+    @Test
+    public void cacheResultOfSuspendedAsyncOperation() throws Exception {
+
+        // Simulate CXF behavior: invocation of @UseAsyncMethod operation is suspended on first invoke and resumed
+        // when the asynchronous response is ready.
+        Continuation continuation = mock(Continuation.class);
+        when(continuation.isPending()).thenReturn(true, false);
+        ContinuationProvider provider = mock(ContinuationProvider.class);
+        when(provider.getContinuation()).thenReturn(continuation);
+        Message inMessage = mock(Message.class);
+        when(inMessage.get(ContinuationProvider.class.getName())).thenReturn(provider);
+
+        Exchange asyncExchange = new ExchangeImpl();
+        asyncExchange.put(BindingOperationInfo.class, exchange.getBindingOperationInfo());
+        asyncExchange.setInMessage(inMessage);
+
+        Method method = FooService.class.getMethod("cached", Param.class);
+        when(exchange.getBindingOperationInfo().getOperationInfo().getProperty(InvocationPlan.class.getName()))
+                .thenReturn(new InvocationPlan.Builder(method)
+                        .async(true)
+                        .resultCache(invokerBuilder.createResultCache(method))
+                        .build());
+
+        Invoker rootInvoker = mock(Invoker.class);
+        when(rootInvoker.invoke(any(Exchange.class), any())).thenReturn(null, "async return");
+        Invoker invoker = invokerBuilder.create(fooService, rootInvoker);
+
+        assertThat(invoker.invoke(asyncExchange, new Object[]{ new Param("a") }), is(nullValue()));
+        assertEquals("async return", invoker.invoke(asyncExchange, new Object[]{ new Param("a") }));
+        assertEquals("async return", invoker.invoke(exchange, new Object[]{ new Param("a") }));
+
+        verify(rootInvoker, times(2)).invoke(any(Exchange.class), any());
+        assertEquals(1, meterCount("cached", "cache-hits"));
+        assertEquals(1, meterCount("cached", "cache-misses"));
+    }
+
+    @Test
+    public void cacheResultWithException() {
+        Invoker invoker = invokerBuilder.create(fooService, new CachedInvoker());
+        this.setTargetMethod(exchange, "cached", Param.class); // simulate CXF behavior
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                invoker.invoke(exchange, new Object[]{ null });
+                fail();
+            }
+            catch (Exception e) {
+                assertEquals("Uh oh", e.getMessage());
+            }
+        }
+
+        assertEquals(0, meterCount("cached", "cache-hits"));
+        assertEquals(2, meterCount("cached", "cache-misses"));
+    }
+
+    @Test
+    public void cacheResultEviction() {
+        Invoker invoker = invokerBuilder.create(fooService, new CachedInvoker());
+        this.setTargetMethod(exchange, "cached", Param.class); // simulate CXF behavior
+
+        for (int i = 0; i < 100; i++) {
+            invoker.invoke(exchange, new Object[]{ new Param(Integer.toString(i)) });
+        }
+
+        CachingInvoker.ResultCache resultCache = ((InvocationPlan)exchange.getBindingOperationInfo()
+                .getOperationInfo().getProperty(InvocationPlan.class.getName())).getResultCache();
+        resultCache.getCache().cleanUp();
+
+        assertThat(resultCache.getCache().estimatedSize() <= 10, is(true));
+        assertThat(meterCount("cached", "cache-evictions") >= 90, is(true));
+    }
+
+    @Test
+    public void cacheResultWithHolderParameter() throws Exception {
+        assertThat(invokerBuilder.createResultCache(FooService.class.getMethod("holder", Holder.class)),
+                is(nullValue()));
+    }
+
+    @Test
+    public void parameterKey() {
+        assertEquals(ParameterKey.of(Arrays.asList(new Param("a"), 1)),
+                ParameterKey.of(Arrays.asList(new Param("a"), 1)));
+        assertThat(ParameterKey.of(Arrays.asList(new Param("a"), 1))
+                .equals(ParameterKey.of(Arrays.asList(new Param("b"), 1))), is(false));
+        assertThat(ParameterKey.of(Arrays.asList(new Param("a"), 1))
+                .equals(ParameterKey.of(Arrays.asList(new Param("a"), 2L))), is(false));
+        assertThat(ParameterKey.of(new StreamParam()), is(nullValue()));
+        assertEquals(ParameterKey.of(new Param("a"), "alice"), ParameterKey.of(new Param("a"), "alice"));
+        assertThat(ParameterKey.of(new Param("a"), "alice").equals(ParameterKey.of(new Param("a"), "bob")), is(false));
+        assertThat(ParameterKey.of(new Param("a"), "alice").equals(ParameterKey.of(new Param("a"))), is(false));
+    }
+
+    class StreamParam {
+        private InputStream stream = new ByteArrayInputStream(new byte[0]);
+    }
+}
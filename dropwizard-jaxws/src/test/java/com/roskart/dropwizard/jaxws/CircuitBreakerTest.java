@@ -0,0 +1,134 @@
+package com.roskart.dropwizard.jaxws;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class CircuitBreakerTest {
+
+    long now = 0;
+    CircuitBreaker circuitBreaker = new CircuitBreaker(50, 4, 1000, () -> now);
+
+    private void call(boolean failure) {
+        CircuitBreaker.Permit permit = circuitBreaker.tryAcquire();
+        assertThat(permit, notNullValue());
+        if (failure) {
+            circuitBreaker.onFailure(permit);
+        }
+        else {
+            circuitBreaker.onSuccess(permit);
+        }
+    }
+
+    @Test
+    public void opensWhenFailureRateReachesThresholdInFullWindow() {
+        call(true);
+        call(true);
+        call(true);
+
+        // window is not full yet
+        assertThat(circuitBreaker.getState(), equalTo(CircuitBreaker.State.CLOSED));
+
+        call(false);
+
+        assertThat(circuitBreaker.getState(), equalTo(CircuitBreaker.State.CLOSED));
+
+        call(true);
+
+        assertThat(circuitBreaker.getState(), equalTo(CircuitBreaker.State.OPEN));
+        assertThat(circuitBreaker.tryAcquire(), nullValue());
+    }
+
+    @Test
+    public void slidingWindowForgetsOldCalls() {
+        call(true);
+        call(false);
+        call(false);
+        call(false);
+        call(false);
+
+        assertThat(circuitBreaker.getFailureRate(), equalTo(0));
+
+        call(true);
+
+        assertThat(circuitBreaker.getFailureRate(), equalTo(25));
+        assertThat(circuitBreaker.getState(), equalTo(CircuitBreaker.State.CLOSED));
+    }
+
+    @Test
+    public void halfOpenProbeClosesCircuit() {
+        for (int i = 0; i < 4; i++) {
+            call(true);
+        }
+        assertThat(circuitBreaker.getState(), equalTo(CircuitBreaker.State.OPEN));
+
+        now += TimeUnit.MILLISECONDS.toNanos(1000);
+
+        assertThat(circuitBreaker.getState(), equalTo(CircuitBreaker.State.HALF_OPEN));
+        CircuitBreaker.Permit probe = circuitBreaker.tryAcquire();
+        assertThat(probe.isProbe(), equalTo(true));
+        // single probe at a time
+        assertThat(circuitBreaker.tryAcquire(), nullValue());
+
+        circuitBreaker.onSuccess(probe);
+
+        assertThat(circuitBreaker.getState(), equalTo(CircuitBreaker.State.CLOSED));
+        assertThat(circuitBreaker.getFailureRate(), equalTo(0));
+    }
+
+    @Test
+    public void failedHalfOpenProbeOpensCircuit() {
+        for (int i = 0; i < 4; i++) {
+            call(true);
+        }
+        now += TimeUnit.MILLISECONDS.toNanos(1000);
+
+        call(true);
+
+        assertThat(circuitBreaker.getState(), equalTo(CircuitBreaker.State.OPEN));
+
+        now += TimeUnit.MILLISECONDS.toNanos(999);
+
+        assertThat(circuitBreaker.tryAcquire(), nullValue());
+    }
+
+    @Test
+    public void callAcquiredBeforeOpeningDoesNotCloseCircuit() {
+        CircuitBreaker.Permit inFlight = circuitBreaker.tryAcquire();
+        for (int i = 0; i < 4; i++) {
+            call(true);
+        }
+        now += TimeUnit.MILLISECONDS.toNanos(1000);
+        CircuitBreaker.Permit probe = circuitBreaker.tryAcquire();
+
+        // call which was in flight when the circuit opened is not the probe
+        circuitBreaker.onSuccess(inFlight);
+
+        assertThat(circuitBreaker.getState(), equalTo(CircuitBreaker.State.HALF_OPEN));
+        assertThat(circuitBreaker.tryAcquire(), nullValue());
+
+        circuitBreaker.onFailure(probe);
+
+        assertThat(circuitBreaker.getState(), equalTo(CircuitBreaker.State.OPEN));
+    }
+
+    @Test
+    public void callAcquiredBeforeClosingIsNotRecorded() {
+        CircuitBreaker.Permit inFlight = circuitBreaker.tryAcquire();
+        for (int i = 0; i < 4; i++) {
+            call(true);
+        }
+        now += TimeUnit.MILLISECONDS.toNanos(1000);
+        call(false);
+
+        circuitBreaker.onFailure(inFlight);
+
+        assertThat(circuitBreaker.getState(), equalTo(CircuitBreaker.State.CLOSED));
+        assertThat(circuitBreaker.getFailureRate(), equalTo(0));
+    }
+}
@@ -1,5 +1,6 @@
 package com.roskart.dropwizard.jaxws;
 
+import com.google.common.collect.ImmutableList;
 import org.apache.cxf.interceptor.Interceptor;
 import org.junit.Test;
 
@@ -27,6 +28,21 @@ public class ClientBuilderTest {
                 .receiveTimeout(5678)
                 .handlers(handler, handler)
                 .bindingId("binding id")
+                .deadlinePropagation(true)
+                .connectionPool(20, 5)
+                .connectionKeepAlive(30000)
+                .connectionMaxIdle(10000)
+                .clientPoolSize(4)
+                .clientPoolMaxWait(250)
+                .instrumented()
+                .name("client name")
+                .hedging(50, 5, "hedge address")
+                .idempotentOperations("foo")
+                .circuitBreaker(50, 20, 5000)
+                .retry(3, 100)
+                .addresses(ImmutableList.of("address 1", "address 2"))
+                .loadBalancingStrategy(LoadBalancer.Strategy.POWER_OF_TWO_CHOICES)
+                .outlierEjection(3, 10000)
                 .cxfInInterceptors(inInterceptor, inInterceptor)
                 .cxfInFaultInterceptors(inFaultInterceptor, inFaultInterceptor)
                 .cxfOutInterceptors(outInterceptor, outInterceptor)
@@ -37,9 +53,60 @@ public class ClientBuilderTest {
         assertThat(builder.getConnectTimeout(), equalTo(1234));
         assertThat(builder.getReceiveTimeout(), equalTo(5678));
         assertThat(builder.getBindingId(), equalTo("binding id"));
+        assertThat(builder.isDeadlinePropagationEnabled(), equalTo(true));
+        assertThat(builder.isConnectionPoolEnabled(), equalTo(true));
+        assertThat(builder.getMaxConnections(), equalTo(20));
+        assertThat(builder.getMaxConnectionsPerHost(), equalTo(5));
+        assertThat(builder.getConnectionKeepAlive(), equalTo(30000));
+        assertThat(builder.getConnectionMaxIdle(), equalTo(10000));
+        assertThat(builder.getClientPoolSize(), equalTo(4));
+        assertThat(builder.getClientPoolMaxWait(), equalTo(250));
+        assertThat(builder.isInstrumented(), equalTo(true));
+        assertThat(builder.getName(), equalTo("client name"));
+        assertThat(builder.isHedgingEnabled(), equalTo(true));
+        assertThat(builder.getHedgingDelay(), equalTo(50));
+        assertThat(builder.getHedgingBudget(), equalTo(5));
+        assertThat(builder.getHedgingAddresses(), contains("hedge address"));
+        assertThat(builder.getIdempotentOperations(), contains("foo"));
+        assertThat(builder.isCircuitBreakerEnabled(), equalTo(true));
+        assertThat(builder.getCircuitBreakerFailureRate(), equalTo(50));
+        assertThat(builder.getCircuitBreakerWindowSize(), equalTo(20));
+        assertThat(builder.getCircuitBreakerOpenDuration(), equalTo(5000));
+        assertThat(builder.isRetryEnabled(), equalTo(true));
+        assertThat(builder.getRetryMaxAttempts(), equalTo(3));
+        assertThat(builder.getRetryBackoff(), equalTo(100));
+        assertThat(builder.isLoadBalancingEnabled(), equalTo(true));
+        assertThat(builder.getAddresses(), contains("address 1", "address 2"));
+        assertThat(builder.getLoadBalancingStrategy(), equalTo(LoadBalancer.Strategy.POWER_OF_TWO_CHOICES));
+        assertThat(builder.getOutlierEjectionFailures(), equalTo(3));
+        assertThat(builder.getOutlierEjectionTime(), equalTo(10000));
         assertThat(builder.getCxfInInterceptors(), contains(new Interceptor<?>[]{ inInterceptor, inInterceptor }));
         assertThat(builder.getCxfInFaultInterceptors(), contains(new Interceptor<?>[]{ inFaultInterceptor, inFaultInterceptor }));
         assertThat(builder.getCxfOutInterceptors(), contains(new Interceptor<?>[]{ outInterceptor, outInterceptor }));
         assertThat(builder.getCxfOutFaultInterceptors(), contains(new Interceptor<?>[]{ outFaultInterceptor, outFaultInterceptor }));
     }
+
+    @Test
+    public void connectionPoolIsDisabledByDefault() {
+        ClientBuilder<Object> builder = new ClientBuilder<>(Object.class, "address");
+
+        assertThat(builder.isConnectionPoolEnabled(), equalTo(false));
+    }
+
+    @Test
+    public void deadlinePropagationIsDisabledByDefault() {
+        ClientBuilder<Object> builder = new ClientBuilder<>(Object.class, "address");
+
+        assertThat(builder.isDeadlinePropagationEnabled(), equalTo(false));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void emptyName() {
+        new ClientBuilder<>(Object.class, "address").name(" ");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void maxConnectionsPerHostExceedsMaxConnections() {
+        new ClientBuilder<>(Object.class, "address").connectionPool(5, 10);
+    }
 }
@@ -0,0 +1,125 @@
+package com.roskart.dropwizard.jaxws;
+
+import com.codahale.metrics.MetricRegistry;
+import org.apache.cxf.interceptor.Fault;
+import org.apache.cxf.message.Exchange;
+import org.apache.cxf.message.ExchangeImpl;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.message.MessageImpl;
+import org.apache.cxf.service.model.BindingOperationInfo;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.xml.namespace.QName;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.SocketTimeoutException;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ClientMetricsTest {
+
+    interface FooService {
+        String foo();
+    }
+
+    MetricRegistry metricRegistry;
+    ClientMetrics clientMetrics;
+    Exchange exchange;
+    Message outMessage;
+
+    @Before
+    public void setup() {
+        metricRegistry = new MetricRegistry();
+        clientMetrics = new ClientMetrics(metricRegistry, FooService.class);
+
+        exchange = new ExchangeImpl();
+        BindingOperationInfo boi = mock(BindingOperationInfo.class);
+        when(boi.getName()).thenReturn(new QName("http://foo", "foo"));
+        exchange.put(BindingOperationInfo.class, boi);
+        outMessage = new MessageImpl();
+        outMessage.setExchange(exchange);
+        exchange.setOutMessage(outMessage);
+    }
+
+    private String name(String suffix) {
+        return MetricRegistry.name(FooService.class, "foo", "client", suffix);
+    }
+
+    private Message inMessage(String content) {
+        Message inMessage = new MessageImpl();
+        inMessage.setExchange(exchange);
+        inMessage.setContent(InputStream.class, new ByteArrayInputStream(content.getBytes()));
+        exchange.setInMessage(inMessage);
+        return inMessage;
+    }
+
+    @Test
+    public void measuresSuccessfulCall() throws Exception {
+        clientMetrics.getOutInterceptor().handleMessage(outMessage);
+
+        assertThat(metricRegistry.counter(name("in-flight")).getCount(), equalTo(1L));
+
+        outMessage.setContent(OutputStream.class, new ByteArrayOutputStream());
+        clientMetrics.getOutStreamInterceptor().handleMessage(outMessage);
+        outMessage.getContent(OutputStream.class).write("request".getBytes());
+
+        Message inMessage = inMessage("response body");
+        clientMetrics.getInStreamInterceptor().handleMessage(inMessage);
+        InputStream is = inMessage.getContent(InputStream.class);
+        while (is.read() != -1) {
+            // consume response
+        }
+        clientMetrics.getInInterceptor().handleMessage(inMessage);
+        clientMetrics.getOutEndingInterceptor().handleMessage(outMessage);
+
+        assertThat(metricRegistry.timer(name("latency")).getCount(), equalTo(1L));
+        assertThat(metricRegistry.counter(name("in-flight")).getCount(), equalTo(0L));
+        assertThat(metricRegistry.histogram(name("request-bytes")).getSnapshot().getMax(), equalTo(7L));
+        assertThat(metricRegistry.histogram(name("response-bytes")).getSnapshot().getMax(), equalTo(13L));
+        assertThat(metricRegistry.getMeters().isEmpty(), equalTo(true));
+    }
+
+    @Test
+    public void measuresTransportFailure() {
+        clientMetrics.getOutInterceptor().handleMessage(outMessage);
+
+        outMessage.setContent(Exception.class, new Fault(new SocketTimeoutException("Read timed out")));
+        clientMetrics.getOutInterceptor().handleFault(outMessage);
+
+        assertThat(metricRegistry.timer(name("latency")).getCount(), equalTo(1L));
+        assertThat(metricRegistry.counter(name("in-flight")).getCount(), equalTo(0L));
+        assertThat(metricRegistry.meter(MetricRegistry.name(name("errors"), "SocketTimeoutException")).getCount(),
+                equalTo(1L));
+    }
+
+    @Test
+    public void measuresFaultResponse() {
+        clientMetrics.getOutInterceptor().handleMessage(outMessage);
+
+        Message inFaultMessage = inMessage("fault");
+        inFaultMessage.setContent(Exception.class, new IllegalArgumentException("foo fault"));
+        clientMetrics.getInFaultInterceptor().handleMessage(inFaultMessage);
+        clientMetrics.getOutEndingInterceptor().handleMessage(outMessage);
+
+        assertThat(metricRegistry.timer(name("latency")).getCount(), equalTo(1L));
+        assertThat(metricRegistry.meter(MetricRegistry.name(name("errors"), "IllegalArgumentException")).getCount(),
+                equalTo(1L));
+    }
+
+    @Test
+    public void measuresOneWayCall() {
+        exchange.setOneWay(true);
+        clientMetrics.getOutInterceptor().handleMessage(outMessage);
+
+        clientMetrics.getOutEndingInterceptor().handleMessage(outMessage);
+
+        assertThat(metricRegistry.timer(name("latency")).getCount(), equalTo(1L));
+        assertThat(metricRegistry.counter(name("in-flight")).getCount(), equalTo(0L));
+    }
+}
@@ -0,0 +1,117 @@
+package com.roskart.dropwizard.jaxws;
+
+import com.codahale.metrics.Timer;
+import org.junit.Test;
+
+import javax.xml.ws.BindingProvider;
+import javax.xml.ws.WebServiceException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ClientPoolTest {
+
+    AtomicInteger created = new AtomicInteger();
+    Timer waitTimer = new Timer();
+    ClientPool<Object> clientPool = new ClientPool<>(() -> "client " + created.incrementAndGet(), 2, 10, waitTimer);
+
+    @Test
+    public void createsClientsOnDemandAndReusesThem() {
+        Object first = clientPool.borrow();
+        Object second = clientPool.borrow();
+
+        assertThat(first, is(not(sameInstance(second))));
+        assertThat(created.get(), equalTo(2));
+        assertThat(clientPool.getAvailable(), equalTo(0));
+
+        clientPool.release(second);
+
+        assertThat(clientPool.borrow(), is(sameInstance(second)));
+        assertThat(created.get(), equalTo(2));
+        assertThat(waitTimer.getCount(), equalTo(3L));
+    }
+
+    @Test
+    public void executeReleasesClient() throws Exception {
+        Object result = clientPool.execute(client -> client + " result");
+
+        assertThat(result, equalTo("client 1 result"));
+        assertThat(clientPool.getAvailable(), equalTo(2));
+
+        try {
+            clientPool.execute(client -> {
+                throw new Exception("call failed");
+            });
+            fail();
+        }
+        catch (Exception e) {
+            assertThat(e.getMessage(), equalTo("call failed"));
+        }
+
+        assertThat(clientPool.getAvailable(), equalTo(2));
+        assertThat(created.get(), equalTo(1));
+    }
+
+    @Test
+    public void failsWhenNoClientIsAvailable() {
+        clientPool.borrow();
+        clientPool.borrow();
+
+        try {
+            clientPool.borrow();
+            fail();
+        }
+        catch (Exception e) {
+            assertThat(e, is(instanceOf(WebServiceException.class)));
+        }
+
+        assertThat(waitTimer.getCount(), equalTo(3L));
+    }
+
+    @Test
+    public void releasesPermitWhenClientCreationFails() {
+        ClientPool<Object> failingPool = new ClientPool<>(() -> {
+            throw new IllegalStateException("creation failed");
+        }, 1, 10, waitTimer);
+
+        try {
+            failingPool.borrow();
+            fail();
+        }
+        catch (Exception e) {
+            assertThat(e, is(instanceOf(IllegalStateException.class)));
+        }
+
+        assertThat(failingPool.getAvailable(), equalTo(1));
+    }
+
+    @Test
+    public void restoresRequestContextOfReleasedClient() {
+        Map<String, Object> requestContext = new HashMap<>();
+        requestContext.put(BindingProvider.ENDPOINT_ADDRESS_PROPERTY, "address");
+        BindingProvider client = mock(BindingProvider.class);
+        when(client.getRequestContext()).thenReturn(requestContext);
+        ClientPool<BindingProvider> bindingProviderPool = new ClientPool<>(() -> client, 1, 10, waitTimer);
+
+        BindingProvider borrowed = bindingProviderPool.borrow();
+        borrowed.getRequestContext().put(BindingProvider.ENDPOINT_ADDRESS_PROPERTY, "other address");
+        borrowed.getRequestContext().put(BindingProvider.USERNAME_PROPERTY, "user");
+        bindingProviderPool.release(borrowed);
+
+        borrowed = bindingProviderPool.borrow();
+        assertThat(borrowed, is(sameInstance(client)));
+        assertThat((String)borrowed.getRequestContext().get(BindingProvider.ENDPOINT_ADDRESS_PROPERTY),
+                equalTo("address"));
+        assertThat(borrowed.getRequestContext().containsKey(BindingProvider.USERNAME_PROPERTY), equalTo(false));
+    }
+}
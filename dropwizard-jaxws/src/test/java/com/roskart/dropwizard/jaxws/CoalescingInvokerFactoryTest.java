@@ -0,0 +1,248 @@
+package com.roskart.dropwizard.jaxws;
+
+import com.codahale.metrics.MetricRegistry;
+import org.apache.cxf.annotations.UseAsyncMethod;
+import org.apache.cxf.message.Exchange;
+import org.apache.cxf.service.invoker.Invoker;
+import org.apache.cxf.service.model.BindingOperationInfo;
+import org.apache.cxf.service.model.OperationInfo;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.*;
+
+public class CoalescingInvokerFactoryTest {
+
+    class FooService {
+        public String foo(String param) {
+            return "foo return";
+        }
+        @CoalesceRequests
+        public String coalesced(String param) {
+            return "coalesced return";
+        }
+        @CoalesceRequests(timeout = 0)
+        public String noTimeout(String param) {
+            return "no timeout return";
+        }
+        @CoalesceRequests
+        @UseAsyncMethod
+        public String async(String param) {
+            return "async return";
+        }
+    }
+
+    /**
+     * Blocks until released and counts invocations.
+     */
+    public class BlockingInvoker implements Invoker {
+        private final CountDownLatch latch = new CountDownLatch(1);
+        private final AtomicInteger invocations = new AtomicInteger();
+        private final boolean doThrow;
+        public BlockingInvoker(boolean doThrow) {
+            this.doThrow = doThrow;
+        }
+        @Override
+        public Object invoke(Exchange exchange, Object o) {
+            int invocation = invocations.incrementAndGet();
+            try {
+                latch.await();
+            }
+            catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            if (doThrow) {
+                throw new RuntimeException("Uh oh");
+            }
+            return fooService.coalesced((String)((Object[])o)[0]) + " " + invocation;
+        }
+    }
+
+    CoalescingInvokerFactory invokerBuilder;
+    FooService fooService;
+    MetricRegistry metricRegistry;
+    ExecutorService executor;
+
+    // CXF Exchange contains message exchange and is used by Invoker to obtain invoked method name
+    Exchange exchange;
+
+    @Before
+    public void setup() {
+        exchange = mock(Exchange.class);
+        BindingOperationInfo boi = mock(BindingOperationInfo.class);
+        when(exchange.getBindingOperationInfo()).thenReturn(boi);
+        OperationInfo oi = mock(OperationInfo.class);
+        when(boi.getOperationInfo()).thenReturn(oi);
+        metricRegistry = new MetricRegistry();
+        invokerBuilder = new CoalescingInvokerFactory(metricRegistry);
+        fooService = new FooService();
+        executor = Executors.newFixedThreadPool(5);
+    }
+
+    @After
+    public void teardown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Utility method that mimics runtime CXF behaviour. Enables AbstractInvoker.getInvocationPlan to work properly
+     * during the test.
+     */
+    private void setTargetMethod(Exchange exchange, String methodName, Class<?>... parameterTypes) {
+
+        try {
+            OperationInfo oi = exchange.getBindingOperationInfo().getOperationInfo();
+            Method method = FooService.class.getMethod(methodName, parameterTypes);
+            when(oi.getProperty(InvocationPlan.class.getName())).thenReturn(
+                    new InvocationPlan.Builder(method)
+                            .requestCoalescer(invokerBuilder.createRequestCoalescer(method))
+                            .build());
+        }
+        catch (Exception e) {
+            fail("setTargetMethod failed: " + e.getClass().getName() + ": " + e.getMessage());
+        }
+    }
+
+    private long coalescedCount() {
+        return metricRegistry.meter(MetricRegistry.name(FooService.class, "coalesced", "coalesced")).getCount();
+    }
+
+    private List<Future<Object>> invokeConcurrently(final Invoker invoker, int count, String param)
+            throws InterruptedException {
+        List<Future<Object>> results = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            results.add(executor.submit(() -> invoker.invoke(exchange, new Object[]{ param })));
+        }
+        // wait until all but the first invocation are coalesced
+        long deadline = System.currentTimeMillis() + 5000;
+        while (coalescedCount() < count - 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        return results;
+    }
+
+    @Test
+    public void noAnnotation() {
+        BlockingInvoker underlying = new BlockingInvoker(false);
+        underlying.latch.countDown();
+        Invoker invoker = invokerBuilder.create(fooService, underlying);
+        this.setTargetMethod(exchange, "foo", String.class); // simulate CXF behavior
+
+        assertThat(invoker, is(instanceOf(CoalescingInvoker.class)));
+
+        invoker.invoke(exchange, new Object[]{ "a" });
+        invoker.invoke(exchange, new Object[]{ "a" });
+        assertEquals(2, underlying.invocations.get());
+    }
+
+    @Test
+    public void coalesceRequestsAnnotation() throws Exception {
+        BlockingInvoker underlying = new BlockingInvoker(false);
+        Invoker invoker = invokerBuilder.create(fooService, underlying);
+        this.setTargetMethod(exchange, "coalesced", String.class); // simulate CXF behavior
+
+        List<Future<Object>> results = invokeConcurrently(invoker, 5, "a");
+        assertEquals(4, coalescedCount());
+
+        underlying.latch.countDown();
+        for (Future<Object> result : results) {
+            assertEquals("coalesced return 1", result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, underlying.invocations.get());
+
+        // invocation after completion is executed again
+        assertEquals("coalesced return 2", invoker.invoke(exchange, new Object[]{ "a" }));
+    }
+
+    @Test
+    public void coalesceRequestsWithException() throws Exception {
+        BlockingInvoker underlying = new BlockingInvoker(true);
+        Invoker invoker = invokerBuilder.create(fooService, underlying);
+        this.setTargetMethod(exchange, "coalesced", String.class); // simulate CXF behavior
+
+        List<Future<Object>> results = invokeConcurrently(invoker, 3, "a");
+        underlying.latch.countDown();
+
+        for (Future<Object> result : results) {
+            try {
+                result.get(5, TimeUnit.SECONDS);
+                fail();
+            }
+            catch (ExecutionException e) {
+                assertEquals("Uh oh", e.getCause().getMessage());
+            }
+        }
+        assertEquals(1, underlying.invocations.get());
+        assertEquals(2, coalescedCount());
+    }
+
+    @Test
+    public void coalescedInvocationWaitsUntilDeadline() throws Exception {
+        BlockingInvoker underlying = new BlockingInvoker(false);
+        Invoker invoker = invokerBuilder.create(fooService, underlying);
+        this.setTargetMethod(exchange, "coalesced", String.class); // simulate CXF behavior
+
+        Future<Object> executing = executor.submit(() -> invoker.invoke(exchange, new Object[]{ "a" }));
+        while (underlying.invocations.get() == 0) {
+            Thread.sleep(10);
+        }
+
+        Deadline previous = Deadline.bind(Deadline.after(50));
+        try {
+            invoker.invoke(exchange, new Object[]{ "a" });
+            fail();
+        }
+        catch (RuntimeException e) {
+            assertEquals("Timed out waiting for result of coalesced invocation", e.getMessage());
+        }
+        finally {
+            Deadline.bind(previous);
+        }
+
+        underlying.latch.countDown();
+        assertEquals("coalesced return 1", executing.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void coalesceRequestsWithoutTimeout() throws Exception {
+        invokerBuilder.createRequestCoalescer(FooService.class.getMethod("noTimeout", String.class));
+    }
+
+    @Test
+    public void coalesceRequestsOfAsyncOperation() throws Exception {
+        assertThat(invokerBuilder.createRequestCoalescer(FooService.class.getMethod("async", String.class)),
+                is(nullValue()));
+    }
+
+    @Test
+    public void inFlightGaugeOfAnotherEndpointIsNotReplaced() throws Exception {
+        Method method = FooService.class.getMethod("coalesced", String.class);
+        invokerBuilder.createRequestCoalescer(method);
+
+        try {
+            invokerBuilder.createRequestCoalescer(method);
+            fail();
+        }
+        catch (IllegalStateException e) {
+            assertThat(e.getCause(), is(instanceOf(IllegalArgumentException.class)));
+        }
+    }
+}
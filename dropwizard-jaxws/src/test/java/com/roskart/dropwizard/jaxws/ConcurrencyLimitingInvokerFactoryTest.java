@@ -0,0 +1,254 @@
+package com.roskart.dropwizard.jaxws;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import org.apache.cxf.continuations.Continuation;
+import org.apache.cxf.continuations.ContinuationProvider;
+import org.apache.cxf.interceptor.Fault;
+import org.apache.cxf.message.Exchange;
+import org.apache.cxf.message.ExchangeImpl;
+import org.apache.cxf.message.FaultMode;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.service.invoker.Invoker;
+import org.apache.cxf.service.model.BindingOperationInfo;
+import org.apache.cxf.service.model.OperationInfo;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.*;
+
+public class ConcurrencyLimitingInvokerFactoryTest {
+
+    class FooService {
+        public String foo() {
+            return "foo return";
+        }
+        @ConcurrencyLimit(1)
+        public String limited() {
+            return "limited return";
+        }
+    }
+
+    /**
+     * Blocks until released.
+     */
+    public class BlockingInvoker implements Invoker {
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch latch = new CountDownLatch(1);
+        @Override
+        public Object invoke(Exchange exchange, Object o) {
+            started.countDown();
+            try {
+                latch.await();
+            }
+            catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            return fooService.limited();
+        }
+    }
+
+    ConcurrencyLimitingInvokerFactory invokerBuilder;
+    FooService fooService;
+    MetricRegistry metricRegistry;
+    ExecutorService executor;
+    Message inMessage;
+
+    // CXF Exchange contains message exchange and is used by Invoker to obtain invoked method name
+    Exchange exchange;
+
+    @Before
+    public void setup() {
+        exchange = mock(Exchange.class);
+        inMessage = mock(Message.class);
+        when(exchange.getInMessage()).thenReturn(inMessage);
+        BindingOperationInfo boi = mock(BindingOperationInfo.class);
+        when(exchange.getBindingOperationInfo()).thenReturn(boi);
+        OperationInfo oi = mock(OperationInfo.class);
+        when(boi.getOperationInfo()).thenReturn(oi);
+        metricRegistry = new MetricRegistry();
+        invokerBuilder = new ConcurrencyLimitingInvokerFactory(metricRegistry);
+        fooService = new FooService();
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void teardown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Utility method that mimics runtime CXF behaviour. Enables AbstractInvoker.getInvocationPlan to work properly
+     * during the test.
+     */
+    private void setTargetMethod(Exchange exchange, EndpointBuilder endpointBuilder, String methodName) {
+
+        try {
+            OperationInfo oi = exchange.getBindingOperationInfo().getOperationInfo();
+            Method method = FooService.class.getMethod(methodName);
+            when(oi.getProperty(InvocationPlan.class.getName())).thenReturn(
+                    new InvocationPlan.Builder(method)
+                            .bulkhead(invokerBuilder.createBulkhead(method, endpointBuilder))
+                            .build());
+        }
+        catch (Exception e) {
+            fail("setTargetMethod failed: " + e.getClass().getName() + ": " + e.getMessage());
+        }
+    }
+
+    private Object gaugeValue(String methodName, String suffix) {
+        return metricRegistry.getGauges().get(MetricRegistry.name(FooService.class, methodName, suffix)).getValue();
+    }
+
+    @Test
+    public void noAnnotation() {
+        EndpointBuilder endpointBuilder = new EndpointBuilder("/foo", fooService);
+        Invoker rootInvoker = mock(Invoker.class);
+        Invoker invoker = invokerBuilder.create(new Object(), rootInvoker, endpointBuilder);
+        assertThat(invoker == rootInvoker, is(true));
+
+        this.setTargetMethod(exchange, endpointBuilder, "foo"); // simulate CXF behavior
+        assertThat(((InvocationPlan)exchange.getBindingOperationInfo().getOperationInfo()
+                .getProperty(InvocationPlan.class.getName())).getBulkhead(), is(nullValue()));
+    }
+
+    @Test
+    public void concurrencyLimitAnnotation() throws Exception {
+        EndpointBuilder endpointBuilder = new EndpointBuilder("/foo", fooService);
+        BlockingInvoker underlying = new BlockingInvoker();
+        final Invoker invoker = invokerBuilder.create(fooService, underlying, endpointBuilder);
+        this.setTargetMethod(exchange, endpointBuilder, "limited"); // simulate CXF behavior
+
+        assertThat(invoker, is(instanceOf(ConcurrencyLimitingInvoker.class)));
+
+        Future<Object> first = executor.submit(() -> invoker.invoke(exchange, null));
+        assertThat(underlying.started.await(5, TimeUnit.SECONDS), is(true));
+        assertEquals(1, gaugeValue("limited", "concurrency-in-flight"));
+        assertEquals(1, gaugeValue("limited", "concurrency-limit"));
+
+        try {
+            invoker.invoke(exchange, null);
+            fail();
+        }
+        catch (Exception e) {
+            assertThat(e, is(instanceOf(Fault.class)));
+        }
+        verify(inMessage).put(FaultMode.class, FaultMode.CHECKED_APPLICATION_FAULT);
+        assertEquals(1, metricRegistry.meter(
+                MetricRegistry.name(FooService.class, "limited", "concurrency-rejections")).getCount());
+
+        underlying.latch.countDown();
+        assertEquals("limited return", first.get(5, TimeUnit.SECONDS));
+        assertEquals(0, gaugeValue("limited", "concurrency-in-flight"));
+
+        assertEquals("limited return", invoker.invoke(exchange, null));
+    }
+
+    @Test
+    public void suspendedAsyncOperationKeepsPermit() throws Exception {
+        EndpointBuilder endpointBuilder = new EndpointBuilder("/foo", fooService);
+        Invoker underlying = mock(Invoker.class);
+        when(underlying.invoke(any(Exchange.class), any())).thenReturn(null, "limited return");
+        Invoker invoker = invokerBuilder.create(fooService, underlying, endpointBuilder);
+
+        Method method = FooService.class.getMethod("limited");
+        when(exchange.getBindingOperationInfo().getOperationInfo().getProperty(InvocationPlan.class.getName()))
+                .thenReturn(new InvocationPlan.Builder(method)
+                        .async(true)
+                        .bulkhead(invokerBuilder.createBulkhead(method, endpointBuilder))
+                        .build());
+
+        // Simulate CXF behavior: invocation of @UseAsyncMethod operation is suspended on first invoke and resumed
+        // when the asynchronous response is ready.
+        Continuation continuation = mock(Continuation.class);
+        when(continuation.isPending()).thenReturn(true, false);
+        ContinuationProvider provider = mock(ContinuationProvider.class);
+        when(provider.getContinuation()).thenReturn(continuation);
+        Message asyncInMessage = mock(Message.class);
+        when(asyncInMessage.get(ContinuationProvider.class.getName())).thenReturn(provider);
+
+        Exchange asyncExchange = new ExchangeImpl();
+        asyncExchange.put(BindingOperationInfo.class, exchange.getBindingOperationInfo());
+        asyncExchange.setInMessage(asyncInMessage);
+
+        assertThat(invoker.invoke(asyncExchange, null), is(nullValue()));
+        assertEquals(1, gaugeValue("limited", "concurrency-in-flight"));
+
+        // asynchronous work is limited while the invocation is suspended
+        try {
+            invoker.invoke(exchange, null);
+            fail();
+        }
+        catch (Exception e) {
+            assertThat(e, is(instanceOf(Fault.class)));
+        }
+
+        // resumed invocation is not rejected, although the limit is full
+        assertEquals("limited return", invoker.invoke(asyncExchange, null));
+        assertEquals(0, gaugeValue("limited", "concurrency-in-flight"));
+        assertEquals(1, metricRegistry.meter(
+                MetricRegistry.name(FooService.class, "limited", "concurrency-rejections")).getCount());
+    }
+
+    @Test
+    public void endpointConcurrencyLimit() {
+        EndpointBuilder endpointBuilder = new EndpointBuilder("/foo", fooService).concurrencyLimit(5);
+        Invoker invoker = invokerBuilder.create(new Object(), mock(Invoker.class), endpointBuilder);
+        this.setTargetMethod(exchange, endpointBuilder, "foo"); // simulate CXF behavior
+
+        assertThat(invoker, is(instanceOf(ConcurrencyLimitingInvoker.class)));
+        assertEquals(5, gaugeValue("foo", "concurrency-limit"));
+    }
+
+    @Test
+    public void adaptiveLimit() {
+        GradientConcurrencyLimiter limiter = new GradientConcurrencyLimiter(20, 5, 100);
+
+        // stable latency with fully used limit - limit grows
+        for (int i = 0; i < 100; i++) {
+            limiter.onSample(TimeUnit.MILLISECONDS.toNanos(10), limiter.getLimit());
+        }
+        int grownLimit = limiter.getLimit();
+        assertThat(grownLimit > 20, is(true));
+
+        // latency grows - limit shrinks
+        for (int i = 0; i < 100; i++) {
+            limiter.onSample(TimeUnit.MILLISECONDS.toNanos(100), limiter.getLimit());
+        }
+        assertThat(limiter.getLimit() < grownLimit, is(true));
+        assertThat(limiter.getLimit() >= 5, is(true));
+    }
+
+    @Test
+    public void gaugesOfAnotherEndpointAreNotReplaced() throws Exception {
+        Method method = FooService.class.getMethod("limited");
+        invokerBuilder.createBulkhead(method, new EndpointBuilder("/foo", fooService));
+        Gauge<?> gauge = metricRegistry.getGauges().get(
+                MetricRegistry.name(FooService.class, "limited", "concurrency-limit"));
+
+        try {
+            invokerBuilder.createBulkhead(method, new EndpointBuilder("/bar", fooService));
+            fail();
+        }
+        catch (IllegalStateException e) {
+            assertThat(e.getCause(), is(instanceOf(IllegalArgumentException.class)));
+        }
+
+        assertThat(metricRegistry.getGauges().get(
+                MetricRegistry.name(FooService.class, "limited", "concurrency-limit")) == gauge, is(true));
+    }
+}
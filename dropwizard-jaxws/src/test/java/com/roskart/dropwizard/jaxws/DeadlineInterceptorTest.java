@@ -0,0 +1,85 @@
+package com.roskart.dropwizard.jaxws;
+
+import org.apache.cxf.message.Exchange;
+import org.apache.cxf.message.ExchangeImpl;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.message.MessageImpl;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class DeadlineInterceptorTest {
+
+    Exchange exchange;
+    Message inMessage;
+
+    @Before
+    public void setup() {
+        exchange = new ExchangeImpl();
+        inMessage = new MessageImpl();
+        inMessage.setExchange(exchange);
+        exchange.setInMessage(inMessage);
+    }
+
+    private void setDeadlineHeader(String value) {
+        Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        headers.put(Deadline.HEADER.toLowerCase(), Collections.singletonList(value));
+        inMessage.put(Message.PROTOCOL_HEADERS, headers);
+    }
+
+    @Test
+    public void readsDeadlineHeader() {
+        setDeadlineHeader(" 5000 ");
+        new DeadlineInterceptor().handleMessage(inMessage);
+
+        Deadline deadline = exchange.get(Deadline.class);
+        assertThat(deadline, is(notNullValue()));
+        assertThat(deadline.remainingMillis() > 4000 && deadline.remainingMillis() <= 5000, is(true));
+        assertThat(inMessage.get(Deadline.DEADLINE_KEY), equalTo((Object)deadline));
+    }
+
+    @Test
+    public void zeroDeadlineHeaderIsExpired() {
+        setDeadlineHeader("0");
+        new DeadlineInterceptor().handleMessage(inMessage);
+
+        assertThat(exchange.get(Deadline.class).isExpired(), is(true));
+    }
+
+    @Test
+    public void missingDeadlineHeaderIsIgnored() {
+        new DeadlineInterceptor().handleMessage(inMessage);
+
+        inMessage.put(Message.PROTOCOL_HEADERS, new TreeMap<>(String.CASE_INSENSITIVE_ORDER));
+        new DeadlineInterceptor().handleMessage(inMessage);
+
+        assertThat(exchange.get(Deadline.class), is(nullValue()));
+    }
+
+    @Test
+    public void invalidDeadlineHeaderIsIgnored() {
+        setDeadlineHeader("foo");
+        new DeadlineInterceptor().handleMessage(inMessage);
+
+        assertThat(exchange.get(Deadline.class), is(nullValue()));
+        assertThat(inMessage.get(Deadline.DEADLINE_KEY), is(nullValue()));
+    }
+
+    @Test
+    public void negativeDeadlineHeaderIsIgnored() {
+        setDeadlineHeader("-1000");
+        new DeadlineInterceptor().handleMessage(inMessage);
+
+        assertThat(exchange.get(Deadline.class), is(nullValue()));
+    }
+}
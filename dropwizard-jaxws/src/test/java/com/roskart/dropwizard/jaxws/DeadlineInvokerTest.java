@@ -0,0 +1,93 @@
+package com.roskart.dropwizard.jaxws;
+
+import org.apache.cxf.interceptor.Fault;
+import org.apache.cxf.message.Exchange;
+import org.apache.cxf.message.ExchangeImpl;
+import org.apache.cxf.message.FaultMode;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.message.MessageImpl;
+import org.apache.cxf.service.invoker.Invoker;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.*;
+
+public class DeadlineInvokerTest {
+
+    Exchange exchange;
+    Message inMessage;
+
+    @Before
+    public void setup() {
+        exchange = new ExchangeImpl();
+        inMessage = new MessageImpl();
+        inMessage.setExchange(exchange);
+        exchange.setInMessage(inMessage);
+    }
+
+    private void setDeadlineHeader(String value) {
+        Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        headers.put(Deadline.HEADER.toLowerCase(), Collections.singletonList(value));
+        inMessage.put(Message.PROTOCOL_HEADERS, headers);
+    }
+
+    @Test
+    public void invokeWithoutDeadline() {
+        Invoker underlying = mock(Invoker.class);
+        new DeadlineInterceptor().handleMessage(inMessage);
+
+        new DeadlineInvoker(underlying).invoke(exchange, null);
+
+        verify(underlying).invoke(exchange, null);
+        assertThat(exchange.get(Deadline.class), is(nullValue()));
+    }
+
+    @Test
+    public void invokeWithDeadline() {
+        setDeadlineHeader("5000");
+        new DeadlineInterceptor().handleMessage(inMessage);
+
+        assertThat(inMessage.get(Deadline.DEADLINE_KEY), is(instanceOf(Deadline.class)));
+
+        final Deadline[] current = new Deadline[1];
+        Object result = new DeadlineInvoker((exchange, o) -> {
+            current[0] = Deadline.current();
+            return "result";
+        }).invoke(exchange, null);
+
+        assertThat(result, equalTo("result"));
+        assertThat(current[0], is(notNullValue()));
+        assertThat(current[0].remainingMillis() <= 5000, is(true));
+        assertThat(Deadline.current(), is(nullValue()));
+    }
+
+    @Test
+    public void invokeWithExpiredDeadline() {
+        Invoker underlying = mock(Invoker.class);
+        setDeadlineHeader("0");
+        new DeadlineInterceptor().handleMessage(inMessage);
+
+        try {
+            new DeadlineInvoker(underlying).invoke(exchange, null);
+            fail();
+        }
+        catch (Exception e) {
+            assertThat(e, is(instanceOf(Fault.class)));
+        }
+
+        verifyZeroInteractions(underlying);
+        assertThat(inMessage.get(FaultMode.class), equalTo(FaultMode.CHECKED_APPLICATION_FAULT));
+    }
+}
@@ -0,0 +1,93 @@
+package com.roskart.dropwizard.jaxws;
+
+import org.apache.cxf.interceptor.Fault;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.message.MessageImpl;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+
+public class DeadlinePropagationInterceptorTest {
+
+    Message outMessage = new MessageImpl();
+
+    @After
+    public void teardown() {
+        Deadline.bind(null);
+    }
+
+    private long sentTimeout() {
+        Map<?, ?> headers = (Map<?, ?>)outMessage.get(Message.PROTOCOL_HEADERS);
+        return Long.parseLong((String)((List<?>)headers.get(Deadline.HEADER)).get(0));
+    }
+
+    @Test
+    public void propagatesReceiveTimeout() {
+        new DeadlinePropagationInterceptor(2000).handleMessage(outMessage);
+
+        Map<?, ?> headers = (Map<?, ?>)outMessage.get(Message.PROTOCOL_HEADERS);
+        assertThat(headers.get(Deadline.HEADER), equalTo(Arrays.asList("2000")));
+        assertThat(outMessage.get(Message.RECEIVE_TIMEOUT), is(nullValue()));
+    }
+
+    @Test
+    public void propagatesRemainingTimeWhenShorterThanReceiveTimeout() {
+        Deadline.bind(Deadline.after(1000));
+
+        new DeadlinePropagationInterceptor(2000).handleMessage(outMessage);
+
+        long timeout = sentTimeout();
+        assertThat(timeout > 0 && timeout <= 1000, is(true));
+        assertThat(outMessage.get(Message.RECEIVE_TIMEOUT), equalTo((Object)timeout));
+    }
+
+    @Test
+    public void propagatesReceiveTimeoutWhenShorterThanRemainingTime() {
+        Deadline.bind(Deadline.after(5000));
+
+        new DeadlinePropagationInterceptor(2000).handleMessage(outMessage);
+
+        assertThat(sentTimeout(), equalTo(2000L));
+        assertThat(outMessage.get(Message.RECEIVE_TIMEOUT), is(nullValue()));
+    }
+
+    @Test
+    public void propagatesRemainingTimeWithoutReceiveTimeout() {
+        Deadline.bind(Deadline.after(5000));
+
+        new DeadlinePropagationInterceptor(0).handleMessage(outMessage);
+
+        long timeout = sentTimeout();
+        assertThat(timeout > 4000 && timeout <= 5000, is(true));
+        assertThat(outMessage.get(Message.RECEIVE_TIMEOUT), equalTo((Object)timeout));
+    }
+
+    @Test
+    public void sendsNoHeaderWithoutTimeout() {
+        new DeadlinePropagationInterceptor(0).handleMessage(outMessage);
+
+        assertThat(outMessage.get(Message.PROTOCOL_HEADERS), is(nullValue()));
+    }
+
+    @Test
+    public void failsWhenDeadlineIsExceeded() {
+        Deadline.bind(Deadline.after(0));
+        try {
+            new DeadlinePropagationInterceptor(2000).handleMessage(outMessage);
+            fail();
+        }
+        catch (Exception e) {
+            assertThat(e, is(instanceOf(Fault.class)));
+        }
+    }
+}
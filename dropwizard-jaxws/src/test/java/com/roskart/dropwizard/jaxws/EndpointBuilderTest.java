@@ -6,6 +6,7 @@ import org.junit.Test;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
 import static org.mockito.Mockito.*;
 import static org.hamcrest.CoreMatchers.equalTo;
@@ -20,6 +21,7 @@ public class EndpointBuilderTest {
         String publishedUrl = "http://external/url";
         BasicAuthentication basicAuth = mock(BasicAuthentication.class);
         SessionFactory sessionFactory = mock(SessionFactory.class);
+        SessionFactory replicaSessionFactory = mock(SessionFactory.class);
         Interceptor<?> inInterceptor = mock(Interceptor.class);
         Interceptor<?> inFaultInterceptor = mock(Interceptor.class);
         Interceptor<?> outInterceptor = mock(Interceptor.class);
@@ -31,21 +33,49 @@ public class EndpointBuilderTest {
                 .publishedEndpointUrl(publishedUrl)
                 .authentication(basicAuth)
                 .sessionFactory(sessionFactory)
+                .lazySessions()
+                .readReplicas(ReplicaRouter.Strategy.LEAST_ACTIVE, replicaSessionFactory)
                 .cxfInInterceptors(inInterceptor, inInterceptor)
                 .cxfInFaultInterceptors(inFaultInterceptor, inFaultInterceptor)
                 .cxfOutInterceptors(outInterceptor, outInterceptor)
                 .cxfOutFaultInterceptors(outFaultInterceptor, outFaultInterceptor)
-                .properties(props);
+                .properties(props)
+                .adaptiveConcurrencyLimit(10, 5, 20)
+                .maxQueueTime(1000)
+                .honorRequestTimeout()
+                .virtualThreads();
 
         assertThat(builder.getPath(), equalTo(path));
         assertThat(builder.getService(), equalTo(service));
         assertThat(builder.publishedEndpointUrl(), equalTo(publishedUrl));
         assertThat(builder.getAuthentication(), equalTo(basicAuth));
         assertThat(builder.getSessionFactory(), equalTo(sessionFactory));
+        assertThat(builder.isLazySessionsEnabled(), equalTo(true));
+        assertThat(builder.getReplicaRouter().getStrategy(), equalTo(ReplicaRouter.Strategy.LEAST_ACTIVE));
+        assertThat(builder.getReplicaRouter().getReplicas().get(0).getSessionFactory(),
+                equalTo(replicaSessionFactory));
         assertThat(builder.getCxfInInterceptors(), contains(new Interceptor<?>[]{ inInterceptor, inInterceptor }));
         assertThat(builder.getCxfInFaultInterceptors(), contains(new Interceptor<?>[]{ inFaultInterceptor, inFaultInterceptor }));
         assertThat(builder.getCxfOutInterceptors(), contains(new Interceptor<?>[]{ outInterceptor, outInterceptor }));
         assertThat(builder.getCxfOutFaultInterceptors(), contains(new Interceptor<?>[]{ outFaultInterceptor, outFaultInterceptor }));
         assertThat(builder.getProperties().get("key"), equalTo("value"));
+        assertThat(builder.getConcurrencyLimit(), equalTo(10));
+        assertThat(builder.isAdaptiveConcurrencyLimit(), equalTo(true));
+        assertThat(builder.getMinConcurrencyLimit(), equalTo(5));
+        assertThat(builder.getMaxConcurrencyLimit(), equalTo(20));
+        assertThat(builder.getMaxQueueTime(), equalTo(1000L));
+        assertThat(builder.isVirtualThreadsEnabled(), equalTo(true));
+        assertThat(builder.isRequestTimeoutHonored(), equalTo(true));
+    }
+
+    @Test
+    public void buildEndpointWithExecutor() {
+        ExecutorService executor = mock(ExecutorService.class);
+
+        EndpointBuilder builder = new EndpointBuilder("/foo", new Object())
+                .executor(executor);
+
+        assertThat(builder.getExecutor(), equalTo(executor));
+        assertThat(builder.isVirtualThreadsEnabled(), equalTo(false));
     }
 }
@@ -0,0 +1,175 @@
+package com.roskart.dropwizard.jaxws;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableSet;
+import org.apache.cxf.binding.soap.Soap11;
+import org.apache.cxf.binding.soap.SoapFault;
+import org.junit.Test;
+
+import javax.xml.ws.BindingProvider;
+import javax.xml.ws.WebServiceException;
+import javax.xml.ws.soap.SOAPFaultException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.*;
+
+public class FaultTolerantInvocationHandlerTest {
+
+    public interface FooService {
+        String foo();
+        @Idempotent
+        String bar();
+    }
+
+    FooService underlying = mock(FooService.class);
+    MetricRegistry metricRegistry = new MetricRegistry();
+    ClientRetryPolicy retryPolicy = new ClientRetryPolicy(3, 1,
+            HedgingPolicy.idempotentOperations(FooService.class, ImmutableSet.of()), metricRegistry, FooService.class);
+
+    private String name(String operation, String suffix) {
+        return MetricRegistry.name(FooService.class, operation, "client", suffix);
+    }
+
+    @Test
+    public void retriesIdempotentOperationOnTransportFailure() {
+        when(underlying.bar()).thenThrow(new WebServiceException("Connection refused")).thenReturn("bar return");
+        FooService proxy = FaultTolerantInvocationHandler.create(
+                FooService.class, underlying, null, new Meter(), retryPolicy);
+
+        assertThat(proxy.bar(), equalTo("bar return"));
+
+        verify(underlying, times(2)).bar();
+        assertThat(metricRegistry.meter(name("bar", "retries")).getCount(), equalTo(1L));
+    }
+
+    @Test
+    public void failsWhenRetriesAreExhausted() {
+        when(underlying.bar()).thenThrow(new WebServiceException("Connection refused"));
+        FooService proxy = FaultTolerantInvocationHandler.create(
+                FooService.class, underlying, null, new Meter(), retryPolicy);
+
+        try {
+            proxy.bar();
+            fail();
+        }
+        catch (Exception e) {
+            assertThat(e, is(instanceOf(WebServiceException.class)));
+        }
+
+        verify(underlying, times(3)).bar();
+        assertThat(metricRegistry.meter(name("bar", "retries-exhausted")).getCount(), equalTo(1L));
+    }
+
+    @Test
+    public void doesNotRetryNonIdempotentOperationsAndSoapFaults() {
+        when(underlying.foo()).thenThrow(new WebServiceException("Connection refused"));
+        when(underlying.bar()).thenThrow(mock(SOAPFaultException.class));
+        FooService proxy = FaultTolerantInvocationHandler.create(
+                FooService.class, underlying, null, new Meter(), retryPolicy);
+
+        try {
+            proxy.foo();
+            fail();
+        }
+        catch (Exception e) {
+            assertThat(e, is(instanceOf(WebServiceException.class)));
+        }
+        try {
+            proxy.bar();
+            fail();
+        }
+        catch (Exception e) {
+            assertThat(e, is(instanceOf(SOAPFaultException.class)));
+        }
+
+        verify(underlying, times(1)).foo();
+        verify(underlying, times(1)).bar();
+    }
+
+    @Test
+    public void failsFastWhenCircuitIsOpen() {
+        when(underlying.foo()).thenThrow(new WebServiceException("Read timed out"));
+        CircuitBreaker circuitBreaker = new CircuitBreaker(100, 2, 60000);
+        Meter rejected = new Meter();
+        FooService proxy = FaultTolerantInvocationHandler.create(
+                FooService.class, underlying, circuitBreaker, rejected, null);
+
+        for (int i = 0; i < 3; i++) {
+            try {
+                proxy.foo();
+                fail();
+            }
+            catch (Exception e) {
+                assertThat(e, is(instanceOf(WebServiceException.class)));
+            }
+        }
+
+        verify(underlying, times(2)).foo();
+        assertThat(circuitBreaker.getState(), equalTo(CircuitBreaker.State.OPEN));
+        assertThat(rejected.getCount(), equalTo(1L));
+    }
+
+    @Test
+    public void throwsTransportFailureWhenCircuitOpensBeforeRetry() {
+        WebServiceException failure = new WebServiceException("Read timed out");
+        when(underlying.bar()).thenThrow(failure);
+        CircuitBreaker circuitBreaker = new CircuitBreaker(100, 2, 60000);
+        Meter rejected = new Meter();
+        FooService proxy = FaultTolerantInvocationHandler.create(
+                FooService.class, underlying, circuitBreaker, rejected, retryPolicy);
+
+        try {
+            proxy.bar();
+            fail();
+        }
+        catch (Exception e) {
+            assertThat(e == failure, is(true));
+        }
+
+        verify(underlying, times(2)).bar();
+        assertThat(circuitBreaker.getState(), equalTo(CircuitBreaker.State.OPEN));
+        assertThat(rejected.getCount(), equalTo(0L));
+        assertThat(metricRegistry.meter(name("bar", "retries-exhausted")).getCount(), equalTo(1L));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void soapFaultOfHedgedOperationIsNotFailure() {
+        FooService hedgedUnderlying = mock(FooService.class, withSettings().extraInterfaces(BindingProvider.class));
+        AsyncClient<FooService> asyncClient = mock(AsyncClient.class);
+        when(asyncClient.getProxy()).thenReturn(hedgedUnderlying);
+        CompletableFuture<Object> response = new CompletableFuture<>();
+        response.completeExceptionally(new SoapFault("bar failure", Soap11.getInstance().getReceiver()));
+        when(asyncClient.invoke(eq("bar"), (Object[])anyVararg())).thenReturn(response);
+        HedgingPolicy hedgingPolicy = new HedgingPolicy(100, 10,
+                HedgingPolicy.idempotentOperations(FooService.class, ImmutableSet.of()),
+                mock(ScheduledExecutorService.class), metricRegistry, FooService.class);
+        CircuitBreaker circuitBreaker = new CircuitBreaker(100, 2, 60000);
+        FooService proxy = FaultTolerantInvocationHandler.create(FooService.class,
+                HedgingInvocationHandler.create(FooService.class, asyncClient, hedgingPolicy),
+                circuitBreaker, new Meter(), retryPolicy);
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                proxy.bar();
+                fail();
+            }
+            catch (Exception e) {
+                assertThat(e, is(instanceOf(SOAPFaultException.class)));
+                assertThat(e.getMessage(), equalTo("bar failure"));
+            }
+        }
+
+        verify(asyncClient, times(2)).invoke(eq("bar"), (Object[])anyVararg());
+        assertThat(circuitBreaker.getState(), equalTo(CircuitBreaker.State.CLOSED));
+        assertThat(metricRegistry.meter(name("bar", "retries")).getCount(), equalTo(0L));
+    }
+}
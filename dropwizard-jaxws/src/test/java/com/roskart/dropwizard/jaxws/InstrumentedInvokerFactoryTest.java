@@ -6,7 +6,11 @@ import com.codahale.metrics.annotation.Metered;
 import com.codahale.metrics.annotation.Timed;
 import com.codahale.metrics.Meter;
 import com.codahale.metrics.Timer;
+import org.apache.cxf.continuations.Continuation;
+import org.apache.cxf.continuations.ContinuationProvider;
 import org.apache.cxf.message.Exchange;
+import org.apache.cxf.message.ExchangeImpl;
+import org.apache.cxf.message.Message;
 import org.apache.cxf.service.invoker.Invoker;
 import org.apache.cxf.service.model.BindingOperationInfo;
 import org.apache.cxf.service.model.OperationInfo;
@@ -49,6 +53,18 @@ public class InstrumentedInvokerFactoryTest {
                 return "exceptionMeteredReturn";
             }
         }
+
+        @Timed
+        @Metered
+        @ExceptionMetered
+        public String allMetrics(boolean doThrow) {
+            if (doThrow) {
+                throw new RuntimeException("Runtime exception occured");
+            }
+            else {
+                return "allMetricsReturn";
+            }
+        }
     }
 
     MetricRegistry testMetricRegistry;
@@ -92,16 +108,32 @@ public class InstrumentedInvokerFactoryTest {
         }
     }
 
+    public class AllMetricsInvoker implements Invoker {
+        private boolean doThrow;
+        public AllMetricsInvoker(boolean doThrow) {
+            this.doThrow = doThrow;
+        }
+        @Override
+        public Object invoke(Exchange exchange, Object o) {
+            return instrumentedService.allMetrics(doThrow);
+        }
+    }
+
     /**
-     * Utility method that mimics runtime CXF behaviour. Enables AbstractInvoker.getTargetMethod to work properly
+     * Utility method that mimics runtime CXF behaviour. Enables AbstractInvoker.getTargetMethod and
+     * AbstractInvoker.getInvocationPlan to work properly
      * during the test.
      */
     private void setTargetMethod(Exchange exchange, String methodName, Class<?>... parameterTypes) {
 
         try {
             OperationInfo oi = exchange.getBindingOperationInfo().getOperationInfo();
-            when(oi.getProperty(Method.class.getName()))
-                    .thenReturn(InstrumentedService.class.getMethod(methodName, parameterTypes));
+            Method method = InstrumentedService.class.getMethod(methodName, parameterTypes);
+            when(oi.getProperty(Method.class.getName())).thenReturn(method);
+            when(oi.getProperty(InvocationPlan.class.getName())).thenReturn(
+                    new InvocationPlan.Builder(method)
+                            .metrics(invokerBuilder.createOperationMetrics(method))
+                            .build());
         }
         catch (Exception e) {
             fail("setTargetMethod failed: " + e.getClass().getName() + ": " + e.getMessage());
@@ -232,4 +264,96 @@ public class InstrumentedInvokerFactoryTest {
 
     }
 
+    @Test
+    public void allMetricsAnnotations() {
+
+        Timer timer = testMetricRegistry.timer("timed");
+        Meter meter = testMetricRegistry.meter("metered");
+        Meter exceptionmeter = testMetricRegistry.meter("allMetricsExceptions");
+        when(mockMetricRegistry.timer(anyString())).thenReturn(timer);
+        when(mockMetricRegistry.meter(anyString())).thenReturn(meter);
+        when(mockMetricRegistry.meter(contains(ExceptionMetered.DEFAULT_NAME_SUFFIX))).thenReturn(exceptionmeter);
+
+        long oldtimervalue = timer.getCount();
+        long oldmetervalue = meter.getCount();
+        long oldexceptionmetervalue = exceptionmeter.getCount();
+
+        Invoker invoker = invokerBuilder.create(instrumentedService, new AllMetricsInvoker(false));
+        this.setTargetMethod(exchange, "allMetrics", boolean.class); // simulate CXF behavior
+
+        assertThat(invoker, is(instanceOf(InstrumentedInvokers.InstrumentedInvoker.class)));
+
+        Object result = invoker.invoke(exchange, null);
+        assertEquals("allMetricsReturn", result);
+
+        assertThat(timer.getCount(), is(1 + oldtimervalue));
+        assertThat(meter.getCount(), is(1 + oldmetervalue));
+        assertThat(exceptionmeter.getCount(), is(oldexceptionmetervalue));
+
+        invoker = invokerBuilder.create(instrumentedService, new AllMetricsInvoker(true));
+
+        try {
+            invoker.invoke(exchange, null);
+            fail("Exception shall be thrown here");
+        }
+        catch (Exception e) {
+            assertThat(e, is(instanceOf(RuntimeException.class)));
+        }
+
+        assertThat(timer.getCount(), is(2 + oldtimervalue));
+        assertThat(meter.getCount(), is(2 + oldmetervalue));
+        assertThat(exceptionmeter.getCount(), is(1 + oldexceptionmetervalue));
+    }
+
+    @Test
+    public void allMetricsAnnotationsOnSuspendedAsyncOperation() throws Exception {
+
+        Timer timer = testMetricRegistry.timer("timed");
+        Meter meter = testMetricRegistry.meter("metered");
+        Meter exceptionmeter = testMetricRegistry.meter("allMetricsExceptions");
+        when(mockMetricRegistry.timer(anyString())).thenReturn(timer);
+        when(mockMetricRegistry.meter(anyString())).thenReturn(meter);
+        when(mockMetricRegistry.meter(contains(ExceptionMetered.DEFAULT_NAME_SUFFIX))).thenReturn(exceptionmeter);
+
+        // Simulate CXF behavior: invocation of @UseAsyncMethod operation is suspended on first invoke and resumed
+        // when the asynchronous response is ready.
+        Continuation continuation = mock(Continuation.class);
+        when(continuation.isPending()).thenReturn(true, false);
+        ContinuationProvider provider = mock(ContinuationProvider.class);
+        when(provider.getContinuation()).thenReturn(continuation);
+        Message inMessage = mock(Message.class);
+        when(inMessage.get(ContinuationProvider.class.getName())).thenReturn(provider);
+
+        Exchange asyncExchange = new ExchangeImpl();
+        asyncExchange.put(BindingOperationInfo.class, exchange.getBindingOperationInfo());
+        asyncExchange.setInMessage(inMessage);
+
+        Method method = InstrumentedService.class.getMethod("allMetrics", boolean.class);
+        when(asyncExchange.getBindingOperationInfo().getOperationInfo().getProperty(InvocationPlan.class.getName()))
+                .thenReturn(new InvocationPlan.Builder(method)
+                        .async(true)
+                        .metrics(invokerBuilder.createOperationMetrics(method))
+                        .build());
+
+        long oldtimervalue = timer.getCount();
+        long oldmetervalue = meter.getCount();
+        long oldexceptionmetervalue = exceptionmeter.getCount();
+
+        invokerBuilder.create(instrumentedService, new AllMetricsInvoker(false)).invoke(asyncExchange, null);
+
+        assertThat(timer.getCount(), is(oldtimervalue));
+        assertThat(meter.getCount(), is(1 + oldmetervalue));
+
+        try {
+            invokerBuilder.create(instrumentedService, new AllMetricsInvoker(true)).invoke(asyncExchange, null);
+            fail("Exception shall be thrown here");
+        }
+        catch (Exception e) {
+            assertThat(e, is(instanceOf(RuntimeException.class)));
+        }
+
+        assertThat(timer.getCount(), is(1 + oldtimervalue));
+        assertThat(meter.getCount(), is(1 + oldmetervalue));
+        assertThat(exceptionmeter.getCount(), is(1 + oldexceptionmetervalue));
+    }
 }
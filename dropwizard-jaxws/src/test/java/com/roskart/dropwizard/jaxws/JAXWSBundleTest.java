@@ -2,6 +2,7 @@ package com.roskart.dropwizard.jaxws;
 
 import com.codahale.metrics.MetricRegistry;
 import io.dropwizard.Configuration;
+import io.dropwizard.lifecycle.Managed;
 import io.dropwizard.lifecycle.ServerLifecycleListener;
 import io.dropwizard.lifecycle.setup.LifecycleEnvironment;
 import io.dropwizard.setup.Bootstrap;
@@ -9,10 +10,12 @@ import io.dropwizard.setup.Environment;
 import io.dropwizard.jetty.setup.ServletEnvironment;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 
 import javax.servlet.Servlet;
 import javax.servlet.ServletRegistration;
 import javax.servlet.http.HttpServlet;
+import javax.validation.Validator;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.instanceOf;
@@ -28,11 +31,13 @@ public class JAXWSBundleTest {
     ServletRegistration.Dynamic servlet = mock(ServletRegistration.Dynamic.class);
     JAXWSEnvironment jaxwsEnvironment = mock(JAXWSEnvironment.class);
     LifecycleEnvironment lifecycleEnvironment = mock(LifecycleEnvironment.class);
+    Validator validator = mock(Validator.class);
 
     @Before
     public void setUp() {
         when(environment.servlets()).thenReturn(servletEnvironment);
         when(environment.lifecycle()).thenReturn(lifecycleEnvironment);
+        when(environment.getValidator()).thenReturn(validator);
         when(bootstrap.getMetricRegistry()).thenReturn(mock(MetricRegistry.class));
         when(servletEnvironment.addServlet(anyString(), any(HttpServlet.class))).thenReturn(servlet);
         when(jaxwsEnvironment.buildServlet()).thenReturn(mock(HttpServlet.class));
@@ -59,7 +64,7 @@ public class JAXWSBundleTest {
     }
 
     @Test
-    public void initializeAndRun() {
+    public void initializeAndRun() throws Exception {
         JAXWSBundle<?> jaxwsBundle = new JAXWSBundle<>("/soap", jaxwsEnvironment);
 
         try {
@@ -70,13 +75,25 @@ public class JAXWSBundleTest {
         }
 
         jaxwsBundle.initialize(bootstrap);
+        verify(jaxwsEnvironment).setMetricRegistry(any(MetricRegistry.class));
         verify(jaxwsEnvironment).setInstrumentedInvokerBuilder(any(InstrumentedInvokerFactory.class));
+        verify(jaxwsEnvironment).setCachingInvokerBuilder(any(CachingInvokerFactory.class));
+        verify(jaxwsEnvironment).setCoalescingInvokerBuilder(any(CoalescingInvokerFactory.class));
+        verify(jaxwsEnvironment).setConcurrencyLimitingInvokerBuilder(any(ConcurrencyLimitingInvokerFactory.class));
+        verify(jaxwsEnvironment).setUnitOfWorkInvokerBuilder(any(UnitOfWorkInvokerFactory.class));
 
         jaxwsBundle.run(null, environment);
         verify(servletEnvironment).addServlet(startsWith("CXF Servlet"), any(Servlet.class));
         verify(lifecycleEnvironment).addServerLifecycleListener(any(ServerLifecycleListener.class));
         verify(servlet).addMapping("/soap/*");
+        verify(servlet).setAsyncSupported(true);
+        verify(jaxwsEnvironment).setValidator(validator);
         verify(jaxwsEnvironment, never()).setPublishedEndpointUrlPrefix(anyString());
+
+        ArgumentCaptor<Managed> managed = ArgumentCaptor.forClass(Managed.class);
+        verify(lifecycleEnvironment).manage(managed.capture());
+        managed.getValue().stop();
+        verify(jaxwsEnvironment).stop();
     }
 
     @Test
@@ -96,7 +113,12 @@ public class JAXWSBundleTest {
         }
 
         jaxwsBundle.initialize(bootstrap);
+        verify(jaxwsEnvironment).setMetricRegistry(any(MetricRegistry.class));
         verify(jaxwsEnvironment).setInstrumentedInvokerBuilder(any(InstrumentedInvokerFactory.class));
+        verify(jaxwsEnvironment).setCachingInvokerBuilder(any(CachingInvokerFactory.class));
+        verify(jaxwsEnvironment).setCoalescingInvokerBuilder(any(CoalescingInvokerFactory.class));
+        verify(jaxwsEnvironment).setConcurrencyLimitingInvokerBuilder(any(ConcurrencyLimitingInvokerFactory.class));
+        verify(jaxwsEnvironment).setUnitOfWorkInvokerBuilder(any(UnitOfWorkInvokerFactory.class));
 
         jaxwsBundle.run(null, environment);
         verify(servletEnvironment).addServlet(startsWith("CXF Servlet"), any(Servlet.class));
@@ -176,4 +198,40 @@ public class JAXWSBundleTest {
         jaxwsBundle.getClient(builder);
         verify(jaxwsEnvironment).getClient(builder);
     }
+
+    @Test
+    public void getClientPool() {
+
+        JAXWSBundle<?> jaxwsBundle = new JAXWSBundle<>("/soap", jaxwsEnvironment);
+
+        try {
+            jaxwsBundle.getClientPool(null);
+            fail();
+        }
+        catch (Exception e) {
+            assertThat(e, is(instanceOf(IllegalArgumentException.class)));
+        }
+
+        ClientBuilder<?> builder = new ClientBuilder<>(Object.class, "http://foo");
+        jaxwsBundle.getClientPool(builder);
+        verify(jaxwsEnvironment).getClientPool(builder);
+    }
+
+    @Test
+    public void getAsyncClient() {
+
+        JAXWSBundle<?> jaxwsBundle = new JAXWSBundle<>("/soap", jaxwsEnvironment);
+
+        try {
+            jaxwsBundle.getAsyncClient(null);
+            fail();
+        }
+        catch (Exception e) {
+            assertThat(e, is(instanceOf(IllegalArgumentException.class)));
+        }
+
+        ClientBuilder<?> builder = new ClientBuilder<>(Object.class, "http://foo");
+        jaxwsBundle.getAsyncClient(builder);
+        verify(jaxwsEnvironment).getAsyncClient(builder);
+    }
 }
@@ -1,6 +1,8 @@
 package com.roskart.dropwizard.jaxws;
 
 import ch.qos.logback.classic.Level;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableList;
 import org.apache.cxf.Bus;
 import org.apache.cxf.binding.soap.SoapBindingFactory;
 import org.apache.cxf.endpoint.Client;
@@ -13,6 +15,7 @@ import org.apache.cxf.message.Message;
 import org.apache.cxf.phase.AbstractPhaseInterceptor;
 import org.apache.cxf.phase.Phase;
 import org.apache.cxf.service.invoker.Invoker;
+import org.apache.cxf.service.model.BindingOperationInfo;
 import org.apache.cxf.staxutils.StaxUtils;
 import org.apache.cxf.test.TestUtilities;
 import org.apache.cxf.transport.AbstractDestination;
@@ -31,6 +34,7 @@ import javax.jws.WebMethod;
 import javax.jws.WebService;
 import javax.mail.internet.MimeMultipart;
 import javax.mail.util.ByteArrayDataSource;
+import javax.validation.Validator;
 import javax.wsdl.WSDLException;
 import javax.xml.ws.BindingProvider;
 import javax.xml.ws.Endpoint;
@@ -39,13 +43,21 @@ import javax.xml.ws.soap.SOAPBinding;
 
 import java.lang.reflect.Proxy;
 import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.collection.IsIterableContainingInOrder.contains;
+import static org.hamcrest.CoreMatchers.hasItems;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.*;
 
 public class JAXWSEnvironmentTest {
@@ -148,6 +160,32 @@ public class JAXWSEnvironmentTest {
         testutils.assertValid("/soap:Envelope/soap:Body/a:fooResponse", soapResponse);
     }
 
+    @Test
+    public void publishEndpointAttachesInvocationPlans() throws Exception {
+
+        jaxwsEnvironment.publishEndpoint(new EndpointBuilder("local://path", service));
+
+        Server server = testutils.getServerForAddress("local://path");
+        for (BindingOperationInfo boi : server.getEndpoint().getEndpointInfo().getBinding().getOperations()) {
+            Object plan = boi.getOperationInfo().getProperty(InvocationPlan.class.getName());
+            assertThat(plan, is(instanceOf(InvocationPlan.class)));
+            assertThat(((InvocationPlan)plan).getMethod(), equalTo(DummyService.class.getMethod("foo")));
+            assertThat(((InvocationPlan)plan).getUnitOfWork(), is(nullValue()));
+        }
+    }
+
+    @Test
+    public void validatorIsSharedBetweenEndpoints() {
+
+        Validator validator = jaxwsEnvironment.getValidator();
+        assertThat(validator, is(notNullValue()));
+        assertThat(jaxwsEnvironment.getValidator(), is(sameInstance(validator)));
+
+        Validator anotherValidator = mock(Validator.class);
+        jaxwsEnvironment.setValidator(anotherValidator);
+        assertThat(jaxwsEnvironment.getValidator(), is(sameInstance(anotherValidator)));
+    }
+
     @Test
     public void publishEndpointWithAnotherEnvironment() throws Exception {
 
@@ -399,4 +437,174 @@ public class JAXWSEnvironmentTest {
         SOAPBinding binding = (SOAPBinding)bp.getBinding();
         assertThat(binding.isMTOMEnabled(), equalTo(true));
     }
+
+    @Test
+    public void getClientPool() {
+
+        String address = "http://address";
+
+        ClientPool<DummyInterface> clientPool = jaxwsEnvironment.getClientPool(
+                new ClientBuilder<>(DummyInterface.class, address)
+                        .receiveTimeout(456)
+                        .clientPoolSize(2));
+
+        DummyInterface first = clientPool.borrow();
+        DummyInterface second = clientPool.borrow();
+        assertThat(first, is(not(sameInstance(second))));
+        assertThat(clientPool.getAvailable(), equalTo(0));
+
+        Client c = ClientProxy.getClient(second);
+        assertThat(c.getEndpoint().getEndpointInfo().getAddress(), equalTo(address));
+        assertThat(((HTTPConduit)c.getConduit()).getClient().getReceiveTimeout(), equalTo(456L));
+
+        clientPool.release(first);
+        assertThat(clientPool.borrow(), is(sameInstance(first)));
+    }
+
+    @Test
+    public void replicaGaugesOfAnotherEndpointAreNotReplaced() {
+
+        MetricRegistry metricRegistry = new MetricRegistry();
+        jaxwsEnvironment.setMetricRegistry(metricRegistry);
+
+        jaxwsEnvironment.publishEndpoint(new EndpointBuilder("local://path", service)
+                .sessionFactory(mock(SessionFactory.class))
+                .readReplicas(ReplicaRouter.Strategy.ROUND_ROBIN, mock(SessionFactory.class)));
+        try {
+            jaxwsEnvironment.publishEndpoint(new EndpointBuilder("local://other", service)
+                    .sessionFactory(mock(SessionFactory.class))
+                    .readReplicas(ReplicaRouter.Strategy.ROUND_ROBIN, mock(SessionFactory.class)));
+            fail();
+        }
+        catch (IllegalStateException e) {
+            assertThat(e.getCause(), is(instanceOf(IllegalArgumentException.class)));
+        }
+
+        assertThat(metricRegistry.getGauges().keySet(), hasItems(
+                MetricRegistry.name(DummyService.class, "replica-0-active-sessions")));
+    }
+
+    @Test
+    public void executorGaugesOfAnotherEndpointAreNotReplaced() {
+
+        MetricRegistry metricRegistry = new MetricRegistry();
+        jaxwsEnvironment.setMetricRegistry(metricRegistry);
+        ExecutorService first = Executors.newFixedThreadPool(1);
+        ExecutorService second = Executors.newFixedThreadPool(1);
+
+        try {
+            jaxwsEnvironment.publishEndpoint(new EndpointBuilder("local://path", service).executor(first));
+            try {
+                jaxwsEnvironment.publishEndpoint(new EndpointBuilder("local://other", service).executor(second));
+                fail();
+            }
+            catch (IllegalStateException e) {
+                assertThat(e.getCause(), is(instanceOf(IllegalArgumentException.class)));
+            }
+        }
+        finally {
+            first.shutdown();
+            second.shutdown();
+        }
+    }
+
+    @Test
+    public void connectionPoolGaugesOfNamedClients() {
+
+        String address = "http://address";
+        MetricRegistry metricRegistry = new MetricRegistry();
+        jaxwsEnvironment.setMetricRegistry(metricRegistry);
+
+        jaxwsEnvironment.getClient(new ClientBuilder<>(DummyInterface.class, address).connectionPool(10, 10));
+        try {
+            jaxwsEnvironment.getClient(new ClientBuilder<>(DummyInterface.class, address).connectionPool(10, 10));
+            fail();
+        }
+        catch (IllegalStateException e) {
+            assertThat(e.getCause(), is(instanceOf(IllegalArgumentException.class)));
+        }
+        jaxwsEnvironment.getClient(new ClientBuilder<>(DummyInterface.class, address)
+                .name("other")
+                .connectionPool(10, 10));
+
+        assertThat(metricRegistry.getGauges().keySet(), hasItems(
+                MetricRegistry.name(DummyInterface.class, "client", "leased-connections"),
+                MetricRegistry.name(DummyInterface.class, "other", "client", "leased-connections")));
+    }
+
+    @Test
+    public void pooledHedgingClientsShareHedgingPolicy() {
+
+        ClientPool<DummyInterface> clientPool = jaxwsEnvironment.getClientPool(
+                new ClientBuilder<>(DummyInterface.class, "http://address")
+                        .hedging(50, 10)
+                        .clientPoolSize(2));
+
+        HedgingInvocationHandler first = (HedgingInvocationHandler)Proxy.getInvocationHandler(clientPool.borrow());
+        HedgingInvocationHandler second = (HedgingInvocationHandler)Proxy.getInvocationHandler(clientPool.borrow());
+        assertThat(first, is(not(sameInstance(second))));
+        assertThat(first.getHedgingPolicy(), is(sameInstance(second.getHedgingPolicy())));
+    }
+
+    @Test
+    public void stopShutsDownHedgingScheduler() {
+
+        DummyInterface client = jaxwsEnvironment.getClient(
+                new ClientBuilder<>(DummyInterface.class, "http://address").hedging(50, 10));
+        ScheduledExecutorService scheduler =
+                ((HedgingInvocationHandler)Proxy.getInvocationHandler(client)).getHedgingPolicy().getScheduler();
+
+        jaxwsEnvironment.stop();
+
+        assertThat(scheduler.isShutdown(), equalTo(true));
+    }
+
+    @Test
+    public void circuitBreakerGaugesOfNamedClients() {
+
+        String address = "http://address";
+        MetricRegistry metricRegistry = new MetricRegistry();
+        jaxwsEnvironment.setMetricRegistry(metricRegistry);
+
+        jaxwsEnvironment.getClient(new ClientBuilder<>(DummyInterface.class, address).circuitBreaker(50, 10, 1000));
+        try {
+            jaxwsEnvironment.getClient(new ClientBuilder<>(DummyInterface.class, address).circuitBreaker(50, 10, 1000));
+            fail();
+        }
+        catch (IllegalStateException e) {
+            assertThat(e.getCause(), is(instanceOf(IllegalArgumentException.class)));
+        }
+        jaxwsEnvironment.getClient(new ClientBuilder<>(DummyInterface.class, address)
+                .name("other")
+                .circuitBreaker(50, 10, 1000));
+
+        assertThat(metricRegistry.getGauges().keySet(), hasItems(
+                MetricRegistry.name(DummyInterface.class, "client", "circuit-breaker", "state"),
+                MetricRegistry.name(DummyInterface.class, "other", "client", "circuit-breaker", "state")));
+    }
+
+    @Test
+    public void loadBalancedEndpointGaugesOfNamedClients() {
+
+        ImmutableList<String> addresses = ImmutableList.of("http://address1", "http://address2");
+        MetricRegistry metricRegistry = new MetricRegistry();
+        jaxwsEnvironment.setMetricRegistry(metricRegistry);
+
+        jaxwsEnvironment.getClient(new ClientBuilder<>(DummyInterface.class, "http://address").addresses(addresses));
+        try {
+            jaxwsEnvironment.getClient(new ClientBuilder<>(DummyInterface.class, "http://address")
+                    .addresses(addresses));
+            fail();
+        }
+        catch (IllegalStateException e) {
+            assertThat(e.getCause(), is(instanceOf(IllegalArgumentException.class)));
+        }
+        jaxwsEnvironment.getClient(new ClientBuilder<>(DummyInterface.class, "http://address")
+                .name("other")
+                .addresses(addresses));
+
+        assertThat(metricRegistry.getGauges().keySet(), hasItems(
+                MetricRegistry.name(DummyInterface.class, "client", "endpoint-1", "outstanding"),
+                MetricRegistry.name(DummyInterface.class, "other", "client", "endpoint-1", "outstanding")));
+    }
 }
@@ -0,0 +1,164 @@
+package com.roskart.dropwizard.jaxws;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Timer;
+import com.google.common.collect.ImmutableList;
+import org.apache.cxf.message.Exchange;
+import org.apache.cxf.message.ExchangeImpl;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.message.MessageImpl;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class LoadBalancerTest {
+
+    long now = 0;
+    LoadBalancer.Endpoint first = LoadBalancer.endpoint("address 1", new Timer(), new Meter(), new Meter());
+    LoadBalancer.Endpoint second = LoadBalancer.endpoint("address 2", new Timer(), new Meter(), new Meter());
+
+    private LoadBalancer loadBalancer(LoadBalancer.Strategy strategy) {
+        return new LoadBalancer(strategy, ImmutableList.of(first, second), 2, 1000, () -> now);
+    }
+
+    @Test
+    public void roundRobin() {
+        LoadBalancer loadBalancer = loadBalancer(LoadBalancer.Strategy.ROUND_ROBIN);
+
+        assertThat(loadBalancer.select(), equalTo(first));
+        assertThat(loadBalancer.select(), equalTo(second));
+        assertThat(loadBalancer.select(), equalTo(first));
+    }
+
+    @Test
+    public void leastOutstanding() {
+        LoadBalancer loadBalancer = loadBalancer(LoadBalancer.Strategy.LEAST_OUTSTANDING);
+        loadBalancer.started(first);
+
+        assertThat(loadBalancer.select(), equalTo(second));
+        assertThat(loadBalancer.select(), equalTo(second));
+
+        loadBalancer.started(second);
+        loadBalancer.started(second);
+
+        assertThat(loadBalancer.select(), equalTo(first));
+    }
+
+    @Test
+    public void powerOfTwoChoicesPrefersLowerLatency() {
+        LoadBalancer loadBalancer = loadBalancer(LoadBalancer.Strategy.POWER_OF_TWO_CHOICES);
+        loadBalancer.started(first);
+        loadBalancer.completed(first, TimeUnit.MILLISECONDS.toNanos(100), false);
+        loadBalancer.started(second);
+        loadBalancer.completed(second, TimeUnit.MILLISECONDS.toNanos(10), false);
+
+        assertThat(loadBalancer.select(), equalTo(second));
+
+        // outstanding calls outweigh lower latency
+        for (int i = 0; i < 10; i++) {
+            loadBalancer.started(second);
+        }
+
+        assertThat(loadBalancer.select(), equalTo(first));
+    }
+
+    @Test
+    public void ejectsEndpointAfterConsecutiveFailures() {
+        LoadBalancer loadBalancer = loadBalancer(LoadBalancer.Strategy.ROUND_ROBIN);
+        loadBalancer.started(first);
+        loadBalancer.completed(first, 0, true);
+        loadBalancer.started(first);
+        loadBalancer.completed(first, 0, false);
+        loadBalancer.started(first);
+        loadBalancer.completed(first, 0, true);
+
+        assertThat(first.isEjected(now), equalTo(false));
+
+        loadBalancer.started(first);
+        loadBalancer.completed(first, 0, true);
+
+        assertThat(first.isEjected(now), equalTo(true));
+        assertThat(loadBalancer.select(), equalTo(second));
+        assertThat(loadBalancer.select(), equalTo(second));
+
+        now += TimeUnit.MILLISECONDS.toNanos(1000);
+
+        assertThat(first.isEjected(now), equalTo(false));
+    }
+
+    @Test
+    public void ejectionTimeGrowsWithoutSuccessfulCall() {
+        LoadBalancer loadBalancer = loadBalancer(LoadBalancer.Strategy.ROUND_ROBIN);
+        for (int i = 0; i < 4; i++) {
+            loadBalancer.started(first);
+            loadBalancer.completed(first, 0, true);
+            if (i == 1) {
+                now += TimeUnit.MILLISECONDS.toNanos(1000);
+            }
+        }
+
+        now += TimeUnit.MILLISECONDS.toNanos(1000);
+
+        assertThat(first.isEjected(now), equalTo(true));
+    }
+
+    @Test
+    public void ignoresEjectionWhenAllEndpointsAreEjected() {
+        LoadBalancer loadBalancer = loadBalancer(LoadBalancer.Strategy.ROUND_ROBIN);
+        for (LoadBalancer.Endpoint endpoint : ImmutableList.of(first, second)) {
+            for (int i = 0; i < 2; i++) {
+                loadBalancer.started(endpoint);
+                loadBalancer.completed(endpoint, 0, true);
+            }
+        }
+
+        assertThat(loadBalancer.select(), equalTo(first));
+        assertThat(loadBalancer.select(), equalTo(second));
+    }
+
+    @Test
+    public void interceptorsSetAddressAndCompleteCall() {
+        LoadBalancer loadBalancer = loadBalancer(LoadBalancer.Strategy.ROUND_ROBIN);
+        Exchange exchange = new ExchangeImpl();
+        Message outMessage = new MessageImpl();
+        outMessage.setExchange(exchange);
+        Message inMessage = new MessageImpl();
+        inMessage.setExchange(exchange);
+
+        loadBalancer.getOutInterceptor().handleMessage(outMessage);
+
+        assertThat((String)outMessage.get(Message.ENDPOINT_ADDRESS), equalTo("address 1"));
+        assertThat(first.getOutstanding(), equalTo(1));
+
+        now += TimeUnit.MILLISECONDS.toNanos(20);
+        loadBalancer.getInInterceptor().handleMessage(inMessage);
+        // out chain unwinding after the response does not complete the call again
+        loadBalancer.getOutInterceptor().handleFault(outMessage);
+
+        assertThat(first.getOutstanding(), equalTo(0));
+        assertThat(first.getEwmaLatency(), equalTo((double)TimeUnit.MILLISECONDS.toNanos(20)));
+    }
+
+    @Test
+    public void outChainFaultIsTransportFailure() {
+        LoadBalancer loadBalancer = loadBalancer(LoadBalancer.Strategy.ROUND_ROBIN);
+        Message outMessage = new MessageImpl();
+        outMessage.setExchange(new ExchangeImpl());
+
+        loadBalancer.getOutInterceptor().handleMessage(outMessage);
+        loadBalancer.getOutInterceptor().handleFault(outMessage);
+
+        assertThat(first.getOutstanding(), equalTo(0));
+        assertThat(first.isEjected(now), equalTo(false));
+
+        // skips the second endpoint
+        loadBalancer.select();
+        loadBalancer.getOutInterceptor().handleMessage(outMessage);
+        loadBalancer.getOutInterceptor().handleFault(outMessage);
+
+        assertThat(first.isEjected(now), equalTo(true));
+    }
+}
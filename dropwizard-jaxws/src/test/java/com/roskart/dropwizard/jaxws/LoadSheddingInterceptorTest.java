@@ -0,0 +1,106 @@
+package com.roskart.dropwizard.jaxws;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.codahale.metrics.Meter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import javax.servlet.http.HttpServletRequest;
+import org.apache.cxf.interceptor.InterceptorChain;
+import org.apache.cxf.message.Exchange;
+import org.apache.cxf.message.ExchangeImpl;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.message.MessageImpl;
+import org.apache.cxf.transport.Conduit;
+import org.apache.cxf.transport.Destination;
+import org.apache.cxf.transport.http.AbstractHTTPDestination;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+public class LoadSheddingInterceptorTest {
+
+    @Mock
+    private InterceptorChain interceptorChainMock;
+    @Mock
+    private Destination destinationMock;
+    @Mock
+    private Conduit conduitMock;
+    @Mock
+    private Message inMessageMock;
+    @Mock
+    private Message outMessageMock;
+    @Mock
+    private OutputStream outputStreamMock;
+
+    private Meter shed = new Meter();
+
+    @Before
+    public void setup() throws IOException {
+        MockitoAnnotations.initMocks(this);
+        when(destinationMock.getBackChannel(any())).thenReturn(conduitMock);
+        when(outMessageMock.getContent(OutputStream.class)).thenReturn(outputStreamMock);
+    }
+
+    private LoadSheddingInterceptor createInterceptor(final long queueTime) {
+        return new LoadSheddingInterceptor(100, shed) {
+            @Override
+            protected long getQueueTime(HttpServletRequest request) {
+                return queueTime;
+            }
+        };
+    }
+
+    @Test
+    public void shouldProcessRequestWithinBudget() {
+        Message message = createMessage();
+
+        createInterceptor(50).handleMessage(message);
+
+        verify(interceptorChainMock, never()).abort();
+        assertThat(shed.getCount(), equalTo(0L));
+    }
+
+    @Test
+    public void shouldDropRequestOverBudget() {
+        Message message = createMessage();
+
+        createInterceptor(150).handleMessage(message);
+
+        verify(outMessageMock).put(Message.RESPONSE_CODE, HttpURLConnection.HTTP_UNAVAILABLE);
+        verify(interceptorChainMock).abort();
+        assertThat(shed.getCount(), equalTo(1L));
+    }
+
+    @Test
+    public void shouldIgnoreNonHttpRequest() {
+        Message message = createMessage();
+        message.remove(AbstractHTTPDestination.HTTP_REQUEST);
+
+        createInterceptor(150).handleMessage(message);
+
+        verify(interceptorChainMock, never()).abort();
+        assertThat(shed.getCount(), equalTo(0L));
+    }
+
+    private Message createMessage() {
+        Exchange exchange = new ExchangeImpl();
+        exchange.setInMessage(inMessageMock);
+        exchange.setOutMessage(outMessageMock);
+        exchange.setDestination(destinationMock);
+
+        Message message = new MessageImpl();
+        message.setExchange(exchange);
+        message.setInterceptorChain(interceptorChainMock);
+        message.put(AbstractHTTPDestination.HTTP_REQUEST, mock(HttpServletRequest.class));
+        return message;
+    }
+}
@@ -0,0 +1,123 @@
+package com.roskart.dropwizard.jaxws;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.annotation.Resource;
+import javax.jws.WebMethod;
+import javax.jws.WebService;
+import javax.xml.ws.WebServiceContext;
+import javax.xml.ws.handler.MessageContext;
+import javax.xml.ws.soap.SOAPFaultException;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.startsWith;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Publishes offloaded endpoint with CXF servlet running in Jetty, so that requests are suspended and resumed with
+ * servlet 3 continuations.
+ */
+public class OffloadingInvokerIntegrationTest {
+
+    @WebService(name = "OffloadedService")
+    public interface OffloadedServiceInterface {
+        @WebMethod
+        String foo();
+        @WebMethod
+        String fail();
+    }
+
+    @WebService(name = "OffloadedService")
+    public static class OffloadedService {
+        @Resource
+        WebServiceContext context;
+        volatile Deadline deadline;
+        volatile MessageContext messageContext;
+        @WebMethod
+        public String foo() {
+            deadline = Deadline.current();
+            messageContext = context.getMessageContext();
+            return Thread.currentThread().getName();
+        }
+        @WebMethod
+        public String fail() {
+            throw new IllegalStateException("offloaded failure");
+        }
+    }
+
+    JAXWSEnvironment jaxwsEnvironment;
+    OffloadedService service = new OffloadedService();
+    ExecutorService executor;
+    Server server;
+    OffloadedServiceInterface client;
+
+    @Before
+    public void setup() throws Exception {
+        jaxwsEnvironment = new JAXWSEnvironment("/soap");
+        jaxwsEnvironment.setInstrumentedInvokerBuilder(new InstrumentedInvokerFactory(new MetricRegistry()));
+
+        executor = Executors.newFixedThreadPool(2,
+                new ThreadFactoryBuilder().setNameFormat("offloaded-%d").build());
+        jaxwsEnvironment.publishEndpoint(new EndpointBuilder("/offloaded", service)
+                .executor(executor)
+                .honorRequestTimeout());
+
+        // async support enables CXF servlet 3 continuations, same as in JAXWSBundle
+        ServletHolder servlet = new ServletHolder(jaxwsEnvironment.buildServlet());
+        servlet.setAsyncSupported(true);
+        ServletContextHandler context = new ServletContextHandler();
+        context.addServlet(servlet, "/soap/*");
+        server = new Server(0);
+        server.setHandler(context);
+        server.start();
+
+        int port = ((ServerConnector)server.getConnectors()[0]).getLocalPort();
+        client = jaxwsEnvironment.getClient(new ClientBuilder<>(OffloadedServiceInterface.class,
+                "http://localhost:" + port + "/soap/offloaded")
+                .receiveTimeout(10000)
+                .deadlinePropagation(true));
+    }
+
+    @After
+    public void teardown() throws Exception {
+        server.stop();
+        executor.shutdown();
+        jaxwsEnvironment.bus.shutdown(false);
+    }
+
+    @Test
+    public void offloadedInvocationIsResumed() {
+        assertThat(client.foo(), startsWith("offloaded-"));
+        assertThat(client.foo(), startsWith("offloaded-"));
+
+        // thread bound state, which is available on the executor thread
+        assertThat(service.deadline, notNullValue());
+        assertThat(service.messageContext, notNullValue());
+    }
+
+    @Test
+    public void offloadedFailureIsReturnedAsFault() {
+        try {
+            client.fail();
+            fail();
+        }
+        catch (SOAPFaultException e) {
+            assertThat(e.getMessage(), equalTo("offloaded failure"));
+        }
+
+        assertThat(client.foo(), startsWith("offloaded-"));
+    }
+}
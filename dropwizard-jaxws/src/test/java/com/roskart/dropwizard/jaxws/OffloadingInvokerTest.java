@@ -0,0 +1,179 @@
+package com.roskart.dropwizard.jaxws;
+
+import com.codahale.metrics.Meter;
+import org.apache.cxf.continuations.Continuation;
+import org.apache.cxf.continuations.ContinuationProvider;
+import org.apache.cxf.interceptor.Fault;
+import org.apache.cxf.message.Exchange;
+import org.apache.cxf.message.FaultMode;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.service.invoker.Invoker;
+import org.apache.cxf.service.model.BindingOperationInfo;
+import org.apache.cxf.service.model.OperationInfo;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+public class OffloadingInvokerTest {
+
+    class FooService {
+        public String foo() {
+            return "foo return";
+        }
+    }
+
+    /**
+     * Collects submitted tasks, which are run by the test.
+     */
+    class QueueingExecutor implements Executor {
+        final List<Runnable> tasks = new ArrayList<>();
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+    }
+
+    Exchange exchange;
+    Message inMessage;
+    OperationInfo oi;
+    Continuation continuation;
+    Object continuationObject;
+    QueueingExecutor executor;
+
+    @Before
+    public void setup() throws Exception {
+        exchange = mock(Exchange.class);
+        inMessage = mock(Message.class);
+        when(exchange.getInMessage()).thenReturn(inMessage);
+        BindingOperationInfo boi = mock(BindingOperationInfo.class);
+        when(exchange.getBindingOperationInfo()).thenReturn(boi);
+        oi = mock(OperationInfo.class);
+        when(boi.getOperationInfo()).thenReturn(oi);
+        setInvocationPlan(false);
+
+        // Mimics CXF servlet continuation, which stores an object and is not new after it was suspended
+        continuation = mock(Continuation.class);
+        when(continuation.isNew()).thenReturn(true, false);
+        doAnswer(invocation -> continuationObject = invocation.getArguments()[0])
+                .when(continuation).setObject(any());
+        when(continuation.getObject()).thenAnswer(invocation -> continuationObject);
+        ContinuationProvider provider = mock(ContinuationProvider.class);
+        when(provider.getContinuation()).thenReturn(continuation);
+        when(inMessage.get(ContinuationProvider.class.getName())).thenReturn(provider);
+
+        executor = new QueueingExecutor();
+    }
+
+    private void setInvocationPlan(boolean async) throws Exception {
+        Method method = FooService.class.getMethod("foo");
+        when(oi.getProperty(InvocationPlan.class.getName())).thenReturn(
+                new InvocationPlan.Builder(method).async(async).build());
+    }
+
+    @Test
+    public void invokesOnExecutorAndReturnsResultWhenResumed() {
+        Invoker underlying = mock(Invoker.class);
+        when(underlying.invoke(exchange, null)).thenReturn("foo return");
+        OffloadingInvoker invoker = new OffloadingInvoker(underlying, executor, new Meter());
+
+        Object result = invoker.invoke(exchange, null);
+
+        assertThat(result, is(nullValue()));
+        verify(continuation).suspend(0);
+        verifyZeroInteractions(underlying);
+        assertThat(executor.tasks.size(), equalTo(1));
+
+        executor.tasks.get(0).run();
+
+        verify(underlying).invoke(exchange, null);
+        verify(continuation).resume();
+
+        result = invoker.invoke(exchange, null);
+
+        assertThat(result, equalTo("foo return"));
+        assertThat(continuationObject, is(nullValue()));
+        verify(underlying, times(1)).invoke(exchange, null);
+    }
+
+    @Test
+    public void rethrowsExceptionWhenResumed() {
+        Invoker underlying = mock(Invoker.class);
+        when(underlying.invoke(exchange, null)).thenThrow(new IllegalStateException("foo failed"));
+        OffloadingInvoker invoker = new OffloadingInvoker(underlying, executor, new Meter());
+
+        invoker.invoke(exchange, null);
+        executor.tasks.get(0).run();
+
+        verify(continuation).resume();
+
+        try {
+            invoker.invoke(exchange, null);
+            fail();
+        }
+        catch (Exception e) {
+            assertThat(e, is(instanceOf(IllegalStateException.class)));
+        }
+    }
+
+    @Test
+    public void failsWhenExecutorRejectsInvocation() {
+        Invoker underlying = mock(Invoker.class);
+        Meter rejections = new Meter();
+        Executor rejectingExecutor = command -> {
+            throw new RejectedExecutionException("executor is full");
+        };
+
+        try {
+            new OffloadingInvoker(underlying, rejectingExecutor, rejections).invoke(exchange, null);
+            fail();
+        }
+        catch (Exception e) {
+            assertThat(e, is(instanceOf(Fault.class)));
+            assertThat(e.getCause(), is(instanceOf(RejectedExecutionException.class)));
+        }
+
+        verifyZeroInteractions(underlying);
+        verify(continuation, never()).suspend(anyLong());
+        verify(inMessage).put(FaultMode.class, FaultMode.CHECKED_APPLICATION_FAULT);
+        assertThat(rejections.getCount(), equalTo(1L));
+    }
+
+    @Test
+    public void invokesInlineWithoutContinuations() {
+        when(inMessage.get(ContinuationProvider.class.getName())).thenReturn(null);
+        Invoker underlying = mock(Invoker.class);
+        when(underlying.invoke(exchange, null)).thenReturn("foo return");
+
+        Object result = new OffloadingInvoker(underlying, executor, new Meter()).invoke(exchange, null);
+
+        assertThat(result, equalTo("foo return"));
+        assertThat(executor.tasks.isEmpty(), is(true));
+    }
+
+    @Test
+    public void invokesAsyncOperationsInline() throws Exception {
+        setInvocationPlan(true);
+        Invoker underlying = mock(Invoker.class);
+        when(underlying.invoke(exchange, null)).thenReturn("foo return");
+
+        Object result = new OffloadingInvoker(underlying, executor, new Meter()).invoke(exchange, null);
+
+        assertThat(result, equalTo("foo return"));
+        assertThat(executor.tasks.isEmpty(), is(true));
+        verifyZeroInteractions(continuation);
+    }
+}
@@ -0,0 +1,69 @@
+package com.roskart.dropwizard.jaxws;
+
+import org.hibernate.SessionFactory;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+public class ReplicaRouterTest {
+
+    SessionFactory replica1;
+    SessionFactory replica2;
+    SessionFactory replica3;
+
+    @Before
+    public void setup() {
+        replica1 = mock(SessionFactory.class);
+        replica2 = mock(SessionFactory.class);
+        replica3 = mock(SessionFactory.class);
+    }
+
+    @Test
+    public void roundRobin() {
+        ReplicaRouter router = new ReplicaRouter(ReplicaRouter.Strategy.ROUND_ROBIN,
+                Arrays.asList(replica1, replica2, replica3));
+
+        router.getReplicas().get(1).acquired();
+
+        assertThat(router.select().getSessionFactory(), equalTo(replica1));
+        assertThat(router.select().getSessionFactory(), equalTo(replica2));
+        assertThat(router.select().getSessionFactory(), equalTo(replica3));
+        assertThat(router.select().getSessionFactory(), equalTo(replica1));
+    }
+
+    @Test
+    public void leastActive() {
+        ReplicaRouter router = new ReplicaRouter(ReplicaRouter.Strategy.LEAST_ACTIVE,
+                Arrays.asList(replica1, replica2, replica3));
+
+        router.getReplicas().get(0).acquired();
+        router.getReplicas().get(1).acquired();
+
+        assertThat(router.select().getSessionFactory(), equalTo(replica3));
+        assertThat(router.select().getSessionFactory(), equalTo(replica3));
+
+        router.getReplicas().get(2).acquired();
+        router.getReplicas().get(2).acquired();
+        router.getReplicas().get(0).released();
+
+        assertThat(router.select().getSessionFactory(), equalTo(replica1));
+    }
+
+    @Test
+    public void noReplicas() {
+        try {
+            new ReplicaRouter(ReplicaRouter.Strategy.ROUND_ROBIN, Collections.emptyList());
+            fail();
+        }
+        catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), equalTo("Replica session factories are empty"));
+        }
+    }
+}
@@ -1,19 +1,40 @@
 package com.roskart.dropwizard.jaxws;
 
+import com.codahale.metrics.MetricRegistry;
 import io.dropwizard.hibernate.UnitOfWork;
+import org.apache.cxf.continuations.Continuation;
+import org.apache.cxf.continuations.ContinuationProvider;
+import org.apache.cxf.interceptor.Fault;
 import org.apache.cxf.message.Exchange;
+import org.apache.cxf.message.ExchangeImpl;
+import org.apache.cxf.message.Message;
 import org.apache.cxf.service.invoker.Invoker;
 import org.apache.cxf.service.model.BindingOperationInfo;
 import org.apache.cxf.service.model.OperationInfo;
+import org.apache.cxf.transport.http.AbstractHTTPDestination;
 import org.hibernate.Session;
+import org.hibernate.SessionEventListener;
 import org.hibernate.SessionFactory;
+import org.hibernate.StaleObjectStateException;
 import org.hibernate.Transaction;
+import org.hibernate.context.internal.ManagedSessionContext;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.SessionStatistics;
 import org.hibernate.resource.transaction.spi.TransactionStatus;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncListener;
+import javax.servlet.http.HttpServletRequest;
 import java.lang.reflect.Method;
+import java.util.Collections;
 
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.*;
@@ -31,6 +52,20 @@ public class UnitOfWorkInvokerFactoryTest {
             else
                 return "unitOfWork return";
         }
+        @UnitOfWork(readOnly = true)
+        public String readOnly() {
+            return "readOnly return";
+        }
+        @UnitOfWork
+        @UnitOfWorkRetry(maxAttempts = 2, backoff = 1)
+        public String retried() {
+            return "retried return";
+        }
+        @UnitOfWork
+        @UnitOfWorkSettings(jdbcBatchSize = 50, queryTimeout = 30)
+        public String bulkImport() {
+            return "bulkImport return";
+        }
 
     }
 
@@ -79,15 +114,21 @@ public class UnitOfWorkInvokerFactoryTest {
     }
 
     /**
-     * Utility method that mimics runtime CXF behaviour. Enables AbstractInvoker.getTargetMethod to work properly
+     * Utility method that mimics runtime CXF behaviour. Enables AbstractInvoker.getTargetMethod and
+     * AbstractInvoker.getInvocationPlan to work properly
      * during the test.
      */
     private void setTargetMethod(Exchange exchange, String methodName, Class<?>... parameterTypes) {
 
         try {
             OperationInfo oi = exchange.getBindingOperationInfo().getOperationInfo();
-            when(oi.getProperty(Method.class.getName()))
-                    .thenReturn(FooService.class.getMethod(methodName, parameterTypes));
+            Method method = FooService.class.getMethod(methodName, parameterTypes);
+            when(oi.getProperty(Method.class.getName())).thenReturn(method);
+            when(oi.getProperty(InvocationPlan.class.getName())).thenReturn(
+                    new InvocationPlan.Builder(method)
+                            .unitOfWork(method.getAnnotation(UnitOfWork.class))
+                            .unitOfWorkSettings(method.getAnnotation(UnitOfWorkSettings.class))
+                            .build());
         }
         catch (Exception e) {
             fail("setTargetMethod failed: " + e.getClass().getName() + ": " + e.getMessage());
@@ -122,6 +163,55 @@ public class UnitOfWorkInvokerFactoryTest {
         verify(session, times(1)).close();
     }
 
+    @Test
+    public void unitOfWorkWithDeadline() {
+        // use underlying invoker which invokes fooService.unitOfWork(false)
+        Invoker invoker = invokerBuilder.create(fooService, new UnitOfWorkInvoker(false), sessionFactory);
+        this.setTargetMethod(exchange, "unitOfWork", boolean.class); // simulate CXF behavior
+
+        Deadline previous = Deadline.bind(Deadline.after(5000));
+        try {
+            invoker.invoke(exchange, null);
+        }
+        finally {
+            Deadline.bind(previous);
+        }
+
+        verify(session, times(1)).setProperty(eq("javax.persistence.query.timeout"), anyInt());
+        verify(transaction, times(1)).commit();
+    }
+
+    @Test
+    public void unitOfWorkWithSettings() {
+        Invoker invoker = invokerBuilder.create(fooService, (exchange, o) -> fooService.bulkImport(), sessionFactory);
+        this.setTargetMethod(exchange, "bulkImport"); // simulate CXF behavior
+
+        Object result = invoker.invoke(exchange, null);
+        assertEquals("bulkImport return", result);
+
+        verify(session, times(1)).setJdbcBatchSize(50);
+        verify(session, times(1)).setProperty("javax.persistence.query.timeout", 30000);
+        verify(transaction, times(1)).commit();
+    }
+
+    @Test
+    public void unitOfWorkSettingsWithShorterDeadline() {
+        Invoker invoker = invokerBuilder.create(fooService, (exchange, o) -> fooService.bulkImport(), sessionFactory);
+        this.setTargetMethod(exchange, "bulkImport"); // simulate CXF behavior
+
+        Deadline previous = Deadline.bind(Deadline.after(5000));
+        try {
+            invoker.invoke(exchange, null);
+        }
+        finally {
+            Deadline.bind(previous);
+        }
+
+        ArgumentCaptor<Object> timeout = ArgumentCaptor.forClass(Object.class);
+        verify(session, times(1)).setProperty(eq("javax.persistence.query.timeout"), timeout.capture());
+        assertThat((Integer)timeout.getValue() <= 5000, is(true));
+    }
+
     @Test
     public void unitOfWorkWithException() {
         // use underlying invoker which invokes fooService.unitOfWork(true) - exception is thrown
@@ -140,4 +230,331 @@ public class UnitOfWorkInvokerFactoryTest {
         verify(transaction, times(1)).rollback();
         verify(session, times(1)).close();
     }
+
+    @Test
+    public void unitOfWorkOfSuspendedAsyncOperation() throws Exception {
+        // Simulate CXF behavior: invocation of @UseAsyncMethod operation is suspended on first invoke and resumed
+        // when the asynchronous response is ready.
+        Continuation continuation = mock(Continuation.class);
+        when(continuation.isPending()).thenReturn(true, false);
+        ContinuationProvider provider = mock(ContinuationProvider.class);
+        when(provider.getContinuation()).thenReturn(continuation);
+        Message inMessage = mock(Message.class);
+        when(inMessage.get(ContinuationProvider.class.getName())).thenReturn(provider);
+
+        Exchange asyncExchange = new ExchangeImpl();
+        asyncExchange.put(BindingOperationInfo.class, exchange.getBindingOperationInfo());
+        asyncExchange.setInMessage(inMessage);
+
+        Method method = FooService.class.getMethod("unitOfWork", boolean.class);
+        when(asyncExchange.getBindingOperationInfo().getOperationInfo().getProperty(InvocationPlan.class.getName()))
+                .thenReturn(new InvocationPlan.Builder(method)
+                        .async(true)
+                        .unitOfWork(method.getAnnotation(UnitOfWork.class))
+                        .build());
+
+        Invoker invoker = invokerBuilder.create(fooService, new UnitOfWorkInvoker(false), sessionFactory);
+
+        invoker.invoke(asyncExchange, null);
+
+        verify(session, times(1)).beginTransaction();
+        verify(transaction, times(0)).commit();
+        verify(session, times(0)).close();
+
+        Object result = invoker.invoke(asyncExchange, null);
+        assertEquals("unitOfWork return", result);
+
+        verify(sessionFactory, times(1)).openSession();
+        verify(session, times(1)).beginTransaction();
+        verify(transaction, times(1)).commit();
+        verify(transaction, times(0)).rollback();
+        verify(session, times(1)).close();
+    }
+
+    @Test
+    public void unitOfWorkOfAsyncOperationWhichIsNotResumed() throws Exception {
+        // Simulate CXF behavior: invocation of @UseAsyncMethod operation is suspended with servlet async context,
+        // which times out and completes without resuming the invocation.
+        Continuation continuation = mock(Continuation.class);
+        when(continuation.isPending()).thenReturn(true);
+        ContinuationProvider provider = mock(ContinuationProvider.class);
+        when(provider.getContinuation()).thenReturn(continuation);
+        AsyncContext asyncContext = mock(AsyncContext.class);
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.isAsyncStarted()).thenReturn(true);
+        when(request.getAsyncContext()).thenReturn(asyncContext);
+        Message inMessage = mock(Message.class);
+        when(inMessage.get(ContinuationProvider.class.getName())).thenReturn(provider);
+        when(inMessage.get(AbstractHTTPDestination.HTTP_REQUEST)).thenReturn(request);
+
+        Exchange asyncExchange = new ExchangeImpl();
+        asyncExchange.put(BindingOperationInfo.class, exchange.getBindingOperationInfo());
+        asyncExchange.setInMessage(inMessage);
+
+        Method method = FooService.class.getMethod("unitOfWork", boolean.class);
+        when(asyncExchange.getBindingOperationInfo().getOperationInfo().getProperty(InvocationPlan.class.getName()))
+                .thenReturn(new InvocationPlan.Builder(method)
+                        .async(true)
+                        .unitOfWork(method.getAnnotation(UnitOfWork.class))
+                        .build());
+
+        Invoker invoker = invokerBuilder.create(fooService, new UnitOfWorkInvoker(false), sessionFactory);
+
+        invoker.invoke(asyncExchange, null);
+
+        ArgumentCaptor<AsyncListener> listener = ArgumentCaptor.forClass(AsyncListener.class);
+        verify(asyncContext).addListener(listener.capture());
+        verify(session, times(0)).close();
+
+        listener.getValue().onTimeout(null);
+        listener.getValue().onComplete(null);
+
+        verify(transaction, times(0)).commit();
+        verify(transaction, times(1)).rollback();
+        verify(session, times(1)).close();
+    }
+
+    @Test
+    public void currentSessionIsBoundToAsyncTask() {
+        when(sessionFactory.getCurrentSession()).thenReturn(session);
+        when(session.getSessionFactory()).thenReturn(sessionFactory);
+        final boolean[] bound = new boolean[1];
+
+        Runnable task = com.roskart.dropwizard.jaxws.UnitOfWorkInvoker.withCurrentSession(sessionFactory,
+                () -> bound[0] = ManagedSessionContext.hasBind(sessionFactory));
+        task.run();
+
+        assertThat(bound[0], is(true));
+        assertThat(ManagedSessionContext.hasBind(sessionFactory), is(false));
+    }
+
+    @Test
+    public void lazySessionIsNotOpenedWhenNotUsed() throws Exception {
+        Invoker invoker = invokerBuilder.create(fooService, new UnitOfWorkInvoker(false), sessionFactory);
+        setLazyTargetMethod();
+
+        Object result = invoker.invoke(exchange, null);
+        assertEquals("unitOfWork return", result);
+
+        verify(sessionFactory, times(0)).openSession();
+        verifyZeroInteractions(session);
+        verifyZeroInteractions(transaction);
+    }
+
+    @Test
+    public void lazySessionIsOpenedWhenUsed() throws Exception {
+        SessionFactoryImplementor sessionFactoryImplementor = mock(SessionFactoryImplementor.class);
+        when(sessionFactoryImplementor.openSession()).thenReturn(session);
+        // underlying invoker uses current session, like DAOs do
+        Invoker underlying = (exchange, o) -> {
+            new ManagedSessionContext(sessionFactoryImplementor).currentSession().clear();
+            return fooService.unitOfWork(false);
+        };
+        Invoker invoker = invokerBuilder.create(fooService, underlying, sessionFactoryImplementor);
+        setLazyTargetMethod();
+
+        Object result = invoker.invoke(exchange, null);
+        assertEquals("unitOfWork return", result);
+
+        verify(sessionFactoryImplementor, times(1)).openSession();
+        verify(session, times(1)).beginTransaction();
+        verify(session, times(1)).clear();
+        verify(transaction, times(1)).commit();
+        verify(session, times(1)).close();
+    }
+
+    private void setLazyTargetMethod() throws Exception {
+        Method method = FooService.class.getMethod("unitOfWork", boolean.class);
+        when(exchange.getBindingOperationInfo().getOperationInfo().getProperty(InvocationPlan.class.getName()))
+                .thenReturn(new InvocationPlan.Builder(method)
+                        .unitOfWork(method.getAnnotation(UnitOfWork.class))
+                        .lazySession(true)
+                        .build());
+    }
+
+    @Test
+    public void readOnlyUnitOfWorkUsesReplica() throws Exception {
+        SessionFactoryImplementor primary = mock(SessionFactoryImplementor.class);
+        SessionFactory replicaSessionFactory = mock(SessionFactory.class);
+        when(replicaSessionFactory.openSession()).thenReturn(session);
+        ReplicaRouter router = new ReplicaRouter(ReplicaRouter.Strategy.LEAST_ACTIVE,
+                Collections.singletonList(replicaSessionFactory));
+        final int[] active = new int[1];
+        // underlying invoker uses current session of the primary session factory, like DAOs do
+        Invoker underlying = (exchange, o) -> {
+            new ManagedSessionContext(primary).currentSession().clear();
+            active[0] = router.getReplicas().get(0).getActive();
+            return fooService.foo();
+        };
+        Method method = FooService.class.getMethod("readOnly");
+        when(exchange.getBindingOperationInfo().getOperationInfo().getProperty(InvocationPlan.class.getName()))
+                .thenReturn(new InvocationPlan.Builder(method)
+                        .unitOfWork(method.getAnnotation(UnitOfWork.class))
+                        .replicaRouter(router)
+                        .build());
+
+        Object result = invokerBuilder.create(fooService, underlying, primary).invoke(exchange, null);
+        assertEquals("foo return", result);
+
+        verify(primary, times(0)).openSession();
+        verify(session, times(1)).setDefaultReadOnly(true);
+        verify(session, times(1)).clear();
+        verify(transaction, times(1)).commit();
+        verify(session, times(1)).close();
+        assertEquals(1, active[0]);
+        assertEquals(0, router.getReplicas().get(0).getActive());
+    }
+
+    @Test
+    public void unitOfWorkMetrics() throws Exception {
+        MetricRegistry metricRegistry = new MetricRegistry();
+        UnitOfWorkInvokerFactory instrumentedBuilder = new UnitOfWorkInvokerFactory(metricRegistry, 1);
+        SessionStatistics statistics = mock(SessionStatistics.class);
+        when(statistics.getEntityCount()).thenReturn(3);
+        when(session.getStatistics()).thenReturn(statistics);
+        when(session.isOpen()).thenReturn(true);
+        ArgumentCaptor<SessionEventListener> listener = ArgumentCaptor.forClass(SessionEventListener.class);
+        // underlying invoker executes two statements, one cache hit
+        Invoker underlying = (exchange, o) -> {
+            verify(session).addEventListeners(listener.capture());
+            listener.getValue().jdbcExecuteStatementStart();
+            listener.getValue().jdbcExecuteStatementStart();
+            listener.getValue().cacheGetEnd(true);
+            return fooService.unitOfWork(false);
+        };
+        Method method = FooService.class.getMethod("unitOfWork", boolean.class);
+        when(exchange.getBindingOperationInfo().getOperationInfo().getProperty(InvocationPlan.class.getName()))
+                .thenReturn(new InvocationPlan.Builder(method)
+                        .unitOfWork(method.getAnnotation(UnitOfWork.class))
+                        .unitOfWorkMetrics(instrumentedBuilder.createUnitOfWorkMetrics(method))
+                        .build());
+
+        Object result = instrumentedBuilder.create(fooService, underlying, sessionFactory).invoke(exchange, null);
+        assertEquals("unitOfWork return", result);
+
+        String prefix = MetricRegistry.name(FooService.class, "unitOfWork", "unit-of-work");
+        assertEquals(1, metricRegistry.timer(prefix + ".open").getCount());
+        assertEquals(1, metricRegistry.timer(prefix + ".begin").getCount());
+        assertEquals(1, metricRegistry.timer(prefix + ".body").getCount());
+        assertEquals(1, metricRegistry.timer(prefix + ".commit").getCount());
+        assertEquals(0, metricRegistry.timer(prefix + ".rollback").getCount());
+        assertEquals(2, metricRegistry.histogram(prefix + ".statements").getSnapshot().getMax());
+        assertEquals(3, metricRegistry.histogram(prefix + ".entities").getSnapshot().getMax());
+        assertEquals(1, metricRegistry.histogram(prefix + ".cache-hits").getSnapshot().getMax());
+        assertEquals(1, metricRegistry.meter(prefix + ".excessive-statements").getCount());
+    }
+
+    @Test
+    public void noUnitOfWorkMetricsWithoutMetricRegistry() throws Exception {
+        assertThat(invokerBuilder.createUnitOfWorkMetrics(FooService.class.getMethod("unitOfWork", boolean.class)),
+                is(nullValue()));
+    }
+
+    private void setRetriedTargetMethod(MetricRegistry metricRegistry) throws Exception {
+        Method method = FooService.class.getMethod("retried");
+        when(exchange.getBindingOperationInfo().getOperationInfo().getProperty(InvocationPlan.class.getName()))
+                .thenReturn(new InvocationPlan.Builder(method)
+                        .unitOfWork(method.getAnnotation(UnitOfWork.class))
+                        .retryPolicy(new UnitOfWorkInvokerFactory(metricRegistry).createRetryPolicy(method))
+                        .build());
+    }
+
+    @Test
+    public void unitOfWorkIsRetried() throws Exception {
+        MetricRegistry metricRegistry = new MetricRegistry();
+        setRetriedTargetMethod(metricRegistry);
+        final int[] attempts = new int[1];
+        // first attempt fails with optimistic locking failure, wrapped like CXF wraps service exceptions
+        Invoker underlying = (exchange, o) -> {
+            if (attempts[0]++ == 0) {
+                throw new Fault(new StaleObjectStateException("Foo", 1L));
+            }
+            return fooService.retried();
+        };
+
+        Object result = invokerBuilder.create(fooService, underlying, sessionFactory).invoke(exchange, null);
+        assertEquals("retried return", result);
+
+        assertEquals(2, attempts[0]);
+        verify(sessionFactory, times(2)).openSession();
+        verify(transaction, times(1)).rollback();
+        verify(transaction, times(1)).commit();
+        verify(session, times(2)).close();
+        String prefix = MetricRegistry.name(FooService.class, "retried", "unit-of-work");
+        assertEquals(1, metricRegistry.meter(prefix + ".retries").getCount());
+        assertEquals(0, metricRegistry.meter(prefix + ".retries-exhausted").getCount());
+    }
+
+    @Test
+    public void unitOfWorkRetriesAreExhausted() throws Exception {
+        MetricRegistry metricRegistry = new MetricRegistry();
+        setRetriedTargetMethod(metricRegistry);
+        final int[] attempts = new int[1];
+        Invoker underlying = (exchange, o) -> {
+            attempts[0]++;
+            throw new Fault(new StaleObjectStateException("Foo", 1L));
+        };
+
+        try {
+            invokerBuilder.create(fooService, underlying, sessionFactory).invoke(exchange, null);
+            fail();
+        }
+        catch (Fault e) {
+            assertThat(e.getCause(), is(instanceOf(StaleObjectStateException.class)));
+        }
+
+        assertEquals(2, attempts[0]);
+        verify(transaction, times(2)).rollback();
+        String prefix = MetricRegistry.name(FooService.class, "retried", "unit-of-work");
+        assertEquals(1, metricRegistry.meter(prefix + ".retries").getCount());
+        assertEquals(1, metricRegistry.meter(prefix + ".retries-exhausted").getCount());
+    }
+
+    @Test
+    public void unitOfWorkIsNotRetriedAfterDeadline() throws Exception {
+        MetricRegistry metricRegistry = new MetricRegistry();
+        setRetriedTargetMethod(metricRegistry);
+        final int[] attempts = new int[1];
+        Invoker underlying = (exchange, o) -> {
+            attempts[0]++;
+            throw new Fault(new StaleObjectStateException("Foo", 1L));
+        };
+
+        Deadline previous = Deadline.bind(Deadline.after(0));
+        try {
+            invokerBuilder.create(fooService, underlying, sessionFactory).invoke(exchange, null);
+            fail();
+        }
+        catch (Fault e) {
+            assertThat(e.getCause(), is(instanceOf(StaleObjectStateException.class)));
+        }
+        finally {
+            Deadline.bind(previous);
+        }
+
+        assertEquals(1, attempts[0]);
+        String prefix = MetricRegistry.name(FooService.class, "retried", "unit-of-work");
+        assertEquals(0, metricRegistry.meter(prefix + ".retries").getCount());
+        assertEquals(1, metricRegistry.meter(prefix + ".retries-exhausted").getCount());
+    }
+
+    @Test
+    public void unitOfWorkIsNotRetriedOnOtherExceptions() throws Exception {
+        setRetriedTargetMethod(new MetricRegistry());
+        final int[] attempts = new int[1];
+        Invoker underlying = (exchange, o) -> {
+            attempts[0]++;
+            throw new IllegalStateException("Uh oh");
+        };
+
+        try {
+            invokerBuilder.create(fooService, underlying, sessionFactory).invoke(exchange, null);
+            fail();
+        }
+        catch (IllegalStateException e) {
+            assertEquals("Uh oh", e.getMessage());
+        }
+
+        assertEquals(1, attempts[0]);
+    }
 }
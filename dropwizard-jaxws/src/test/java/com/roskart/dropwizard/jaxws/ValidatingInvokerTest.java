@@ -14,6 +14,7 @@ import org.junit.Test;
 import javax.validation.Validation;
 import javax.validation.Valid;
 import javax.validation.ValidationException;
+import javax.validation.Validator;
 import javax.validation.constraints.NotEmpty;
 import javax.xml.ws.AsyncHandler;
 import javax.xml.ws.Response;
@@ -92,14 +93,19 @@ public class ValidatingInvokerTest {
     }
 
     /**
-     * Utility method that mimics runtime CXF behaviour. Enables AbstractInvoker.getTargetMethod to work properly
+     * Utility method that mimics runtime CXF behaviour. Enables AbstractInvoker.getTargetMethod and
+     * AbstractInvoker.getInvocationPlan to work properly
      * during the test.
      */
     private void setTargetMethod(Exchange exchange, String methodName, Class<?>... parameterTypes) {
         try {
             OperationInfo oi = exchange.getBindingOperationInfo().getOperationInfo();
-            when(oi.getProperty(Method.class.getName()))
-                    .thenReturn(DummyService.class.getMethod(methodName, parameterTypes));
+            Method method = DummyService.class.getMethod(methodName, parameterTypes);
+            when(oi.getProperty(Method.class.getName())).thenReturn(method);
+            when(oi.getProperty(InvocationPlan.class.getName())).thenReturn(
+                    new InvocationPlan.Builder(method)
+                            .parameterValidationGroups(ValidatingInvoker.findParameterValidationGroups(method))
+                            .build());
         }
         catch (Exception e) {
             fail("setTargetMethod failed: " + e.getClass().getName() + ": " + e.getMessage());
@@ -126,6 +132,18 @@ public class ValidatingInvokerTest {
         verify(underlying).invoke(exchange, params);
     }
 
+    @Test
+    public void invokeWithoutValidationSkipsValidator() {
+        Validator validator = mock(Validator.class);
+        invoker = new ValidatingInvoker(underlying, validator);
+        setTargetMethod(exchange, "noValidation", RootParam1.class, RootParam2.class);
+
+        List<Object> params = Arrays.asList(new RootParam1(null), new RootParam2(null));
+        invoker.invoke(exchange, params);
+        verify(underlying).invoke(exchange, params);
+        verifyZeroInteractions(validator);
+    }
+
     @Test
     public void invokeWithAsycHandler() {
         setTargetMethod(exchange, "asyncMethod", String.class);